@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarkparsia.empire;
+
+import java.util.BitSet;
+
+/**
+ * <p>Interface implemented by generated beans which keep track of which of their properties were set since they were
+ * loaded, or last merged.  The bits of the set correspond to the properties listed by
+ * {@link com.clarkparsia.empire.codegen.InstanceGenerator#getTrackedProperties}.  This is for Empire internal use only.</p>
+ *
+ * @author  Michael Grove
+ * @since   1.0
+ * @version 1.0
+ */
+public interface DirtyTracking {
+
+	/**
+	 * Return the properties which were set since the bean was loaded or last merged
+	 * @return the set properties
+	 */
+	public BitSet getDirtyProperties();
+
+	/**
+	 * Mark all of the properties as unchanged
+	 */
+	public void clearDirtyProperties();
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarkparsia.empire;
+
+import javax.persistence.EntityManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * <p>Extensions to the {@link EntityManager} interface which are specific to Empire.  The EntityManagers created by
+ * Empire implement this interface.</p>
+ *
+ * <p>The bulk operations write a large number of entities in chunks, one write to the data source per chunk rather
+ * than per entity, and convert the entities of a chunk to RDF in parallel.  Since that conversion happens on several
+ * threads at once, it's not safe to pass the same instance more than once, or instances whose getters are not safe to
+ * call concurrently with those of the other instances.</p>
+ *
+ * @author  Michael Grove
+ * @since   1.0
+ * @version 1.0
+ */
+public interface EmpireEntityManager extends EntityManager {
+
+	/**
+	 * Find the entities with the given primary keys.  This is equivalent to calling {@link #find} with each of the
+	 * keys, but the entities which are not already managed are loaded with a query per batch of keys rather than
+	 * with queries for each of them.
+	 * @param theClass the type of the entities
+	 * @param theKeys the primary keys of the entities
+	 * @param <T> the type of the entities
+	 * @return the entities, in the same order as the keys, with null for the keys of entities which do not exist
+	 * @throws IllegalStateException if the EntityManager is closed
+	 * @throws IllegalArgumentException if the class is not a valid entity type, or a key is not a valid primary key
+	 * @throws javax.persistence.PersistenceException if there is an error while loading the entities
+	 */
+	public <T> List<T> findAll(final Class<T> theClass, final Collection<?> theKeys);
+
+	/**
+	 * Persist all of the entities.  This is equivalent to calling {@link #persist} with each of them, but is much
+	 * faster for a large number of entities.
+	 * @param theObjs the entities to persist
+	 * @throws IllegalStateException if the EntityManager is closed, or an entity is not a valid Rdf entity
+	 * @throws IllegalArgumentException if an entity is not supported by Empire
+	 * @throws javax.persistence.EntityExistsException if an entity already exists
+	 * @throws javax.persistence.PersistenceException if there is an error while writing the entities
+	 */
+	public void persistAll(final Collection<?> theObjs);
+
+	/**
+	 * Persist all of the entities, in chunks
+	 * @param theObjs the entities to persist
+	 * @param theCheckExists whether or not to check that the entities do not already exist.  This costs a query per
+	 * chunk; when the entities are known to be new, such as during an initial import, the check can be skipped.
+	 * @throws IllegalStateException if the EntityManager is closed, or an entity is not a valid Rdf entity
+	 * @throws IllegalArgumentException if an entity is not supported by Empire
+	 * @throws javax.persistence.EntityExistsException if the existence of the entities is checked and one already exists
+	 * @throws javax.persistence.PersistenceException if there is an error while writing the entities
+	 */
+	public void persistAll(final Stream<?> theObjs, final boolean theCheckExists);
+
+	/**
+	 * Merge all of the entities.  This is equivalent to calling {@link #merge} with each of them, but the changes
+	 * are written to the data source a chunk at a time.
+	 * @param theObjs the entities to merge
+	 * @throws IllegalStateException if the EntityManager is closed, or an entity is not a valid Rdf entity
+	 * @throws IllegalArgumentException if an entity is not supported by Empire
+	 * @throws javax.persistence.PersistenceException if there is an error while writing the entities
+	 */
+	public void mergeAll(final Collection<?> theObjs);
+
+	/**
+	 * Merge all of the entities, in chunks
+	 * @param theObjs the entities to merge
+	 * @throws IllegalStateException if the EntityManager is closed, or an entity is not a valid Rdf entity
+	 * @throws IllegalArgumentException if an entity is not supported by Empire
+	 * @throws javax.persistence.PersistenceException if there is an error while writing the entities
+	 */
+	public void mergeAll(final Stream<?> theObjs);
+}
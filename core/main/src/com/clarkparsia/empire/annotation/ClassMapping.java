@@ -0,0 +1,588 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarkparsia.empire.annotation;
+
+import com.clarkparsia.empire.util.BeanReflectUtil;
+
+import com.complexible.common.util.PrefixMapping;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Primitives;
+
+import com.clarkparsia.empire.ds.DataSource;
+
+import org.openrdf.model.IRI;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.SimpleValueFactory;
+
+import javax.persistence.CascadeType;
+import javax.persistence.Transient;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import java.beans.Introspector;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>The mapping of a bean class to RDF, worked out once per class.  The mapped properties, their predicates and
+ * whether or not they are transient are resolved from the annotations up front, and values are read and written through
+ * {@link MethodHandle MethodHandles} rather than by reflection, so converting instances of the class to and from RDF
+ * does no reflection of its own.  The fields and setters which are populated from RDF are mapped by their predicate,
+ * along with the functions which turn the RDF values into theirs.</p>
+ *
+ * @author  Michael Grove
+ * @since   1.0
+ * @version 1.0
+ */
+public final class ClassMapping {
+
+	/**
+	 * The base of the predicates of mapped fields which do not specify one with {@link RdfProperty}
+	 */
+	private static final String DEFAULT_BASE = "urn:empire:clark-parsia:";
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	/**
+	 * The mappings, by class
+	 */
+	private static final Map<Class<?>, ClassMapping> MAPPINGS = Maps.newConcurrentMap();
+
+	/**
+	 * The mapped class
+	 */
+	private final Class<?> mClass;
+
+	/**
+	 * The properties which are converted to RDF, that is, the annotated fields and getters which are not transient
+	 */
+	private final List<PropertyMapping> mProperties;
+
+	/**
+	 * The setters for the annotated fields and setter methods, keyed by the accessor
+	 */
+	private final Map<AccessibleObject, SetterMapping> mSetters;
+
+	/**
+	 * The setters, keyed by their predicate
+	 */
+	private final Map<IRI, SetterMapping> mSettersByPredicate;
+
+	/**
+	 * The setters, keyed by the name of the bean property they set
+	 */
+	private final Map<String, SetterMapping> mSettersByName;
+
+	/**
+	 * The setters of the properties which are populated from the columns of a select query by
+	 * {@link RdfGenerator#fromRow}, keyed by column name.  Only worked out when the class is used that way.
+	 */
+	private volatile Map<String, SetterMapping> mColumns;
+
+	/**
+	 * The properties whose values the persist, merge, remove and refresh operations are cascaded to, by operation
+	 */
+	private final Map<CascadeType, List<PropertyMapping>> mCascades;
+
+	private ClassMapping(final Class<?> theClass) {
+		mClass = theClass;
+
+		// the predicates of the annotations are expanded with the namespaces of the class
+		RdfGenerator.addNamespaces(theClass);
+
+		ImmutableList.Builder<PropertyMapping> aProperties = ImmutableList.builder();
+
+		for (Field aField : BeanReflectUtil.getAnnotatedFields(theClass)) {
+			if (!isTransient(aField)) {
+				aProperties.add(new PropertyMapping(aField));
+			}
+		}
+
+		for (Method aGetter : BeanReflectUtil.getAnnotatedGetters(theClass, true)) {
+			if (!isTransient(aGetter)) {
+				aProperties.add(new PropertyMapping(aGetter));
+			}
+		}
+
+		mProperties = aProperties.build();
+
+		Map<AccessibleObject, SetterMapping> aSetters = Maps.newLinkedHashMap();
+
+		for (Field aField : BeanReflectUtil.getAnnotatedFields(theClass)) {
+			aSetters.put(aField, new SetterMapping(aField));
+		}
+
+		for (Method aSetter : BeanReflectUtil.getAnnotatedSetters(theClass, true)) {
+			aSetters.put(aSetter, new SetterMapping(aSetter));
+		}
+
+		mSetters = Collections.unmodifiableMap(aSetters);
+
+		// a setter takes precedence over a field with the same predicate
+		Map<IRI, SetterMapping> aByPredicate = Maps.newHashMap();
+		Map<String, SetterMapping> aByName = Maps.newHashMap();
+
+		for (SetterMapping aSetter : aSetters.values()) {
+			if (aSetter.mProperty != null) {
+				aByPredicate.put(aSetter.mProperty, aSetter);
+			}
+
+			aByName.put(aSetter.getName(), aSetter);
+		}
+
+		mSettersByPredicate = ImmutableMap.copyOf(aByPredicate);
+		mSettersByName = ImmutableMap.copyOf(aByName);
+
+		List<AccessibleObject> aCascading = ImmutableList.<AccessibleObject>builder()
+		                                                 .addAll(BeanReflectUtil.getAnnotatedFields(theClass))
+		                                                 .addAll(BeanReflectUtil.getAnnotatedGetters(theClass, true))
+		                                                 .build();
+
+		ImmutableList.Builder<PropertyMapping> aPersist = ImmutableList.builder();
+		ImmutableList.Builder<PropertyMapping> aMerge = ImmutableList.builder();
+		ImmutableList.Builder<PropertyMapping> aRemove = ImmutableList.builder();
+		ImmutableList.Builder<PropertyMapping> aRefresh = ImmutableList.builder();
+
+		for (AccessibleObject aAccessor : aCascading) {
+			boolean isPersist = BeanReflectUtil.isPersistCascade(aAccessor);
+			boolean isMerge = BeanReflectUtil.isMergeCascade(aAccessor);
+			boolean isRemove = BeanReflectUtil.isRemoveCascade(aAccessor);
+			boolean isRefresh = BeanReflectUtil.isRefreshCascade(aAccessor);
+
+			if (!isPersist && !isMerge && !isRemove && !isRefresh) {
+				continue;
+			}
+
+			PropertyMapping aProperty = mProperties.stream()
+			                                       .filter(theProperty -> theProperty.getAccessor().equals(aAccessor))
+			                                       .findFirst()
+			                                       .orElseGet(() -> new PropertyMapping(aAccessor));
+
+			if (isPersist) {
+				aPersist.add(aProperty);
+			}
+			if (isMerge) {
+				aMerge.add(aProperty);
+			}
+			if (isRemove) {
+				aRemove.add(aProperty);
+			}
+			if (isRefresh) {
+				aRefresh.add(aProperty);
+			}
+		}
+
+		mCascades = ImmutableMap.of(CascadeType.PERSIST, aPersist.build(),
+		                            CascadeType.MERGE, aMerge.build(),
+		                            CascadeType.REMOVE, aRemove.build(),
+		                            CascadeType.REFRESH, aRefresh.build());
+	}
+
+	/**
+	 * Return the mapping of the class
+	 * @param theClass the class
+	 * @return the mapping
+	 */
+	public static ClassMapping of(final Class<?> theClass) {
+		ClassMapping aMapping = MAPPINGS.get(theClass);
+
+		if (aMapping == null) {
+			// creating a mapping twice is harmless, so there's no need to hold a lock while doing it
+			aMapping = new ClassMapping(theClass);
+
+			ClassMapping aExisting = MAPPINGS.putIfAbsent(theClass, aMapping);
+
+			if (aExisting != null) {
+				aMapping = aExisting;
+			}
+		}
+
+		return aMapping;
+	}
+
+	/**
+	 * Return the mapped class
+	 * @return the class
+	 */
+	public Class<?> getMappedClass() {
+		return mClass;
+	}
+
+	/**
+	 * Return the properties of the class which are converted to RDF
+	 * @return the properties
+	 */
+	public List<PropertyMapping> getProperties() {
+		return mProperties;
+	}
+
+	/**
+	 * Return the properties of the class whose values the operation is cascaded to, according to the cascade types of
+	 * their {@link javax.persistence.OneToOne}, {@link javax.persistence.OneToMany}, {@link javax.persistence.ManyToOne}
+	 * or {@link javax.persistence.ManyToMany} annotations.
+	 * @param theOperation the operation, one of {@link CascadeType#PERSIST}, {@link CascadeType#MERGE},
+	 *                     {@link CascadeType#REMOVE} or {@link CascadeType#REFRESH}
+	 * @return the properties the operation is cascaded to, empty if it is not cascaded at all
+	 * @throws IllegalArgumentException if the operation is {@link CascadeType#ALL}
+	 */
+	public List<PropertyMapping> getCascades(final CascadeType theOperation) {
+		Preconditions.checkArgument(theOperation != CascadeType.ALL, "Not an operation: " + theOperation);
+
+		return mCascades.get(theOperation);
+	}
+
+	/**
+	 * Set the value of the property on the object using the given accessor, which is an annotated field or setter of
+	 * the class.
+	 * @param theAccessor the accessor
+	 * @param theObj the object
+	 * @param theValue the new value
+	 * @throws InvocationTargetException if the setter throws an exception
+	 * @throws IllegalArgumentException if the value is not of the type of the property
+	 */
+	public void set(final AccessibleObject theAccessor, final Object theObj, final Object theValue) throws InvocationTargetException {
+		SetterMapping aSetter = mSetters.get(theAccessor);
+
+		if (aSetter == null) {
+			// not an accessor of this class, likely a subclass one, so it's just set the old fashioned way
+			BeanReflectUtil.safeSet(theAccessor, theObj, theValue);
+		}
+		else {
+			aSetter.set(theObj, theValue);
+		}
+	}
+
+	/**
+	 * Return the setter for the values of the predicate, an annotated field or setter of the class
+	 * @param thePredicate the predicate
+	 * @return the setter, or null if the predicate is not mapped by the class
+	 */
+	public SetterMapping getSetter(final IRI thePredicate) {
+		return mSettersByPredicate.get(thePredicate);
+	}
+
+	/**
+	 * Return the setter for the bean property with the given name, an annotated field of that name, or a setter of the
+	 * property
+	 * @param theName the name of the property
+	 * @return the setter, or null if the class has no such annotated property
+	 */
+	public SetterMapping getSetter(final String theName) {
+		return mSettersByName.get(theName);
+	}
+
+	/**
+	 * Return the setter for the column of a result row.  The column is the name of a bean property, or the local name
+	 * of the predicate of its {@link RdfProperty}.  Setter methods are looked for first, they're what the bean itself
+	 * would use, then any field which is not transient, annotated or not.  Collections are not populated from a row,
+	 * it only holds a single value for each column.
+	 * @param theColumn the name of the column
+	 * @return the setter, or null if there is no property for the column
+	 */
+	public SetterMapping getColumn(final String theColumn) {
+		Map<String, SetterMapping> aColumns = mColumns;
+
+		if (aColumns == null) {
+			// like the mappings themselves, working the columns out twice is harmless
+			aColumns = Maps.newHashMap();
+
+			for (Method aSetter : BeanReflectUtil.getAnnotatedSetters(mClass, true)) {
+				addColumn(aColumns, mSetters.get(aSetter));
+			}
+
+			for (Field aField : BeanReflectUtil.getAllDeclaredFields(mClass)) {
+				if (!Modifier.isStatic(aField.getModifiers()) && !aField.isSynthetic() && !isTransient(aField)) {
+					SetterMapping aSetter = mSetters.get(aField);
+
+					addColumn(aColumns, aSetter != null ? aSetter : new SetterMapping(aField));
+				}
+			}
+
+			mColumns = aColumns = ImmutableMap.copyOf(aColumns);
+		}
+
+		return aColumns.get(theColumn);
+	}
+
+	private static void addColumn(final Map<String, SetterMapping> theColumns, final SetterMapping theSetter) {
+		if (Collection.class.isAssignableFrom(theSetter.mType)) {
+			return;
+		}
+
+		theColumns.putIfAbsent(theSetter.getName(), theSetter);
+
+		if (theSetter.mProperty != null) {
+			theColumns.putIfAbsent(theSetter.mProperty.getLocalName(), theSetter);
+		}
+	}
+
+	/**
+	 * Return the predicate of the property.  This is the predicate of its {@link RdfProperty}, or for a field without
+	 * one, the name of the field in the {@link #DEFAULT_BASE default namespace}.
+	 */
+	private static IRI predicate(final RdfProperty theAnnotation, final AccessibleObject theAccessor) {
+		if (theAnnotation != null) {
+			return SimpleValueFactory.getInstance().createIRI(PrefixMapping.GLOBAL.uri(theAnnotation.value()));
+		}
+		else if (theAccessor instanceof Field) {
+			return SimpleValueFactory.getInstance().createIRI(DEFAULT_BASE + ((Field) theAccessor).getName());
+		}
+		else {
+			return null;
+		}
+	}
+
+	private static boolean isTransient(final AccessibleObject theAccess) {
+		return theAccess.isAnnotationPresent(Transient.class)
+		       || (theAccess instanceof Field && Modifier.isTransient(((Field) theAccess).getModifiers()));
+	}
+
+	/**
+	 * Return a handle for reading the value of the field or calling the getter, with the type {@link #GETTER_TYPE}
+	 */
+	private static MethodHandle getter(final AccessibleObject theAccess) {
+		boolean aOldAccess = BeanReflectUtil.setAccessible(theAccess, true);
+
+		try {
+			MethodHandle aHandle = theAccess instanceof Field
+			                       ? MethodHandles.lookup().unreflectGetter((Field) theAccess)
+			                       : MethodHandles.lookup().unreflect((Method) theAccess);
+
+			return aHandle.asType(GETTER_TYPE);
+		}
+		catch (IllegalAccessException e) {
+			throw new IllegalStateException("Cannot access " + theAccess, e);
+		}
+		finally {
+			BeanReflectUtil.setAccessible(theAccess, aOldAccess);
+		}
+	}
+
+	/**
+	 * A property which is converted to RDF
+	 */
+	public static final class PropertyMapping {
+		private final AccessibleObject mAccessor;
+		private final RdfProperty mAnnotation;
+		private final IRI mProperty;
+		private final MethodHandle mGetter;
+		private final RdfGenerator.AsValueFunction mAsValue;
+
+		private PropertyMapping(final AccessibleObject theAccessor) {
+			mAccessor = theAccessor;
+			mAnnotation = BeanReflectUtil.getAnnotation(theAccessor, RdfProperty.class);
+			mProperty = predicate(mAnnotation, theAccessor);
+			mGetter = getter(theAccessor);
+			mAsValue = new RdfGenerator.AsValueFunction(theAccessor);
+		}
+
+		/**
+		 * Return the field or getter of the property
+		 * @return the accessor
+		 */
+		public AccessibleObject getAccessor() {
+			return mAccessor;
+		}
+
+		/**
+		 * Return the {@link RdfProperty} annotation of the property
+		 * @return the annotation, or null if the property is not annotated
+		 */
+		public RdfProperty getAnnotation() {
+			return mAnnotation;
+		}
+
+		/**
+		 * Return the predicate the property is mapped to.  For annotated properties, this is the predicate of the
+		 * annotation, otherwise the name of the field in the {@link #DEFAULT_BASE default namespace}.
+		 * @return the predicate, or null if the property is a getter without an {@link RdfProperty}
+		 */
+		public IRI getProperty() {
+			return mProperty;
+		}
+
+		/**
+		 * Return whether or not the values of the property are an rdf:List
+		 * @return true if the property is a list
+		 */
+		public boolean isList() {
+			return mAnnotation != null && mAnnotation.isList();
+		}
+
+		/**
+		 * Return the function which converts the values of the property to RDF
+		 * @return the function
+		 */
+		public RdfGenerator.AsValueFunction getAsValueFunction() {
+			return mAsValue;
+		}
+
+		/**
+		 * Return the value of the property on the object
+		 * @param theObj the object
+		 * @return the value
+		 * @throws InvocationTargetException if the getter throws an exception
+		 */
+		public Object get(final Object theObj) throws InvocationTargetException {
+			try {
+				return mGetter.invokeExact(theObj);
+			}
+			catch (Throwable e) {
+				throw new InvocationTargetException(e);
+			}
+		}
+	}
+
+	/**
+	 * A field or setter method which is populated from RDF
+	 */
+	public static final class SetterMapping {
+		private final AccessibleObject mAccessor;
+		private final Class<?> mType;
+		private final MethodHandle mHandle;
+		private final IRI mProperty;
+		private final RdfGenerator.ToObjectFunction mToObject;
+
+		private SetterMapping(final Field theField) {
+			mAccessor = theField;
+			mType = theField.getType();
+			mHandle = Modifier.isFinal(theField.getModifiers()) ? null : setter(theField);
+			mProperty = predicate(theField.getAnnotation(RdfProperty.class), theField);
+			mToObject = new RdfGenerator.ToObjectFunction(theField);
+		}
+
+		private SetterMapping(final Method theMethod) {
+			mAccessor = theMethod;
+			mType = theMethod.getParameterTypes()[0];
+			mHandle = setter(theMethod);
+			mProperty = predicate(BeanReflectUtil.getAnnotation(theMethod, RdfProperty.class), theMethod);
+			mToObject = new RdfGenerator.ToObjectFunction(theMethod);
+		}
+
+		/**
+		 * Return the field or setter method
+		 * @return the accessor
+		 */
+		public AccessibleObject getAccessor() {
+			return mAccessor;
+		}
+
+		/**
+		 * Return the name of the bean property, the name of the field or the property name of the setter
+		 * @return the name
+		 */
+		public String getName() {
+			return mAccessor instanceof Field
+			       ? ((Field) mAccessor).getName()
+			       : Introspector.decapitalize(((Method) mAccessor).getName().substring(3));
+		}
+
+		/**
+		 * Return the predicate the property is mapped to
+		 * @return the predicate, or null if the property is a setter without an {@link RdfProperty}
+		 */
+		public IRI getProperty() {
+			return mProperty;
+		}
+
+		/**
+		 * Turn the values of the property of the individual into the value to set
+		 * @param theSource the data source the values came from
+		 * @param theSubject the individual
+		 * @param theProperty the property
+		 * @param theValues the values
+		 * @return the value to set
+		 */
+		public Object toObject(final DataSource theSource, final Resource theSubject, final IRI theProperty, final Collection<Value> theValues) {
+			return mToObject.apply(theSource, theSubject, theProperty, theValues);
+		}
+
+		/**
+		 * Turn a single value of the property of the individual into the value to set
+		 * @param theSource the data source the value came from
+		 * @param theSubject the individual, or null if the value is not about one
+		 * @param theValue the value
+		 * @return the value to set
+		 */
+		public Object toObject(final DataSource theSource, final Resource theSubject, final Value theValue) {
+			return mToObject.getValueToObject().apply(theSource, theSubject, mProperty, theValue);
+		}
+
+		/**
+		 * Set the value of the property on the object
+		 * @param theObj the object
+		 * @param theValue the new value
+		 * @throws InvocationTargetException if the setter throws an exception
+		 * @throws IllegalArgumentException if the value is not of the type of the property
+		 */
+		public void set(final Object theObj, final Object theValue) throws InvocationTargetException {
+			if (mHandle == null) {
+				// final fields can't be written with a method handle
+				BeanReflectUtil.safeSet(mAccessor, theObj, theValue);
+				return;
+			}
+
+			if (theValue == null ? mType.isPrimitive() : !Primitives.wrap(mType).isInstance(theValue)) {
+				// not the exact type, reflection does the checks and the widening conversions of primitives, so a
+				// mismatch between the rdf and the bean is handled as it always has been
+				BeanReflectUtil.safeSet(mAccessor, theObj, theValue);
+				return;
+			}
+
+			try {
+				mHandle.invokeExact(theObj, theValue);
+			}
+			catch (Throwable e) {
+				throw new InvocationTargetException(e);
+			}
+		}
+
+		private static MethodHandle setter(final AccessibleObject theAccess) {
+			boolean aOldAccess = BeanReflectUtil.setAccessible(theAccess, true);
+
+			try {
+				MethodHandle aHandle = theAccess instanceof Field
+				                       ? MethodHandles.lookup().unreflectSetter((Field) theAccess)
+				                       : MethodHandles.lookup().unreflect((Method) theAccess);
+
+				return aHandle.asType(SETTER_TYPE);
+			}
+			catch (IllegalAccessException e) {
+				throw new IllegalStateException("Cannot access " + theAccess, e);
+			}
+			finally {
+				BeanReflectUtil.setAccessible(theAccess, aOldAccess);
+			}
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2009-2013 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarkparsia.empire.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Annotation for specifying the associations of a Java object which should be fetched along with it.  Each value
+ * is a path of bean property names separated by a '.', starting from the annotated class.  When an instance of the
+ * class is loaded, the associations on the paths are fetched breadth-first, with one query for each depth of the plan,
+ * rather than with a query for each referenced object.</p>
+ * <p>
+ * Usage:<br/>
+ * <code><pre>
+ * &#64;RdfsClass("space:Spacecraft")
+ * &#64;FetchPlan({"launch", "launch.launchSite"})
+ * public class Spacecraft implements SupportsRdfId {
+ *   ...
+ * }
+ * </pre></code>
+ * </p>
+ * <p>Only associations which are fetched eagerly can be part of a fetch plan; {@link javax.persistence.FetchType#LAZY lazy}
+ * associations are loaded on access as usual.</p>
+ *
+ * @author Michael Grove
+ * @since 1.0
+ */
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FetchPlan {
+
+	/**
+	 * The association paths to fetch
+	 * @return the paths
+	 */
+	public String[] value();
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarkparsia.empire.annotation;
+
+import com.clarkparsia.empire.spi.LiteralConverter;
+
+import com.complexible.common.base.Dates;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Primitives;
+
+import org.openrdf.model.IRI;
+import org.openrdf.model.Literal;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.vocabulary.XMLSchema;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URISyntaxException;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * <p>The registry of {@link LiteralConverter LiteralConverters} used by {@link RdfGenerator} to convert between literals
+ * and Java values.  Converters for the Java primitives, URIs, {@link Date} and the {@link java.time} types are built in,
+ * converters listed in <code>META-INF/services/com.clarkparsia.empire.spi.LiteralConverter</code> are registered when
+ * the registry is first used, and others can be added with {@link #register}.  When more than one converter is
+ * registered for a datatype or Java type, the one registered last is used.</p>
+ *
+ * <p>Converters are looked up by the datatype of a literal and the type of the field or method it is assigned to, and
+ * by the type of a value; the results of both lookups are cached until another converter is registered, so the datatype
+ * switch is only worked out once per mapped property.</p>
+ *
+ * @author  Michael Grove
+ * @since   1.0
+ * @version 1.0
+ */
+public final class LiteralConverters {
+
+	/**
+	 * The logger
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(LiteralConverters.class);
+
+	/**
+	 * The registered converters, the most recently registered first
+	 */
+	private static final List<LiteralConverter<?>> CONVERTERS = Lists.newCopyOnWriteArrayList();
+
+	/**
+	 * The converter to use for a datatype, by the type of the property the value is assigned to
+	 */
+	private static final Map<Class<?>, Map<IRI, Optional<LiteralConverter<?>>>> BY_DATATYPE = Maps.newConcurrentMap();
+
+	/**
+	 * The converter to use for values of a Java type
+	 */
+	private static final Map<Class<?>, Optional<LiteralConverter<?>>> BY_TYPE = Maps.newConcurrentMap();
+
+	/**
+	 * Incremented every time a converter is registered, so that converters remembered outside of the registry can
+	 * tell when they may have been replaced
+	 */
+	private static final AtomicInteger GENERATION = new AtomicInteger();
+
+	static {
+		// registered in reverse order of precedence, so that when no more specific converter is asked for, dates
+		// are read as java.util.Date and decimals as Float, as they always have been
+		register(converter(Instant.class, theLit -> asZonedDateTime(theLit.getLabel()).toInstant(),
+		                   (theVal, theFactory) -> theFactory.createLiteral(DateTimeFormatter.ISO_INSTANT.format(theVal), XMLSchema.DATETIME),
+		                   XMLSchema.DATETIME));
+		register(converter(ZonedDateTime.class, theLit -> asZonedDateTime(theLit.getLabel()),
+		                   (theVal, theFactory) -> theFactory.createLiteral(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(theVal), XMLSchema.DATETIME),
+		                   XMLSchema.DATETIME));
+		register(converter(OffsetDateTime.class, theLit -> asZonedDateTime(theLit.getLabel()).toOffsetDateTime(),
+		                   (theVal, theFactory) -> theFactory.createLiteral(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(theVal), XMLSchema.DATETIME),
+		                   XMLSchema.DATETIME));
+		register(converter(LocalDateTime.class, theLit -> asZonedDateTime(theLit.getLabel()).toLocalDateTime(),
+		                   (theVal, theFactory) -> theFactory.createLiteral(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(theVal), XMLSchema.DATETIME),
+		                   XMLSchema.DATETIME, XMLSchema.DATE));
+		register(converter(LocalDate.class, theLit -> asZonedDateTime(theLit.getLabel()).toLocalDate(),
+		                   (theVal, theFactory) -> theFactory.createLiteral(DateTimeFormatter.ISO_LOCAL_DATE.format(theVal), XMLSchema.DATE),
+		                   XMLSchema.DATE, XMLSchema.DATETIME));
+		register(converter(LocalTime.class, theLit -> LocalTime.from(DateTimeFormatter.ISO_TIME.parse(theLit.getLabel())),
+		                   (theVal, theFactory) -> theFactory.createLiteral(DateTimeFormatter.ISO_LOCAL_TIME.format(theVal), XMLSchema.TIME),
+		                   XMLSchema.TIME));
+		register(converter(Date.class, LiteralConverters::asDate,
+		                   (theVal, theFactory) -> theFactory.createLiteral(Dates.datetime(theVal), XMLSchema.DATETIME),
+		                   XMLSchema.DATE, XMLSchema.DATETIME, XMLSchema.TIME));
+
+		register(converter(java.net.URI.class, LiteralConverters::asURI,
+		                   (theVal, theFactory) -> theFactory.createLiteral(theVal.toString(), XMLSchema.ANYURI),
+		                   XMLSchema.ANYURI));
+		register(converter(Character.class, theLit -> theLit.getLabel().charAt(0),
+		                   (theVal, theFactory) -> theFactory.createLiteral(theVal)));
+
+		register(converter(Boolean.class, theLit -> Boolean.valueOf(theLit.getLabel()),
+		                   (theVal, theFactory) -> theFactory.createLiteral(theVal.booleanValue()),
+		                   XMLSchema.BOOLEAN));
+		register(converter(Byte.class, theLit -> Byte.valueOf(theLit.getLabel()),
+		                   (theVal, theFactory) -> theFactory.createLiteral(theVal.byteValue()),
+		                   XMLSchema.BYTE, XMLSchema.UNSIGNED_BYTE));
+		register(converter(Short.class, theLit -> Short.valueOf(theLit.getLabel()),
+		                   (theVal, theFactory) -> theFactory.createLiteral(theVal.shortValue()),
+		                   XMLSchema.SHORT, XMLSchema.UNSIGNED_SHORT));
+		register(converter(Double.class, theLit -> Double.valueOf(theLit.getLabel()),
+		                   (theVal, theFactory) -> theFactory.createLiteral(theVal.doubleValue()),
+		                   XMLSchema.DOUBLE));
+		register(converter(Float.class, theLit -> Float.valueOf(theLit.getLabel()),
+		                   (theVal, theFactory) -> theFactory.createLiteral(theVal.floatValue()),
+		                   XMLSchema.FLOAT, XMLSchema.DECIMAL));
+		register(converter(Long.class, theLit -> Long.parseLong(theLit.getLabel()),
+		                   (theVal, theFactory) -> theFactory.createLiteral(theVal.longValue()),
+		                   XMLSchema.LONG, XMLSchema.UNSIGNED_LONG));
+		register(converter(Integer.class, theLit -> Integer.parseInt(theLit.getLabel()),
+		                   (theVal, theFactory) -> theFactory.createLiteral(theVal.intValue()),
+		                   XMLSchema.INT, XMLSchema.INTEGER, XMLSchema.POSITIVE_INTEGER, XMLSchema.NEGATIVE_INTEGER,
+		                   XMLSchema.NON_NEGATIVE_INTEGER, XMLSchema.NON_POSITIVE_INTEGER, XMLSchema.UNSIGNED_INT));
+
+		for (LiteralConverter<?> aConverter : ServiceLoader.load(LiteralConverter.class)) {
+			register(aConverter);
+		}
+	}
+
+	/**
+	 * No instances
+	 */
+	private LiteralConverters() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * Register a converter.  It takes precedence over all the converters registered before it for the same datatypes
+	 * or Java type.
+	 * @param theConverter the converter
+	 */
+	public static void register(final LiteralConverter<?> theConverter) {
+		CONVERTERS.add(0, theConverter);
+
+		BY_DATATYPE.clear();
+		BY_TYPE.clear();
+
+		GENERATION.incrementAndGet();
+	}
+
+	/**
+	 * Return the number of times a converter has been registered.  A converter looked up before the generation changed
+	 * must be looked up again.
+	 * @return the generation
+	 */
+	static int generation() {
+		return GENERATION.get();
+	}
+
+	/**
+	 * Return the converter for literals of the given datatype which are assigned to a property of the given type.  This
+	 * is the most recently registered converter for the datatype whose type can be assigned to the property, or if
+	 * there is no such converter, the most recently registered one for the datatype.
+	 * @param theDatatype the datatype of the literal
+	 * @param theType the type of the property
+	 * @return the converter, or null if there is no converter for the datatype
+	 */
+	public static LiteralConverter<?> forDatatype(final IRI theDatatype, final Class<?> theType) {
+		Map<IRI, Optional<LiteralConverter<?>>> aConverters = BY_DATATYPE.computeIfAbsent(theType, theKey -> Maps.newConcurrentMap());
+
+		return aConverters.computeIfAbsent(theDatatype, theKey -> Optional.ofNullable(findForDatatype(theDatatype, theType)))
+		                  .orElse(null);
+	}
+
+	/**
+	 * Return the converter for values of the given type, the most recently registered one for the type, or failing that,
+	 * the most recently registered one for a supertype.
+	 * @param theType the type of the value
+	 * @return the converter, or null if there is no converter for the type
+	 */
+	public static LiteralConverter<?> forType(final Class<?> theType) {
+		return BY_TYPE.computeIfAbsent(theType, theKey -> Optional.ofNullable(findForType(theType)))
+		              .orElse(null);
+	}
+
+	/**
+	 * Convert the value to a literal using the given converter
+	 * @param theConverter the converter
+	 * @param theValue the value, an instance of the type of the converter
+	 * @param theFactory the factory to use to create the literal
+	 * @return the literal
+	 */
+	@SuppressWarnings("unchecked")
+	static Literal toLiteral(final LiteralConverter<?> theConverter, final Object theValue, final ValueFactory theFactory) {
+		return ((LiteralConverter<Object>) theConverter).toLiteral(theValue, theFactory);
+	}
+
+	private static LiteralConverter<?> findForDatatype(final IRI theDatatype, final Class<?> theType) {
+		Class<?> aType = Primitives.wrap(theType);
+		LiteralConverter<?> aDefault = null;
+
+		for (LiteralConverter<?> aConverter : CONVERTERS) {
+			if (aConverter.getDatatypes().contains(theDatatype)) {
+				if (aType.isAssignableFrom(aConverter.getType())) {
+					return aConverter;
+				}
+				else if (aDefault == null) {
+					aDefault = aConverter;
+				}
+			}
+		}
+
+		return aDefault;
+	}
+
+	private static LiteralConverter<?> findForType(final Class<?> theType) {
+		Class<?> aType = Primitives.wrap(theType);
+
+		for (LiteralConverter<?> aConverter : CONVERTERS) {
+			if (aConverter.getType().equals(aType)) {
+				return aConverter;
+			}
+		}
+
+		for (LiteralConverter<?> aConverter : CONVERTERS) {
+			if (aConverter.getType().isAssignableFrom(aType)) {
+				return aConverter;
+			}
+		}
+
+		return null;
+	}
+
+	private static <T> LiteralConverter<T> converter(final Class<T> theType,
+	                                                 final Function<Literal, T> theFromLiteral,
+	                                                 final BiFunction<T, ValueFactory, Literal> theToLiteral,
+	                                                 final IRI... theDatatypes) {
+		final Set<IRI> aDatatypes = ImmutableSet.copyOf(theDatatypes);
+
+		return new LiteralConverter<T>() {
+			@Override
+			public Class<T> getType() {
+				return theType;
+			}
+
+			@Override
+			public Set<IRI> getDatatypes() {
+				return aDatatypes;
+			}
+
+			@Override
+			public T fromLiteral(final Literal theLiteral) {
+				return theFromLiteral.apply(theLiteral);
+			}
+
+			@Override
+			public Literal toLiteral(final T theValue, final ValueFactory theFactory) {
+				return theToLiteral.apply(theValue, theFactory);
+			}
+		};
+	}
+
+	/**
+	 * Parse the lexical value of an xsd:date or xsd:dateTime.  Values without a timezone are in the default timezone.
+	 */
+	private static ZonedDateTime asZonedDateTime(final String theValue) {
+		String aValue = theValue.trim();
+
+		if (aValue.indexOf('T') != -1) {
+			TemporalAccessor aParsed = DateTimeFormatter.ISO_DATE_TIME.parse(aValue);
+
+			return aParsed.isSupported(ChronoField.OFFSET_SECONDS)
+			       ? ZonedDateTime.from(aParsed)
+			       : LocalDateTime.from(aParsed).atZone(ZoneId.systemDefault());
+		}
+		else {
+			TemporalAccessor aParsed = DateTimeFormatter.ISO_DATE.parse(aValue);
+
+			return LocalDate.from(aParsed).atStartOfDay(aParsed.isSupported(ChronoField.OFFSET_SECONDS)
+			                                            ? ZoneOffset.ofTotalSeconds(aParsed.get(ChronoField.OFFSET_SECONDS))
+			                                            : ZoneId.systemDefault());
+		}
+	}
+
+	private static java.net.URI asURI(final Literal theLiteral) {
+		try {
+			return new java.net.URI(theLiteral.getLabel());
+		}
+		catch (URISyntaxException e) {
+			LOGGER.warn("URI syntax exception converting literal value which is not a valid URI {} ", theLiteral.getLabel());
+			return null;
+		}
+	}
+
+	private static Date asDate(final Literal theLiteral) {
+		if (XMLSchema.TIME.equals(theLiteral.getDatatype())) {
+			// times have historically been stored as milliseconds
+			return new Date(Long.parseLong(theLiteral.getLabel()));
+		}
+
+		try {
+			return Date.from(asZonedDateTime(theLiteral.getLabel()).toInstant());
+		}
+		catch (DateTimeParseException e) {
+			LOGGER.warn("Invalid date value {}", theLiteral.getLabel());
+			return null;
+		}
+	}
+}
@@ -34,13 +34,16 @@ import org.openrdf.model.util.Literals;
 import org.openrdf.model.vocabulary.RDF;
 import org.openrdf.model.vocabulary.XMLSchema;
 import org.openrdf.model.vocabulary.RDFS;
+import org.openrdf.query.Binding;
+import org.openrdf.query.BindingSet;
 
 import java.lang.reflect.Type;
 
 import java.util.Arrays;
 
-import java.util.Date;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.List;
@@ -56,7 +59,7 @@ import java.util.Map;
 import java.util.Locale;
 import java.util.ArrayList;
 
-import java.net.URISyntaxException;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -65,21 +68,18 @@ import com.clarkparsia.empire.ds.DataSource;
 import com.clarkparsia.empire.ds.DataSourceException;
 import com.clarkparsia.empire.ds.QueryException;
 import com.clarkparsia.empire.ds.DataSourceUtil;
+import com.clarkparsia.empire.ds.SupportsNamedGraphs;
 import com.clarkparsia.empire.EmpireOptions;
+import com.clarkparsia.empire.DirtyTracking;
 import com.clarkparsia.empire.EmpireGenerated;
 import com.clarkparsia.empire.SupportsRdfId;
 import com.clarkparsia.empire.Empire;
 import com.clarkparsia.empire.Dialect;
 import com.clarkparsia.empire.annotation.runtime.Proxy;
 
-import com.clarkparsia.empire.impl.serql.SerqlDialect;
+import com.clarkparsia.empire.spi.LiteralConverter;
 
-import static com.clarkparsia.empire.util.BeanReflectUtil.set;
-import static com.clarkparsia.empire.util.BeanReflectUtil.setAccessible;
-import static com.clarkparsia.empire.util.BeanReflectUtil.getAnnotatedFields;
-import static com.clarkparsia.empire.util.BeanReflectUtil.getAnnotatedGetters;
-import static com.clarkparsia.empire.util.BeanReflectUtil.getAnnotatedSetters;
-import static com.clarkparsia.empire.util.BeanReflectUtil.get;
+import com.clarkparsia.empire.impl.serql.SerqlDialect;
 
 import com.clarkparsia.empire.util.BeanReflectUtil;
 import com.clarkparsia.empire.util.EmpireUtil;
@@ -89,16 +89,19 @@ import static com.clarkparsia.empire.util.EmpireUtil.isURI;
 import com.complexible.common.openrdf.util.ResourceBuilder;
 import com.complexible.common.util.PrefixMapping;
 import com.complexible.common.base.Strings2;
-import com.complexible.common.base.Dates;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
 import com.google.inject.ProvisionException;
 import com.google.inject.ConfigurationException;
 
 import javax.persistence.Entity;
-import javax.persistence.Transient;
 
 import javassist.util.proxy.ProxyFactory;
 import javassist.util.proxy.MethodHandler;
@@ -143,8 +146,6 @@ public final class RdfGenerator {
 
 	private static final ContainsResourceValues CONTAINS_RESOURCES = new ContainsResourceValues();
 
-	private static final LanguageFilter LANG_FILTER = new LanguageFilter(getLanguageForLocale());
-
 	/**
 	 * The logger
 	 */
@@ -157,16 +158,24 @@ public final class RdfGenerator {
 
 	/**
 	 * Map to keep a record of what instances are currently being created in order to prevent cycles.  Keys are the
-	 * identifiers of the instances and the values are the instances
+	 * identifiers of the instances and the values are the instances.  The map is scoped to a single hydration, that is,
+	 * the outermost call to {@link #fromRdf(Object, DataSource, Model)} on the current thread, and discarded when it completes,
+	 * so concurrent loads never see each other's partially constructed instances.
+	 */
+	private final static ThreadLocal<Map<Object, Object>> OBJECT_M = new ThreadLocal<>();
+
+	/**
+	 * The describes of the individuals which were fetched by a {@link FetchPlan} ahead of being hydrated, keyed by the
+	 * individual.  Like {@link #OBJECT_M} this is scoped to the outermost load on the current thread.
 	 */
-	public final static Map<Object, Object> OBJECT_M = Maps.newHashMap();
+	private final static ThreadLocal<Map<Resource, Model>> PREFETCHED = new ThreadLocal<>();
 
-	private final static Set<Class<?>> REGISTERED_FOR_NS = Sets.newHashSet();
+	/**
+	 * The default number of individuals described with a single query when a fetch plan is loaded
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 100;
 
-    /**
-     * Cache the AccessibleObjects to avoid repeated inspections
-     */
-    private final static Map<Class<?>,Map<IRI,AccessibleObject>> ACCESSORS_BY_CLASS = Maps.newHashMap();
+	private final static Set<Class<?>> REGISTERED_FOR_NS = Sets.newConcurrentHashSet();
 
 	/**
 	 * Initialize some parameters in the RdfGenerator.  This caches namespace and type mapping information locally
@@ -227,6 +236,563 @@ public final class RdfGenerator {
 	 * @throws DataSourceException thrown if there is an error while retrieving data from the graph
 	 */
 	public static <T> T fromRdf(Class<T> theClass, SupportsRdfId.RdfKey theId, DataSource theSource) throws InvalidRdfException, DataSourceException {
+		return fromRdf(theClass, theId, theSource, getFetchPlan(theClass));
+	}
+
+	/**
+	 * Create an instance of the specified class and instantiate it's data from the given data source using the RDF
+	 * instance specified by the given key.  The associations on the paths of the fetch plan are fetched breadth-first
+	 * ahead of creating the instance, see {@link FetchPlan}.
+	 * @param theClass the class to create
+	 * @param theId the id of the RDF individual containing the data for the new instance
+	 * @param theSource the KB to get the RDF data from
+	 * @param theFetchPlan the association paths to fetch along with the instance
+	 * @param <T> the type of the instance to create
+	 * @return a new instance
+	 * @throws InvalidRdfException thrown if the class does not support RDF JPA operations, or does not provide sufficient access to its fields/data.
+	 * @throws DataSourceException thrown if there is an error while retrieving data from the graph
+	 */
+	public static <T> T fromRdf(Class<T> theClass, SupportsRdfId.RdfKey theId, DataSource theSource, Collection<String> theFetchPlan) throws InvalidRdfException, DataSourceException {
+		return load(theClass, theId, theSource, null, theFetchPlan, false);
+	}
+
+	/**
+	 * Create an instance of the specified class and instantiate it's data from the given describe of the RDF instance
+	 * specified by the given key rather than querying the data source for it.  The data source is still used for the
+	 * instances referenced by the new instance.
+	 * @param theClass the class to create
+	 * @param theId the id of the RDF individual containing the data for the new instance
+	 * @param theGraph the describe of the individual, such as one returned by {@link #describe(Class, SupportsRdfId.RdfKey, DataSource)}
+	 * @param theSource the KB to get the RDF data about referenced individuals from
+	 * @param <T> the type of the instance to create
+	 * @return a new instance
+	 * @throws InvalidRdfException thrown if the class does not support RDF JPA operations, or does not provide sufficient access to its fields/data.
+	 * @throws DataSourceException thrown if there is an error while retrieving data from the graph
+	 */
+	public static <T> T fromRdf(Class<T> theClass, SupportsRdfId.RdfKey theId, Model theGraph, DataSource theSource) throws InvalidRdfException, DataSourceException {
+		return load(theClass, theId, theSource, Models2.newModel(theGraph), getFetchPlan(theClass), false);
+	}
+
+	/**
+	 * Describe the RDF individual with the given key the same way it is described when creating an instance of the
+	 * specified class from it, that is, from the named graph of the class if it has one.
+	 * @param theClass the class of the instance which would be created from the individual
+	 * @param theId the id of the RDF individual
+	 * @param theSource the KB to get the RDF data from
+	 * @return the describe of the individual, empty if there is no data about it
+	 * @throws InvalidRdfException thrown if the class does not support RDF JPA operations
+	 * @throws DataSourceException thrown if there is an error while retrieving data from the graph
+	 */
+	public static Model describe(Class<?> theClass, SupportsRdfId.RdfKey theId, DataSource theSource) throws InvalidRdfException, DataSourceException {
+		return describe(theSource, newInstance(theClass, theId));
+	}
+
+	/**
+	 * Create an instance of the specified class and instantiate it's data from the given data source using the RDF
+	 * instance specified by the given key.  Unlike {@link #fromRdf(Class, SupportsRdfId.RdfKey, DataSource)} this will
+	 * not return an empty instance when there is nothing about the individual in the data source.  Existence, the types
+	 * of the individual, and its data are all taken from the result of a single describe of the individual.
+	 * @param theClass the class to create
+	 * @param theId the id of the RDF individual containing the data for the new instance
+	 * @param theSource the KB to get the RDF data from
+	 * @param <T> the type of the instance to create
+	 * @return the new instance, or an absent value if the individual does not exist in the data source
+	 * @throws InvalidRdfException thrown if the class does not support RDF JPA operations, or does not provide sufficient access to its fields/data.
+	 * @throws DataSourceException thrown if there is an error while retrieving data from the graph
+	 */
+	public static <T> Optional<T> fromRdfIfExists(Class<T> theClass, SupportsRdfId.RdfKey theId, DataSource theSource) throws InvalidRdfException, DataSourceException {
+		return Optional.ofNullable(load(theClass, theId, theSource, null, getFetchPlan(theClass), true));
+	}
+
+	/**
+	 * Create an instance of the specified class populated directly from a row of the results of a select query, without
+	 * describing the individual.  Each column of the row is set on the property of the same name, or whose
+	 * {@link RdfProperty} has that local name, converting the value as it would be when the bean is loaded from RDF.
+	 * When the class is an Empire bean, the value of the id column is its rdf id, otherwise it can be any class with a
+	 * default constructor.  Columns which do not match a property are ignored, as are collection valued properties, a
+	 * row only holds a single value for each column.
+	 * @param theClass the class to create
+	 * @param theRow the result row
+	 * @param theIdVar the column whose value is the rdf id of the instance
+	 * @param theSource the data source the row came from, values which refer to other beans are loaded from it
+	 * @param <T> the type of the instance to create
+	 * @return the new instance
+	 * @throws InvalidRdfException thrown if the instance cannot be created, or a value cannot be converted for its property
+	 */
+	public static <T> T fromRow(Class<T> theClass, BindingSet theRow, String theIdVar, DataSource theSource) throws InvalidRdfException {
+		Value aId = theRow.getValue(theIdVar);
+
+		T aObj;
+
+		if (aId instanceof Resource && AnnotationChecker.isValid(theClass)) {
+			aObj = newInstance(theClass, asPrimaryKey(aId));
+		}
+		else {
+			try {
+				aObj = theClass.newInstance();
+			}
+			catch (InstantiationException e) {
+				throw new InvalidRdfException("Cannot create instance of bean, should have a default constructor.", e);
+			}
+			catch (IllegalAccessException e) {
+				throw new InvalidRdfException("Could not access default constructor for class: " + theClass, e);
+			}
+		}
+
+		ClassMapping aMapping = ClassMapping.of(aObj.getClass());
+		Resource aSubject = aId instanceof Resource ? (Resource) aId : null;
+
+		for (Binding aBinding : theRow) {
+			ClassMapping.SetterMapping aColumn = aMapping.getColumn(aBinding.getName());
+
+			if (aColumn == null || aBinding.getValue() == null) {
+				continue;
+			}
+
+			Object aValue = null;
+
+			try {
+				// the converter for the column is resolved by its setter, and remembered there for the next row
+				aValue = aColumn.toObject(theSource, aSubject, aBinding.getValue());
+
+				aColumn.set(aObj, aValue);
+			}
+			catch (InvocationTargetException e) {
+				throw new InvalidRdfException(e);
+			}
+			catch (IllegalArgumentException e) {
+				LOGGER.warn("Probable type mismatch: {} {}", aValue, aColumn.getAccessor());
+			}
+			catch (RuntimeException e) {
+				// this was probably an error converting from a Value to an Object
+				throw new InvalidRdfException(e);
+			}
+		}
+
+		// populating the bean used its setters, but it has not been changed as far as the database is concerned
+		if (aObj instanceof DirtyTracking) {
+			((DirtyTracking) aObj).clearDirtyProperties();
+		}
+
+		return aObj;
+	}
+
+	/**
+	 * Create instances of the specified class for each of the given keys.  Rather than describing each individual
+	 * separately, the keys are described in batches of the given size, each batch with a single query, and the
+	 * instances are built from the combined results.
+	 * @param theClass the class to create
+	 * @param theIds the ids of the RDF individuals containing the data for the new instances
+	 * @param theSource the KB to get the RDF data from
+	 * @param theBatchSize the maximum number of individuals to describe with a single query
+	 * @param <T> the type of the instances to create
+	 * @return the new instances, in the same order as the keys
+	 * @throws InvalidRdfException thrown if the class does not support RDF JPA operations, or does not provide sufficient access to its fields/data.
+	 * @throws DataSourceException thrown if there is an error while retrieving data from the graph
+	 */
+	public static <T> List<T> fromRdf(Class<T> theClass, List<? extends SupportsRdfId.RdfKey> theIds, DataSource theSource, int theBatchSize) throws InvalidRdfException, DataSourceException {
+		return fromRdf(theClass, theIds, theSource, theBatchSize, getFetchPlan(theClass));
+	}
+
+	/**
+	 * Create instances of the specified class for each of the given keys.  Rather than describing each individual
+	 * separately, the keys are described in batches of the given size, each batch with a single query, and the
+	 * instances are built from the combined results.  The associations on the paths of the fetch plan are fetched
+	 * for each batch as a whole, also with a query per batch for each depth of the plan.
+	 * @param theClass the class to create
+	 * @param theIds the ids of the RDF individuals containing the data for the new instances
+	 * @param theSource the KB to get the RDF data from
+	 * @param theBatchSize the maximum number of individuals to describe with a single query
+	 * @param theFetchPlan the association paths to fetch along with the instances
+	 * @param <T> the type of the instances to create
+	 * @return the new instances, in the same order as the keys
+	 * @throws InvalidRdfException thrown if the class does not support RDF JPA operations, or does not provide sufficient access to its fields/data.
+	 * @throws DataSourceException thrown if there is an error while retrieving data from the graph
+	 */
+	public static <T> List<T> fromRdf(Class<T> theClass, List<? extends SupportsRdfId.RdfKey> theIds, DataSource theSource, int theBatchSize, Collection<String> theFetchPlan) throws InvalidRdfException, DataSourceException {
+		return fromRdf(theClass, theIds, theSource, theBatchSize, theFetchPlan, false, (theKey, theGraph) -> {});
+	}
+
+	/**
+	 * Create instances of the specified class for each of the given keys, described in batches like
+	 * {@link #fromRdf(Class, List, DataSource, int)}.  Unlike that method, there is no instance for the keys of
+	 * individuals that do not exist in the data source.
+	 * @param theClass the class to create
+	 * @param theIds the ids of the RDF individuals containing the data for the new instances
+	 * @param theSource the KB to get the RDF data from
+	 * @param theBatchSize the maximum number of individuals to describe with a single query
+	 * @param <T> the type of the instances to create
+	 * @return the new instances, in the same order as the keys, with null for the keys of individuals which do not exist
+	 * @throws InvalidRdfException thrown if the class does not support RDF JPA operations, or does not provide sufficient access to its fields/data.
+	 * @throws DataSourceException thrown if there is an error while retrieving data from the graph
+	 */
+	public static <T> List<T> fromRdfIfExists(Class<T> theClass, List<? extends SupportsRdfId.RdfKey> theIds, DataSource theSource, int theBatchSize) throws InvalidRdfException, DataSourceException {
+		return fromRdfIfExists(theClass, theIds, theSource, theBatchSize, (theKey, theGraph) -> {});
+	}
+
+	/**
+	 * Create instances of the specified class for each of the given keys like {@link #fromRdfIfExists(Class, List, DataSource, int)},
+	 * passing the describe of each individual which exists to the given consumer, such as a cache of describes.
+	 * @param theClass the class to create
+	 * @param theIds the ids of the RDF individuals containing the data for the new instances
+	 * @param theSource the KB to get the RDF data from
+	 * @param theBatchSize the maximum number of individuals to describe with a single query
+	 * @param theDescribed receives the key and the describe of each individual which exists
+	 * @param <T> the type of the instances to create
+	 * @return the new instances, in the same order as the keys, with null for the keys of individuals which do not exist
+	 * @throws InvalidRdfException thrown if the class does not support RDF JPA operations, or does not provide sufficient access to its fields/data.
+	 * @throws DataSourceException thrown if there is an error while retrieving data from the graph
+	 */
+	public static <T> List<T> fromRdfIfExists(Class<T> theClass, List<? extends SupportsRdfId.RdfKey> theIds, DataSource theSource, int theBatchSize,
+	                                          BiConsumer<SupportsRdfId.RdfKey, Model> theDescribed) throws InvalidRdfException, DataSourceException {
+		return fromRdf(theClass, theIds, theSource, theBatchSize, getFetchPlan(theClass), true, theDescribed);
+	}
+
+	/**
+	 * Create instances of the specified class for each of the given keys, described in batches
+	 * @param theClass the class to create
+	 * @param theIds the ids of the RDF individuals containing the data for the new instances
+	 * @param theSource the KB to get the RDF data from
+	 * @param theBatchSize the maximum number of individuals to describe with a single query
+	 * @param theFetchPlan the association paths to fetch along with the instances
+	 * @param theMustExist true if null should be returned for the individuals there is no data about, false to return
+	 * empty instances
+	 * @param theDescribed receives the key and the describe of each individual there is data about
+	 * @param <T> the type of the instances to create
+	 * @return the new instances, in the same order as the keys
+	 * @throws InvalidRdfException thrown if the class does not support RDF JPA operations, or does not provide sufficient access to its fields/data.
+	 * @throws DataSourceException thrown if there is an error while retrieving data from the graph
+	 */
+	private static <T> List<T> fromRdf(Class<T> theClass, List<? extends SupportsRdfId.RdfKey> theIds, DataSource theSource, int theBatchSize,
+	                                   Collection<String> theFetchPlan, boolean theMustExist,
+	                                   BiConsumer<SupportsRdfId.RdfKey, Model> theDescribed) throws InvalidRdfException, DataSourceException {
+		Preconditions.checkArgument(theBatchSize > 0, "Batch size must be positive");
+
+		List<T> aResults = Lists.newArrayListWithCapacity(theIds.size());
+
+		final boolean isTopLoad = PREFETCHED.get() == null;
+
+		if (isTopLoad) {
+			PREFETCHED.set(Maps.<Resource, Model>newHashMap());
+		}
+
+		try {
+			for (List<? extends SupportsRdfId.RdfKey> aBatch : Iterables.partition(theIds, theBatchSize)) {
+				List<T> aObjs = Lists.newArrayListWithCapacity(aBatch.size());
+
+				// the individuals are almost always in the same named graph, but group them to be safe
+				ListMultimap<java.net.URI, Resource> aResourcesByGraph = ArrayListMultimap.create();
+
+				for (SupportsRdfId.RdfKey aKey : aBatch) {
+					T aObj = newInstance(theClass, aKey);
+
+					aObjs.add(aObj);
+					aResourcesByGraph.put(theSource instanceof SupportsNamedGraphs ? EmpireUtil.getNamedGraph(aObj) : null,
+					                      EmpireUtil.asResource(asSupportsRdfId(aObj)));
+				}
+
+				Model aCombined = Models2.newModel();
+
+				for (java.net.URI aGraph : aResourcesByGraph.keySet()) {
+					aCombined.addAll(DataSourceUtil.describe(theSource, aResourcesByGraph.get(aGraph), aGraph));
+				}
+
+				List<Model> aGraphs = Lists.newArrayListWithCapacity(aObjs.size());
+				Map<Resource, Class<?>> aRoots = Maps.newLinkedHashMap();
+
+				for (int i = 0; i < aObjs.size(); i++) {
+					Resource aRes = EmpireUtil.asResource(asSupportsRdfId(aObjs.get(i)));
+
+					Model aGraph = DataSourceUtil.closure(aCombined, aRes);
+
+					if (theMustExist && aGraph.isEmpty()) {
+						aObjs.set(i, null);
+						aGraphs.add(aGraph);
+
+						continue;
+					}
+
+					aObjs.set(i, refineInstance(theClass, aBatch.get(i), aObjs.get(i), aGraph, theSource));
+					aGraphs.add(aGraph);
+
+					if (!aGraph.isEmpty()) {
+						theDescribed.accept(aBatch.get(i), aGraph);
+					}
+
+					// the batch may well reference itself, so the roots are just as useful to the rest of the load
+					PREFETCHED.get().put(aRes, aGraph);
+					aRoots.put(aRes, aObjs.get(i).getClass());
+				}
+
+				prefetch(aRoots, theFetchPlan, theSource, theBatchSize);
+
+				for (int i = 0; i < aObjs.size(); i++) {
+					aResults.add(aObjs.get(i) == null ? null : fromRdf(aObjs.get(i), theSource, Models2.newModel(aGraphs.get(i))));
+				}
+
+				if (isTopLoad) {
+					PREFETCHED.get().clear();
+				}
+			}
+		}
+		finally {
+			if (isTopLoad) {
+				PREFETCHED.remove();
+			}
+		}
+
+		return aResults;
+	}
+
+	/**
+	 * Create an instance of the specified class from the individual with the given key, fetching the associations of
+	 * the fetch plan with it when this is the outermost load on the current thread.
+	 * @param theClass the class to create
+	 * @param theId the id of the RDF individual containing the data for the new instance
+	 * @param theSource the KB to get the RDF data from
+	 * @param theGraph the describe of the individual, or null to describe it from the data source
+	 * @param theFetchPlan the association paths to fetch along with the instance
+	 * @param theMustExist true if null should be returned when there is no data about the individual, false to return
+	 * an empty instance
+	 * @param <T> the type of the instance to create
+	 * @return the new instance
+	 * @throws InvalidRdfException thrown if the class does not support RDF JPA operations, or does not provide sufficient access to its fields/data.
+	 * @throws DataSourceException thrown if there is an error while retrieving data from the graph
+	 */
+	private static <T> T load(Class<T> theClass, SupportsRdfId.RdfKey theId, DataSource theSource, Model theGraph, Collection<String> theFetchPlan, boolean theMustExist) throws InvalidRdfException, DataSourceException {
+		Map<Object, Object> aInProgress = OBJECT_M.get();
+
+		if (aInProgress != null && theClass.isInstance(aInProgress.get(theId))) {
+			// we're already building this one further up the stack, no need to go back to the database for it
+			return theClass.cast(aInProgress.get(theId));
+		}
+
+		T aObj = newInstance(theClass, theId);
+
+		Model aGraph = theGraph != null ? theGraph : describe(theSource, aObj);
+
+		if (theMustExist && aGraph.isEmpty()) {
+			return null;
+		}
+
+		aObj = refineInstance(theClass, theId, aObj, aGraph, theSource);
+
+		// fetch plans only apply to the object being loaded, not to the objects it references
+		final boolean isTopLoad = aInProgress == null && PREFETCHED.get() == null && !theFetchPlan.isEmpty();
+
+		if (isTopLoad) {
+			PREFETCHED.set(Maps.<Resource, Model>newHashMap());
+		}
+
+		try {
+			if (isTopLoad) {
+				Resource aRes = EmpireUtil.asResource(asSupportsRdfId(aObj));
+
+				PREFETCHED.get().put(aRes, Models2.newModel(aGraph));
+
+				prefetch(Collections.<Resource, Class<?>>singletonMap(aRes, aObj.getClass()), theFetchPlan, theSource, DEFAULT_BATCH_SIZE);
+			}
+
+			return fromRdf(aObj, theSource, aGraph);
+		}
+		finally {
+			if (isTopLoad) {
+				PREFETCHED.remove();
+			}
+		}
+	}
+
+	/**
+	 * Return the paths of the {@link FetchPlan} of the class
+	 * @param theClass the class
+	 * @return the fetch plan, or an empty collection if the class does not specify one
+	 */
+	private static Collection<String> getFetchPlan(Class<?> theClass) {
+		FetchPlan aFetchPlan = BeanReflectUtil.getAnnotation(theClass, FetchPlan.class);
+
+		return aFetchPlan == null ? Collections.<String>emptySet() : Arrays.asList(aFetchPlan.value());
+	}
+
+	/**
+	 * Describe the individual, using the results from the current fetch plan if the individual has already been fetched.
+	 * @param theSource the source to describe the individual from
+	 * @param theObj the object whose individual should be described
+	 * @return the describe of the individual
+	 * @throws InvalidRdfException if the object does not support rdf ids
+	 * @throws DataSourceException if there is an error while describing the individual
+	 */
+	private static Model describe(DataSource theSource, Object theObj) throws InvalidRdfException, DataSourceException {
+		Map<Resource, Model> aPrefetched = PREFETCHED.get();
+
+		if (aPrefetched != null) {
+			Model aGraph = aPrefetched.get(EmpireUtil.asResource(asSupportsRdfId(theObj)));
+
+			if (aGraph != null) {
+				// copy it, the same individual can be referenced, and hydrated, more than once
+				return Models2.newModel(aGraph);
+			}
+		}
+
+		return DataSourceUtil.describe(theSource, theObj);
+	}
+
+	/**
+	 * Fetch the associations of the fetch plan breadth-first from the given roots.  The associations at each depth of
+	 * the plan are described with a single query per batch of referenced individuals, and the results are recorded in
+	 * {@link #PREFETCHED} for the hydration of the roots to use instead of describing them one at a time.
+	 * @param theRoots the individuals the plan starts from, and the classes of their instances
+	 * @param theFetchPlan the association paths to fetch
+	 * @param theSource the data source
+	 * @param theBatchSize the maximum number of individuals to describe with a single query
+	 * @throws InvalidRdfException if there is an error creating instances of the referenced classes
+	 * @throws DataSourceException if there is an error while describing the referenced individuals
+	 */
+	private static void prefetch(Map<Resource, Class<?>> theRoots, Collection<String> theFetchPlan, DataSource theSource, int theBatchSize) throws InvalidRdfException, DataSourceException {
+		if (theFetchPlan.isEmpty()) {
+			return;
+		}
+
+		final Map<Resource, Model> aPrefetched = PREFETCHED.get();
+
+		FetchNode aPlan = FetchNode.parse(theFetchPlan);
+
+		List<FetchNode.Step> aLevel = Lists.newArrayList();
+		for (Map.Entry<Resource, Class<?>> aRoot : theRoots.entrySet()) {
+			aLevel.add(new FetchNode.Step(aRoot.getKey(), aRoot.getValue(), aPlan));
+		}
+
+		while (!aLevel.isEmpty()) {
+			List<FetchNode.Step> aNextLevel = Lists.newArrayList();
+			ListMultimap<java.net.URI, Resource> aToFetch = ArrayListMultimap.create();
+			Set<Resource> aQueued = Sets.newHashSet();
+
+			for (FetchNode.Step aStep : aLevel) {
+				Model aGraph = aPrefetched.get(aStep.mResource);
+
+				if (aGraph == null || aGraph.isEmpty()) {
+					continue;
+				}
+
+				// this is the class that the instance is going to have when it's actually hydrated
+				Class<?> aClass = determineClass(aStep.mClass, aGraph.filter(aStep.mResource, RDF.TYPE, null).objects());
+
+				addNamespaces(aClass);
+
+				ClassMapping aMapping = ClassMapping.of(aClass);
+
+				for (Map.Entry<String, FetchNode> aChild : aStep.mNode.mChildren.entrySet()) {
+					ClassMapping.SetterMapping aSetter = aMapping.getSetter(aChild.getKey());
+
+					if (aSetter == null) {
+						LOGGER.warn("Fetch plan property '{}' is not a property of {}", aChild.getKey(), aStep.mClass);
+						continue;
+					}
+
+					AccessibleObject aAccess = aSetter.getAccessor();
+
+					if (BeanReflectUtil.isFetchTypeLazy(aAccess)) {
+						LOGGER.debug("Fetch plan property '{}' of {} is lazily loaded, it will not be fetched with the plan", aChild.getKey(), aStep.mClass);
+						continue;
+					}
+
+					Class<?> aTarget = refineClass(aAccess, BeanReflectUtil.classFrom(aAccess), null, null);
+
+					if (BeanReflectUtil.isPrimitive(aTarget) || aTarget.isAssignableFrom(java.net.URI.class)) {
+						continue;
+					}
+
+					for (Value aValue : aGraph.filter(aStep.mResource, aSetter.getProperty(), null).objects()) {
+						// bnodes are not stable across queries, so they can't be fetched this way
+						if (!(aValue instanceof IRI)) {
+							continue;
+						}
+
+						if (!aPrefetched.containsKey(aValue) && aQueued.add((Resource) aValue)) {
+							Object aInstance = newInstance(aTarget, asPrimaryKey(aValue));
+
+							aToFetch.put(theSource instanceof SupportsNamedGraphs ? EmpireUtil.getNamedGraph(aInstance) : null, (Resource) aValue);
+						}
+
+						aNextLevel.add(new FetchNode.Step((Resource) aValue, aTarget, aChild.getValue()));
+					}
+				}
+			}
+
+			for (java.net.URI aNamedGraph : aToFetch.keySet()) {
+				for (List<Resource> aBatch : Iterables.partition(aToFetch.get(aNamedGraph), theBatchSize)) {
+					Model aGraph = DataSourceUtil.describe(theSource, aBatch, aNamedGraph);
+
+					for (Resource aRes : aBatch) {
+						// record the individual even if there's nothing about it so we don't go looking for it again
+						aPrefetched.put(aRes, DataSourceUtil.closure(aGraph, aRes));
+					}
+				}
+			}
+
+			aLevel = aNextLevel;
+		}
+	}
+
+	/**
+	 * A node in a parsed fetch plan; the children are the associations to fetch from the node, keyed by the name of
+	 * the bean property.
+	 */
+	private static final class FetchNode {
+		private final Map<String, FetchNode> mChildren = Maps.newLinkedHashMap();
+
+		/**
+		 * Parse the paths of the fetch plan into a tree, so that common prefixes of the paths are only fetched once
+		 * @param thePaths the paths
+		 * @return the root of the plan
+		 */
+		private static FetchNode parse(Collection<String> thePaths) {
+			FetchNode aRoot = new FetchNode();
+
+			for (String aPath : thePaths) {
+				FetchNode aNode = aRoot;
+
+				for (String aName : Splitter.on('.').trimResults().omitEmptyStrings().split(aPath)) {
+					FetchNode aChild = aNode.mChildren.get(aName);
+
+					if (aChild == null) {
+						aChild = new FetchNode();
+						aNode.mChildren.put(aName, aChild);
+					}
+
+					aNode = aChild;
+				}
+			}
+
+			return aRoot;
+		}
+
+		/**
+		 * An individual reached by the plan, the class of the property it was reached from, and the remainder of the plan
+		 */
+		private static final class Step {
+			private final Resource mResource;
+			private final Class<?> mClass;
+			private final FetchNode mNode;
+
+			private Step(final Resource theResource, final Class<?> theClass, final FetchNode theNode) {
+				mResource = theResource;
+				mClass = theClass;
+				mNode = theNode;
+			}
+		}
+	}
+
+	/**
+	 * Create the initial instance of the bean that will be populated for the individual.  This is the instance whose
+	 * named graph (if any) is used to describe the individual, so this will already be an instance of the Empire
+	 * generated type for the class when one is required.
+	 * @param theClass the requested class
+	 * @param theId the id of the individual
+	 * @param <T> the type of the instance
+	 * @return the new instance, with its rdf id set
+	 * @throws InvalidRdfException if the instance cannot be created
+	 */
+	private static <T> T newInstance(Class<T> theClass, SupportsRdfId.RdfKey theId) throws InvalidRdfException {
 		T aObj;
 
 		long start = System.currentTimeMillis();
@@ -287,44 +853,84 @@ public final class RdfGenerator {
 			LOGGER.debug("Has rdfId {} ms", (System.currentTimeMillis()-start ));
 		}
 
-		Class<T> aNewClass = determineClass(theClass, aObj, theSource);
-		
-		if (!aNewClass.equals(aObj.getClass())) {
-			try {
-	            aObj = aNewClass.newInstance();
-            }
-            catch (InstantiationException e) {
-            	throw new InvalidRdfException("Cannot create instance of bean, should have a default constructor.", e);
-            }
-            catch (IllegalAccessException e) {
-            	throw new InvalidRdfException("Could not access default constructor for class: " + theClass, e);
-            }
-			catch (Exception e) {
-				throw new InvalidRdfException("Cannot create an instance of bean", e);
-			}
+		// without any type information we can still tell whether or not the class needs to be generated
+		return asClass(determineClass(theClass, Collections.<Value>emptySet()), aObj, theId);
+	}
+
+	/**
+	 * Given the describe of the individual, refine the type of the instance based on the rdf:type's of the individual.
+	 * In the rare case where the refined type of the instance lives in a different named graph than the original,
+	 * the graph is described again from the correct named graph.
+	 * @param theClass the requested class
+	 * @param theId the id of the individual
+	 * @param theObj the instance used to describe the individual
+	 * @param theGraph the describe of the individual, will be updated if the refined instance lives in another named graph
+	 * @param theSource the data source
+	 * @param <T> the type of the instance
+	 * @return the instance to populate
+	 * @throws InvalidRdfException if the instance cannot be created
+	 * @throws DataSourceException if there is an error re-describing the individual
+	 */
+	private static <T> T refineInstance(Class<T> theClass, SupportsRdfId.RdfKey theId, T theObj, Model theGraph, DataSource theSource) throws InvalidRdfException, DataSourceException {
+		final Resource aRes = EmpireUtil.asResource(asSupportsRdfId(theObj));
 
-			asSupportsRdfId(aObj).setRdfId(theId);
+		T aObj = asClass(determineClass(theClass, theGraph.filter(aRes, RDF.TYPE, null).objects()), theObj, theId);
+
+		if (aObj != theObj
+		    && theSource instanceof SupportsNamedGraphs
+		    && !Objects.equals(EmpireUtil.getNamedGraph(aObj), EmpireUtil.getNamedGraph(theObj))) {
+			theGraph.clear();
+			theGraph.addAll(DataSourceUtil.describe(theSource, aObj));
+		}
+
+		return aObj;
+	}
+
+	/**
+	 * Return the instance as an instance of the given class, creating a new instance if its not already of that type.
+	 * @param theClass the class the instance should be
+	 * @param theObj the current instance
+	 * @param theId the id of the instance
+	 * @param <T> the type
+	 * @return theObj, or a new instance of theClass
+	 * @throws InvalidRdfException if a new instance cannot be created
+	 */
+	private static <T> T asClass(Class<T> theClass, T theObj, SupportsRdfId.RdfKey theId) throws InvalidRdfException {
+		if (theClass.equals(theObj.getClass())) {
+			return theObj;
 		}
 
-		return fromRdf(aObj, theSource);
+		T aObj;
+
+		try {
+			aObj = theClass.newInstance();
+		}
+		catch (InstantiationException e) {
+			throw new InvalidRdfException("Cannot create instance of bean, should have a default constructor.", e);
+		}
+		catch (IllegalAccessException e) {
+			throw new InvalidRdfException("Could not access default constructor for class: " + theClass, e);
+		}
+		catch (Exception e) {
+			throw new InvalidRdfException("Cannot create an instance of bean", e);
+		}
+
+		asSupportsRdfId(aObj).setRdfId(theId);
+
+		return aObj;
 	}
 	
 	@SuppressWarnings("unchecked")
-    private static <T> Class<T> determineClass(Class<T> theOrigClass, T theObj, DataSource theSource) throws InvalidRdfException, DataSourceException {
+    private static <T> Class<T> determineClass(Class<T> theOrigClass, Collection<Value> theTypes) throws InvalidRdfException {
 		Class aResult = theOrigClass;
 
-//		ExtGraph aGraph = new ExtGraph(DataSourceUtil.describe(theSource, theObj));
-		final Collection<Value> aTypes = DataSourceUtil.getValues(theSource, EmpireUtil.asResource(EmpireUtil.asSupportsRdfId(theObj)), RDF.TYPE);
-		
 		// right now, our best match is the original class (we will refine later)
-		
-//		final Resource aTmpRes = EmpireUtil.asResource(aTmpSupportsRdfId);
-				
+
 		// iterate for all rdf:type triples in the data
 		// There may be multiple rdf:type triples, which can then translate onto multiple candidate Java classes
 		// some of the Java classes may belong to the same class hierarchy, whereas others can have no common
 		// super class (other than java.lang.Object)
-		for (Value aValue : aTypes) {
+		for (Value aValue : theTypes) {
 			if (!(aValue instanceof IRI)) {
 				// there is no URI in the object position of rdf:type
 				// ignore that data
@@ -365,31 +971,45 @@ public final class RdfGenerator {
 	 * Populate the fields of the current instance from the RDF indiviual with the given URI
 	 * @param theObj the Java object to populate
 	 * @param theSource the KB to get the RDF data from
+	 * @param theGraph the describe of the individual
 	 * @param <T> the type of the class being populated
 	 * @return theObj, populated from the specified DataSource
 	 * @throws InvalidRdfException thrown if the object does not support the RDF JPA API.
 	 * @throws DataSourceException thrown if there is an error retrieving data from the database
 	 */
 	@SuppressWarnings("unchecked")
-	private synchronized static <T> T fromRdf(T theObj, DataSource theSource) throws InvalidRdfException, DataSourceException {
+	private static <T> T fromRdf(T theObj, DataSource theSource, Model theGraph) throws InvalidRdfException, DataSourceException {
 		final SupportsRdfId aTmpSupportsRdfId = asSupportsRdfId(theObj);
 		final SupportsRdfId.RdfKey theKeyObj = aTmpSupportsRdfId.getRdfId();
 
 		if (LOGGER.isDebugEnabled()) {
 			LOGGER.debug("Converting {} to RDF.", theObj);
 		}
-		
-		if (OBJECT_M.containsKey(theKeyObj)) {
+
+		Map<Object, Object> aInProgress = OBJECT_M.get();
+		final boolean isTopHydration = aInProgress == null;
+		final boolean isOwnPrefetch = isTopHydration && PREFETCHED.get() == null;
+
+		if (isTopHydration) {
+			aInProgress = Maps.newHashMap();
+			OBJECT_M.set(aInProgress);
+		}
+
+		if (isOwnPrefetch) {
+			// holds the describes of the referenced bnodes for the rest of the hydration
+			PREFETCHED.set(Maps.<Resource, Model>newHashMap());
+		}
+		else if (aInProgress.containsKey(theKeyObj)) {
 			// TODO: this is probably a safe cast, i dont see how something w/ the same URI, which should be the same
 			// object would change types
-			return (T) OBJECT_M.get(theKeyObj);
+			return (T) aInProgress.get(theKeyObj);
 		}
 
 		try {
 
-			OBJECT_M.put(theKeyObj, theObj);
+			aInProgress.put(theKeyObj, theObj);
 
-			Model aGraph = DataSourceUtil.describe(theSource, theObj);
+			Model aGraph = theGraph;
 
 			if (aGraph.size() == 0) {
 				return theObj;
@@ -398,6 +1018,20 @@ public final class RdfGenerator {
 			final Resource aTmpRes = EmpireUtil.asResource(aTmpSupportsRdfId);
 			Set<IRI> aProps = Sets.newHashSet();
 
+			// the bnodes referenced by the individual were described along with it, so they are hydrated from that
+			// rather than being described on their own, which is not reliable for bnodes anyway
+			if (PREFETCHED.get() != null) {
+				for (Value aValue : aGraph.filter(aTmpRes, null, null).objects()) {
+					if (aValue instanceof BNode && !PREFETCHED.get().containsKey(aValue)) {
+						Model aClosure = DataSourceUtil.closure(aGraph, (BNode) aValue);
+
+						if (!aClosure.isEmpty()) {
+							PREFETCHED.get().put((BNode) aValue, aClosure);
+						}
+					}
+				}
+			}
+
 			aGraph.filter(aTmpRes, null, null).stream()
 			      .map(Statement::getPredicate).forEach(aProps::add);
 
@@ -407,22 +1041,19 @@ public final class RdfGenerator {
 			
 			aEmpireGenerated.setAllTriples(aGraph);		
 			
-			OBJECT_M.put(theKeyObj, theObj);
+			aInProgress.put(theKeyObj, theObj);
 			final Resource aRes = EmpireUtil.asResource(aSupportsRdfId);
 
 			addNamespaces(theObj.getClass());
 
-			Map<IRI, AccessibleObject> theCachedMap = ACCESSORS_BY_CLASS.get(theObj.getClass());
+			ClassMapping aMapping = ClassMapping.of(theObj.getClass());
 
-            if (theCachedMap == null) {
-                theCachedMap = cacheAccessibles(theObj.getClass(), aRes);
-            }
 			Set<IRI> aUsedProps = Sets.newHashSet();
 
 			for (IRI aProp : aProps) {
-				AccessibleObject aAccess = theCachedMap.get(aProp);
+				ClassMapping.SetterMapping aSetter = aMapping.getSetter(aProp);
 
-				if (aAccess == null && RDF.TYPE.equals(aProp)) {
+				if (aSetter == null && RDF.TYPE.equals(aProp)) {
 					// TODO: the following block should be entirely removed (leaving continue only)
 					// right now, leaving it until the code review: code review before removing the following block
 					
@@ -452,24 +1083,19 @@ public final class RdfGenerator {
 
 					continue;
 				}
-				else if (aAccess == null) {
+				else if (aSetter == null) {
 					// this must be data that is not covered by the bean (perhaps accessible by a different view/bean for a differnent type of an individual)					
 					continue;
 				}
 
 				aUsedProps.add(aProp);
-				
-				ToObjectFunction aFunc = new ToObjectFunction(theSource, aRes, aAccess, aProp);
 
-				Object aValue = aFunc.apply(aGraph.filter(aRes, aProp, null).stream().map(Statement::getObject).collect(Collectors.toSet()));
-
-				boolean aOldAccess = aAccess.isAccessible();
+				Object aValue = aSetter.toObject(theSource, aRes, aProp, aGraph.filter(aRes, aProp, null).stream().map(Statement::getObject).collect(Collectors.toSet()));
 
 				try {
-					setAccessible(aAccess, true);					
-					set(aAccess, theObj, aValue);				
-				}				
-				catch (InvocationTargetException | IllegalAccessException e) {
+					aSetter.set(theObj, aValue);
+				}
+				catch (InvocationTargetException e) {
 					// oh crap
 					throw new InvalidRdfException(e);
 				}
@@ -479,7 +1105,7 @@ public final class RdfGenerator {
 					// in that case might work) the set call will fail.
 					// TODO: shouldnt this be an error?
 
-					LOGGER.warn("Probable type mismatch: {} {}", aValue, aAccess);
+					LOGGER.warn("Probable type mismatch: {} {}", aValue, aSetter.getAccessor());
 				}
 				catch (RuntimeException e) {
 					// TODO: i dont like keying on a RuntimeException here to get the error condition, but since the
@@ -489,9 +1115,6 @@ public final class RdfGenerator {
 					// this was probably an error converting from a Value to an Object
 					throw new InvalidRdfException(e);
 				}
-				finally {
-					setAccessible(aAccess, aOldAccess);
-				}
 			}
 
 			Model aInstanceTriples = Models2.newModel();
@@ -503,46 +1126,25 @@ public final class RdfGenerator {
 			
 			aEmpireGenerated.setInstanceTriples(aInstanceTriples);
 
+			// populating the bean used its setters, but it has not been changed as far as the database is concerned
+			if (theObj instanceof DirtyTracking) {
+				((DirtyTracking) theObj).clearDirtyProperties();
+			}
+
 			return theObj;
 		}
 		finally {
-			OBJECT_M.remove(theKeyObj);
-		}
-	}
-
-    public static Map<IRI, AccessibleObject> cacheAccessibles( Class theClass, final Resource aRes ) {
-        final Map<IRI, AccessibleObject> aAccessMap = Maps.newHashMap();
+			aInProgress.remove(theKeyObj);
 
-        Collection<Field> aFields = getAnnotatedFields( theClass );
-        Collection<Method> aMethods = getAnnotatedSetters( theClass, true );
-
-	    aFields.forEach(theField -> {
-                if (theField.getAnnotation(RdfProperty.class) != null) {
-                    IRI theURI = FACTORY.createIRI(PrefixMapping.GLOBAL.uri(theField.getAnnotation(RdfProperty.class).value()));
-                    aAccessMap.put( theURI, theField );
-                }
-                else {
-                    String aBase = "urn:empire:clark-parsia:";
-                    if (aRes instanceof IRI) {
-                        aBase = ((IRI)aRes).getNamespace();
-                    }
-
-                    aAccessMap.put(FACTORY.createIRI(aBase + theField.getName()),
-                                   theField);
-                }
-            });
-
-        aMethods.forEach(theMethod -> {
-                RdfProperty aAnnotation = BeanReflectUtil.getAnnotation(theMethod, RdfProperty.class);
-                if (aAnnotation != null) {
-                    IRI theURI = FACTORY.createIRI( PrefixMapping.GLOBAL.uri( aAnnotation.value() ) );
-                    aAccessMap.put( theURI, theMethod );
-                }
-            });
+			if (isTopHydration) {
+				OBJECT_M.remove();
+			}
 
-        ACCESSORS_BY_CLASS.put( theClass, aAccessMap );
-        return aAccessMap;
-    }
+			if (isOwnPrefetch) {
+				PREFETCHED.remove();
+			}
+		}
+	}
 
 	/**
 	 * Return the RdfClass annotation on the object.
@@ -665,24 +1267,24 @@ public final class RdfGenerator {
 			return;
 		}
 
-		REGISTERED_FOR_NS.add(theObj);
-
 		Namespaces aNS = BeanReflectUtil.getAnnotation(theObj, Namespaces.class);
 
-		if (aNS == null) {
-			return;
-		}
-
-		int aIndex = 0;
-		while (aIndex+1 < aNS.value().length) {
-			String aPrefix = aNS.value()[aIndex];
-			String aURI = aNS.value()[aIndex+1];
+		if (aNS != null) {
+			int aIndex = 0;
+			while (aIndex+1 < aNS.value().length) {
+				String aPrefix = aNS.value()[aIndex];
+				String aURI = aNS.value()[aIndex+1];
 
-			// TODO: maybe have a local version of this, this will add a global namespace, and could potentially
-			// overwrite global things that use the same prefix but different uris, which would be bad
-			PrefixMapping.GLOBAL.addMapping(aPrefix, aURI);
-			aIndex += 2;
+				// TODO: maybe have a local version of this, this will add a global namespace, and could potentially
+				// overwrite global things that use the same prefix but different uris, which would be bad
+				PrefixMapping.GLOBAL.addMapping(aPrefix, aURI);
+				aIndex += 2;
+			}
 		}
+
+		// the class is only marked once its prefixes are in place, so a concurrent hydration of the same class never
+		// sees it marked before they can be expanded; at worst they're added twice, which is harmless
+		REGISTERED_FOR_NS.add(theObj);
 	}
 
 	/**
@@ -692,30 +1294,22 @@ public final class RdfGenerator {
 	 * @throws InvalidRdfException thrown if the object cannot be transformed into RDF.
 	 */
 	public static Model asRdf(final Object theObj) throws InvalidRdfException {
+		return asRdf(theObj, theProperty -> true);
+	}
+
+	/**
+	 * Return the RDF representation of some of the properties of the object, and its type
+	 * @param theObj the object
+	 * @param theProperties the properties to include
+	 * @return the object represented as RDF triples
+	 * @throws InvalidRdfException thrown if the object cannot be transformed into RDF.
+	 */
+	public static Model asRdf(final Object theObj, final Predicate<ClassMapping.PropertyMapping> theProperties) throws InvalidRdfException {
 		if (theObj == null) {
 			return null;
 		}
 
-		Object aObj = theObj;
-
-		if (aObj instanceof ProxyHandler) {
-			aObj = ((ProxyHandler)aObj).mProxy.value();
-		}
-		else {
-			try {
-				if (aObj.getClass().getDeclaredField("handler") != null) {
-					Field aProxy =  aObj.getClass().getDeclaredField("handler");
-					aObj = ((ProxyHandler)BeanReflectUtil.safeGet(aProxy, aObj)).mProxy.value();
-				}
-			}
-			catch (InvocationTargetException e) {
-				// this is probably an error, we know its a proxy object, but can't get the proxied object
-				throw new InvalidRdfException("Could not access proxy object", e);
-			}
-			catch (NoSuchFieldException e) {
-				// this is probably ok.
-			}
-		}
+		Object aObj = unwrap(theObj);
 
 		RdfsClass aClass = asValidRdfClass(aObj);
 
@@ -725,58 +1319,44 @@ public final class RdfGenerator {
 
 		ModelBuilder aBuilder = new ModelBuilder();
 
-		Collection<AccessibleObject> aAccessors = Sets.newHashSet();
-		aAccessors.addAll(getAnnotatedFields(aObj.getClass()));
-		aAccessors.addAll(getAnnotatedGetters(aObj.getClass(), true));
+		ClassMapping aMapping = ClassMapping.of(aObj.getClass());
 
 		try {
 			ResourceBuilder aRes = aBuilder.instance(aBuilder.getValueFactory().createIRI(PrefixMapping.GLOBAL.uri(aClass.value())),
 													 aSubj);
 
-			for (AccessibleObject aAccess : aAccessors) {
-				if (LOGGER.isDebugEnabled()) {
-					LOGGER.debug("Getting rdf for : {}", aAccess);
-				}
-
-				AsValueFunction aFunc = new AsValueFunction(aAccess);
-
-				if (aAccess.isAnnotationPresent(Transient.class)
-					|| (aAccess instanceof Field
-						&& Modifier.isTransient( ((Field)aAccess).getModifiers() ))) {
-
-					// transient fields or accessors with the Transient annotation do not get converted.
+			// transient fields or accessors with the Transient annotation are not part of the mapping, they do not get converted.
+			for (ClassMapping.PropertyMapping aPropertyMapping : aMapping.getProperties()) {
+				if (!theProperties.test(aPropertyMapping)) {
 					continue;
 				}
 
-				RdfProperty aPropertyAnnotation = BeanReflectUtil.getAnnotation(aAccess, RdfProperty.class);
-				String aBase = "urn:empire:clark-parsia:";
-				if (aRes instanceof IRI) {
-					aBase = ((IRI)aRes).getNamespace();
-				}
-
-				IRI aProperty = aPropertyAnnotation != null
-								? aBuilder.getValueFactory().createIRI(PrefixMapping.GLOBAL.uri(aPropertyAnnotation.value()))
-								: (aAccess instanceof Field ? aBuilder.getValueFactory().createIRI(aBase + ((Field)aAccess).getName()) : null);
+				AccessibleObject aAccess = aPropertyMapping.getAccessor();
 
-				boolean aOldAccess = aAccess.isAccessible();
-				setAccessible(aAccess, true);
+				if (LOGGER.isDebugEnabled()) {
+					LOGGER.debug("Getting rdf for : {}", aAccess);
+				}
 
-				Object aValue = get(aAccess, aObj);
+				IRI aProperty = aPropertyMapping.getProperty();
 
-				setAccessible(aAccess, aOldAccess);
+				Object aValue = aPropertyMapping.get(aObj);
 
-				if (aValue == null || aValue.toString().equals("")) {
+				if (isUnloadedProxy(aValue)) {
+					// all that's needed is the id of the proxied object, which the proxy knows without loading it
+					aRes.addProperty(aProperty, EmpireUtil.asResource(EmpireUtil.asSupportsRdfId(proxyOf(aValue).getKey())));
+				}
+				else if (aValue == null || aValue.toString().equals("")) {
 					continue;
 				}
 				else if (Collection.class.isAssignableFrom(aValue.getClass())) {
 					@SuppressWarnings("unchecked")
-					List<Value> aValueList = asList(aAccess, (Collection<?>) Collection.class.cast(aValue));
+					List<Value> aValueList = asList(aPropertyMapping.getAsValueFunction(), (Collection<?>) Collection.class.cast(aValue));
 
-					if (aValueList.isEmpty() || aPropertyAnnotation == null) {
+					if (aValueList.isEmpty() || aPropertyMapping.getAnnotation() == null) {
 						continue;
 					}
 
-					if (aPropertyAnnotation.isList()) {
+					if (aPropertyMapping.isList()) {
 						aRes.addProperty(aProperty, aValueList);
 					}
 					else {
@@ -786,11 +1366,11 @@ public final class RdfGenerator {
 					}
 				}
 				else {
-					aRes.addProperty(aProperty, aFunc.apply(aValue));
+					aRes.addProperty(aProperty, aPropertyMapping.getAsValueFunction().apply(aValue));
 				}
 			}
 		}
-		catch (IllegalAccessException | RuntimeException e) {
+		catch (RuntimeException e) {
 			throw new InvalidRdfException(e);
 		}
 		catch (InvocationTargetException e) {
@@ -802,14 +1382,14 @@ public final class RdfGenerator {
 
 	/**
 	 * Transform a list of Java Objects into the corresponding RDF values
-	 * @param theAccess the accessor for the value
+	 * @param theFunction the function converting the values of the accessor
 	 * @param theCollection the collection to transform
 	 * @return the collection as a list of RDF values
 	 * @throws InvalidRdfException thrown if any of the values cannot be transformed
 	 */
-	private static List<Value> asList(AccessibleObject theAccess, Collection<?> theCollection) throws InvalidRdfException {
+	private static List<Value> asList(AsValueFunction theFunction, Collection<?> theCollection) throws InvalidRdfException {
 		try {
-			return theCollection.stream().map(new AsValueFunction(theAccess)).collect(Collectors.toList());
+			return theCollection.stream().map(theFunction).collect(Collectors.toList());
 		}
 		catch (RuntimeException e) {
 			throw new InvalidRdfException(e.getMessage());
@@ -825,6 +1405,49 @@ public final class RdfGenerator {
 		return Strings2.hex(Strings2.md5(theObj.toString()));
 	}
 
+	/**
+	 * Return whether or not the object is a lazy loading proxy created by {@link #getProxyOrDbObject}, or the handler of one
+	 * @param theObj the object
+	 * @return true if the object is a proxy
+	 */
+	private static boolean isProxy(final Object theObj) {
+		return theObj instanceof ProxyHandler
+		       || (theObj instanceof ProxyObject && ((ProxyObject) theObj).getHandler() instanceof ProxyHandler);
+	}
+
+	/**
+	 * Return the object behind a lazy loading proxy, loading it if need be.
+	 * @param theObj the object
+	 * @return the proxied object, or the object itself if it is not a proxy
+	 */
+	private static Object unwrap(final Object theObj) {
+		if (theObj instanceof ProxyHandler) {
+			return ((ProxyHandler<?>) theObj).mProxy.value();
+		}
+		else if (theObj instanceof ProxyObject && ((ProxyObject) theObj).getHandler() instanceof ProxyHandler) {
+			return ((ProxyHandler<?>) ((ProxyObject) theObj).getHandler()).mProxy.value();
+		}
+		else {
+			return theObj;
+		}
+	}
+
+	/**
+	 * Return whether or not the object is a proxy for an object which has not been retrieved from the database yet.
+	 * Unlike any other use of the proxy, this does not load it.
+	 * @param theObj the object
+	 * @return true if the object is a proxy which has not been loaded, false otherwise
+	 */
+	public static boolean isUnloadedProxy(final Object theObj) {
+		return isProxy(theObj) && !proxyOf(theObj).isLoaded();
+	}
+
+	private static Proxy<?> proxyOf(final Object theObj) {
+		return theObj instanceof ProxyHandler
+		       ? ((ProxyHandler<?>) theObj).mProxy
+		       : ((ProxyHandler<?>) ((ProxyObject) theObj).getHandler()).mProxy;
+	}
+
 	/**
 	 * Javassist {@link MethodHandler} implementation for method proxying.
 	 */
@@ -856,11 +1479,18 @@ public final class RdfGenerator {
 		private Collection mCollection;
 		private AccessibleObject mField;
 		private Collection<Value> theList;
+		private DataSource mSource;
+		private Resource mResource;
+		private IRI mProperty;
 		private ValueToObject valueToObject;
 
-		public CollectionProxy(final AccessibleObject theField, final Collection<Value> theTheList, final ValueToObject theValueToObject) {
+		public CollectionProxy(final AccessibleObject theField, final Collection<Value> theTheList, final DataSource theSource,
+		                       final Resource theResource, final IRI theProperty, final ValueToObject theValueToObject) {
 			mField = theField;
 			theList = theTheList;
+			mSource = theSource;
+			mResource = theResource;
+			mProperty = theProperty;
 			valueToObject = theValueToObject;
 		}
 
@@ -868,7 +1498,7 @@ public final class RdfGenerator {
 			Collection<Object> aValues = BeanReflectUtil.instantiateCollectionFromField(BeanReflectUtil.classFrom(mField));
 
 			for (Value aValue : theList) {
-				Object aListValue = valueToObject.apply(aValue);
+				Object aListValue = valueToObject.apply(mSource, mResource, mProperty, aValue);
 
 				if (aListValue == null) {
 					throw new RuntimeException("Error converting a list value.");
@@ -887,6 +1517,9 @@ public final class RdfGenerator {
 
 				theList = null;
 				mField = null;
+				mSource = null;
+				mResource = null;
+				mProperty = null;
 				valueToObject = null;
 			}
 
@@ -902,34 +1535,66 @@ public final class RdfGenerator {
 	public static final boolean PROXY_COLLECTIONS = false;
 
 	/**
-	 * Implementation of the function interface to turn a Collection of RDF values into Java bean(s).
+	 * Turns the RDF values of a property into the value of the field or setter it is mapped to.  This is part of the
+	 * {@link ClassMapping mapping} of the class, so it is created once per property, and the individual and the data
+	 * source the values came from are passed in along with them.
 	 */
-	private static class ToObjectFunction implements Function<Collection<Value>, Object> {
+	static final class ToObjectFunction {
 		/**
 		 * Function to turn a single value into an object
 		 */
-		private ValueToObject valueToObject;
+		private final ValueToObject valueToObject;
 
 		/**
 		 * Reference to the Type which the values will be assigned
 		 */
-		private AccessibleObject mField;
+		private final AccessibleObject mField;
+
+		/**
+		 * The type of the field, or of the parameter of the setter
+		 */
+		private final Class<?> mType;
+
+		/**
+		 * The language of the values of the property when {@link EmpireOptions#ENABLE_LANG_AWARE language aware}
+		 */
+		private final String mLanguage;
 
-		public ToObjectFunction(final DataSource theSource, Resource theResource, final AccessibleObject theField, final IRI theProp) {
-			valueToObject = new ValueToObject(theSource, theResource, theField, theProp);
+		ToObjectFunction(final AccessibleObject theField) {
+			valueToObject = new ValueToObject(theField);
 
 			mField = theField;
+			mType = BeanReflectUtil.classFrom(theField);
+
+			RdfProperty aAnnotation = theField.getAnnotation(RdfProperty.class);
+			mLanguage = aAnnotation == null ? "" : aAnnotation.language();
+		}
+
+		/**
+		 * Return the function which turns the single values of the property into objects
+		 * @return the function
+		 */
+		ValueToObject getValueToObject() {
+			return valueToObject;
 		}
 
-		public Object apply(final Collection<Value> theList) {
+		/**
+		 * Turn the values of the property of the individual into the value of the field
+		 * @param theSource the data source the values came from
+		 * @param theResource the individual
+		 * @param theProp the property
+		 * @param theList the values
+		 * @return the value for the field
+		 */
+		Object apply(final DataSource theSource, final Resource theResource, final IRI theProp, final Collection<Value> theList) {
 			if (theList == null || theList.isEmpty()) {
-				return BeanReflectUtil.instantiateCollectionFromField(BeanReflectUtil.classFrom(mField));
+				return BeanReflectUtil.instantiateCollectionFromField(mType);
 			}
-			if (Collection.class.isAssignableFrom(BeanReflectUtil.classFrom(mField))) {
+			if (Collection.class.isAssignableFrom(mType)) {
 				try {
 
-					if (PROXY_COLLECTIONS && !BeanReflectUtil.isPrimitive(refineClass(mField, BeanReflectUtil.classFrom(mField), null, null))) {
-						Object aColType = BeanReflectUtil.instantiateCollectionFromField(BeanReflectUtil.classFrom(mField));
+					if (PROXY_COLLECTIONS && !BeanReflectUtil.isPrimitive(refineClass(mField, mType, null, null))) {
+						Object aColType = BeanReflectUtil.instantiateCollectionFromField(mType);
 
 						ProxyFactory aFactory = new ProxyFactory();
 						aFactory.setInterfaces(aColType.getClass().getInterfaces());
@@ -937,14 +1602,14 @@ public final class RdfGenerator {
 						aFactory.setFilter(METHOD_FILTER);
 
 						Object aResult = aFactory.createClass().newInstance();
-						((ProxyObject) aResult).setHandler(new CollectionProxyHandler(new CollectionProxy(mField, theList, valueToObject)));
+						((ProxyObject) aResult).setHandler(new CollectionProxyHandler(new CollectionProxy(mField, theList, theSource, theResource, theProp, valueToObject)));
 						return aResult;
 					}
 					else {
-						Collection<Object> aValues = BeanReflectUtil.instantiateCollectionFromField(BeanReflectUtil.classFrom(mField));
+						Collection<Object> aValues = BeanReflectUtil.instantiateCollectionFromField(mType);
 
 						for (Value aValue : theList) {
-							Object aListValue = valueToObject.apply(aValue);
+							Object aListValue = valueToObject.apply(theSource, theResource, theProp, aValue);
 
 							if (aListValue == null) {
 								throw new RuntimeException("Error converting a list value.");
@@ -991,8 +1656,7 @@ public final class RdfGenerator {
 					Collection<Value> aLangFiltered = aList.stream().filter(theLit -> !Literals.isLanguageLiteral((Literal) theLit)).collect(Collectors.toList());
 
 					if (aLangFiltered.isEmpty()) {
-						LANG_FILTER.setLangCode(getLanguageForLocale());
-						aLangFiltered = aList.stream().filter(LANG_FILTER).collect(Collectors.toList());
+						aLangFiltered = aList.stream().filter(new LanguageFilter(getLanguageForLocale())).collect(Collectors.toList());
 					}
 
 					if (!aLangFiltered.isEmpty()) {
@@ -1000,19 +1664,18 @@ public final class RdfGenerator {
 					}
 				}
 				else {
-					LANG_FILTER.setLangCode(mField.getAnnotation(RdfProperty.class).language());
-					aList = aList.stream().filter(LANG_FILTER).collect(Collectors.toList());
+					aList = aList.stream().filter(new LanguageFilter(mLanguage)).collect(Collectors.toList());
 				}
 			}
 
 			if (aList.isEmpty()) {
 				// yes, we checked for emptiness to begin the method, but we might have done some filtering based on the
 				// language tags, so we need to check again.
-				return BeanReflectUtil.instantiateCollectionFromField(BeanReflectUtil.classFrom(mField));
+				return BeanReflectUtil.instantiateCollectionFromField(mType);
 			}
 			else if ((aList.size() == 1) || (! EmpireOptions.STRICT_MODE)) {
 				// collection of one element, just convert the single element and send that back
-				return valueToObject.apply(aList.iterator().next());
+				return valueToObject.apply(theSource, theResource, theProp, aList.iterator().next());
 			}
 			else {
 				throw new RuntimeException("Cannot convert list of values to anything meaningful for the field. " + mField + " " + aList);
@@ -1106,7 +1769,7 @@ public final class RdfGenerator {
 			// create an instance of that.  that will work, and pushes the likely failure back off to
 			// the assignment of the created instance
 
-            Iterable<Resource> aTypes = DataSourceUtil.getTypes(theSource, theId);
+            Iterable<Resource> aTypes = getTypes(theSource, theId);
 
             // k, so now we know the type, if we can match the type to a class then we're in business
             for (Resource aType : aTypes) {
@@ -1140,28 +1803,70 @@ public final class RdfGenerator {
 		return aClass;
 	}
 
+	/**
+	 * Return the rdf:type's of the resource, from the results of the current fetch plan when the resource has been
+	 * fetched, otherwise from the data source.
+	 * @param theSource the data source
+	 * @param theResource the resource
+	 * @return the types of the resource
+	 */
+	private static Iterable<Resource> getTypes(final DataSource theSource, final Resource theResource) {
+		Map<Resource, Model> aPrefetched = PREFETCHED.get();
+
+		if (aPrefetched != null && theResource != null && aPrefetched.containsKey(theResource)) {
+			return Models2.getTypes(aPrefetched.get(theResource), theResource);
+		}
+
+		return DataSourceUtil.getTypes(theSource, theResource);
+	}
+
+	/**
+	 * Turns a single RDF value into the value of a field or setter, or into an instance of a class.  Bound to the
+	 * individual and the data source the value came from it's a {@link Function}, otherwise they're passed in with the
+	 * value, which is how the functions of a {@link ClassMapping} are shared by all the instances of the class.
+	 */
 	public static class ValueToObject implements Function<Value, Object> {
-		static final List<IRI> integerTypes = Arrays.asList(XMLSchema.INT, XMLSchema.INTEGER, XMLSchema.POSITIVE_INTEGER,
-													  XMLSchema.NEGATIVE_INTEGER, XMLSchema.NON_NEGATIVE_INTEGER,
-													  XMLSchema.NON_POSITIVE_INTEGER, XMLSchema.UNSIGNED_INT);
-		static final List<IRI> longTypes = Arrays.asList(XMLSchema.LONG, XMLSchema.UNSIGNED_LONG);
-		static final List<IRI> floatTypes = Arrays.asList(XMLSchema.FLOAT, XMLSchema.DECIMAL);
-		static final List<IRI> shortTypes = Arrays.asList(XMLSchema.SHORT, XMLSchema.UNSIGNED_SHORT);
-		static final List<IRI> byteTypes = Arrays.asList(XMLSchema.BYTE, XMLSchema.UNSIGNED_BYTE);
+		private final IRI mProperty;
+		private final Object mAccessor;
+		private final DataSource mSource;
+		private final Resource mResource;
 
-		private IRI mProperty;
-		private Object mAccessor;
-		private DataSource mSource;
-		private Resource mResource;
+		/**
+		 * The type of the accessor
+		 */
+		private final Class<?> mClass;
+
+		/**
+		 * The converter used for the last literal.  The function is part of the mapping of the class, which is shared
+		 * by threads, so the converter is kept together with its datatype.
+		 */
+		private volatile LastConverter mLastConverter;
 
 		public ValueToObject(final DataSource theSource, Resource theResource, final Object theAccessor, final IRI theProp) {
 			mResource = theResource;
 			mSource = theSource;
 			mAccessor = theAccessor;
 			mProperty = theProp;
+			mClass = theAccessor == null ? null : BeanReflectUtil.classFrom(theAccessor);
+		}
+
+		ValueToObject(final Object theAccessor) {
+			this(null, null, theAccessor, null);
 		}
 
 		public Object apply(final Value theValue) {
+			return apply(mSource, mResource, mProperty, theValue);
+		}
+
+		/**
+		 * Turn the value of the property of the individual into an object
+		 * @param theSource the data source the value came from
+		 * @param theResource the individual
+		 * @param theProperty the property
+		 * @param theValue the value
+		 * @return the object
+		 */
+		Object apply(final DataSource theSource, final Resource theResource, final IRI theProperty, final Value theValue) {
 			if (mAccessor == null) {
 				throw new RuntimeException("Null accessor is not permitted");
 			}
@@ -1172,46 +1877,27 @@ public final class RdfGenerator {
 				if (aDatatype == null || XMLSchema.STRING.equals(aDatatype) || RDFS.LITERAL.equals(aDatatype)) {
 					return aLit.getLabel();
 				}
-				else if (XMLSchema.BOOLEAN.equals(aDatatype)) {
-					return Boolean.valueOf(aLit.getLabel());
-				}
-				else if (integerTypes.contains(aDatatype)) {
-					return Integer.parseInt(aLit.getLabel());
-				}
-				else if (longTypes.contains(aDatatype)) {
-					return Long.parseLong(aLit.getLabel());
-				}
-				else if (XMLSchema.DOUBLE.equals(aDatatype)) {
-					return Double.valueOf(aLit.getLabel());
-				}
-				else if (floatTypes.contains(aDatatype)) {
-					return Float.valueOf(aLit.getLabel());
-				}
-				else if (shortTypes.contains(aDatatype)) {
-					return Short.valueOf(aLit.getLabel());
-				}
-				else if (byteTypes.contains(aDatatype)) {
-					return Byte.valueOf(aLit.getLabel());
-				}
-				else if (XMLSchema.ANYURI.equals(aDatatype)) {
-					try {
-						return new java.net.URI(aLit.getLabel());
-					}
-					catch (URISyntaxException e) {
-						LOGGER.warn("URI syntax exception converting literal value which is not a valid URI {} ", aLit.getLabel());
-						return null;
-					}
-				}
-				else if (XMLSchema.DATE.equals(aDatatype) || XMLSchema.DATETIME.equals(aDatatype)) {
-					return Dates.asDate(aLit.getLabel());
+
+				LastConverter aLast = mLastConverter;
+
+				if (aLast != null && aLast.isFor(aDatatype)) {
+					return aLast.mConverter.fromLiteral(aLit);
 				}
-				else if (XMLSchema.TIME.equals(aDatatype)) {
-					return new Date(Long.parseLong(aLit.getLabel()));
+
+				// the generation is read before the converter, so one registered in between is picked up next time
+				int aGeneration = LiteralConverters.generation();
+				LiteralConverter<?> aConverter = LiteralConverters.forDatatype(aDatatype, mClass);
+
+				if (aConverter != null) {
+					// the values of a property almost always have the same datatype, so remember the last one
+					mLastConverter = new LastConverter(aDatatype, aConverter, aGeneration);
+
+					return aConverter.fromLiteral(aLit);
 				}
 				else {
 					// no idea what this value is from its data type.  if the field takes a string
 					// we'll just assign the plain string, otherwise its an error
-					if (BeanReflectUtil.classFrom(mAccessor).isAssignableFrom(String.class)) {
+					if (mClass.isAssignableFrom(String.class)) {
 						return aLit.getLabel();
 					}
 					else {
@@ -1225,11 +1911,11 @@ public final class RdfGenerator {
 				BNode aBNode = (BNode) theValue;
 
 				// we need to figure out what type of bean this instance maps to.
-				Class<?> aClass = BeanReflectUtil.classFrom(mAccessor);
+				Class<?> aClass = mClass;
 
-				aClass = refineClass(mAccessor, aClass, mSource, aBNode);
+				aClass = refineClass(mAccessor, aClass, theSource, aBNode);
 
-				if (Collection.class.isAssignableFrom(BeanReflectUtil.classFrom(mAccessor))) {
+				if (Collection.class.isAssignableFrom(mClass)) {
 					AccessibleObject aAccess = (AccessibleObject) mAccessor;
 					RdfProperty aPropAnnotation = aAccess.getAnnotation(RdfProperty.class);
 
@@ -1242,50 +1928,49 @@ public final class RdfGenerator {
 					// and you can't do a describe for the same reason.
 
 					try {
-						String aQuery = getBNodeConstructQuery(mSource, mResource, mProperty);
-						
-						Model aGraph = mSource.graphQuery(aQuery);
-
-						Optional<Resource> aPossibleListHead = Models2.getResource(aGraph, mResource, mProperty);
-						
-						if (aPossibleListHead.isPresent() && Models2.isList(aGraph, aPossibleListHead.get())) {
-							List<Value> aList;
-
-							// getting the list is only safe the the query dialect supports stable bnode ids in the query language.
-							if (aPropAnnotation != null && aPropAnnotation.isList() && mSource.getQueryFactory().getDialect().supportsStableBnodeIds()) {
-								try {
-									aList = asList(mSource, aPossibleListHead.get());
-								}
-								catch (DataSourceException e) {
-									throw new RuntimeException(e);
+						Model aDescribed = PREFETCHED.get() == null ? null : PREFETCHED.get().get(aBNode);
+
+						if (aDescribed != null) {
+							// the bnode was described along with the individual, no need to go back to the database for it
+							if (Models2.isList(aDescribed, aBNode)) {
+								List<Value> aList = aPropAnnotation != null && aPropAnnotation.isList()
+								                    ? asList(aDescribed, aBNode)
+								                    : Collections.<Value>singletonList(aBNode);
+
+								// the describe only goes so deep, longer lists are fetched below
+								if (aList != null) {
+									return asCollection(theSource, aAccess, aClass, aList);
 								}
 							}
 							else {
-								aList = new ArrayList<>(aGraph.filter(mResource, mProperty, null).objects());
+								return getBNodeObject(theSource, aClass, aBNode);
 							}
+						}
 
-							//return new ToObjectFunction(mSource, null, (AccessibleObject) mAccessor, null).apply(aList);
-							Collection<Object> aValues = BeanReflectUtil.instantiateCollectionFromField(BeanReflectUtil.classFrom(aAccess));
+						// the structure of the list is fetched in one go, so the cells are never referenced by their
+						// bnode ids, only the query languages with property paths can do that though.
+						if (aPropAnnotation != null && aPropAnnotation.isList() && !(theSource.getQueryFactory().getDialect() instanceof SerqlDialect)) {
+							Model aGraph = theSource.graphQuery(getListConstructQuery(theSource, theResource, theProperty));
 
-							for (Value aValue : aList) {
-								Object aListValue = null;
+							Optional<Resource> aListHead = Models2.getResource(aGraph, theResource, theProperty);
 
-								try {
-									aListValue = getProxyOrDbObject(mAccessor, aClass, aValue, mSource);
-								}
-								catch (Exception e) {
-									// we'll throw an error in a second...
-								}
+							if (aListHead.isPresent() && Models2.isList(aGraph, aListHead.get())) {
+								List<Value> aList = asList(aGraph, aListHead.get());
 
-								if (aListValue == null) {
-									throw new RuntimeException("Error converting a list value: " + aValue + " -> " + aClass);
+								if (aList != null) {
+									return asCollection(theSource, aAccess, aClass, aList);
 								}
+							}
+						}
 
-								aValues.add(aListValue);
+						String aQuery = getBNodeConstructQuery(theSource, theResource, theProperty);
+						
+						Model aGraph = theSource.graphQuery(aQuery);
 
-							}
-							
-							return aValues;
+						Optional<Resource> aPossibleListHead = Models2.getResource(aGraph, theResource, theProperty);
+						
+						if (aPossibleListHead.isPresent() && Models2.isList(aGraph, aPossibleListHead.get())) {
+							return asCollection(theSource, aAccess, aClass, aGraph.filter(theResource, theProperty, null).objects());
 						}
 					}
 					catch (QueryException e) {
@@ -1293,31 +1978,21 @@ public final class RdfGenerator {
 					}
 				}
 
-				try {
-					return getProxyOrDbObject(mAccessor, aClass, aBNode, mSource);
-				}
-				catch (Exception e) {
-					if (EmpireOptions.STRICT_MODE) {
-						throw new RuntimeException(e);
-					}
-					else {
-						return null;
-					}
-				}
+				return getBNodeObject(theSource, aClass, aBNode);
 			}
 			else if (theValue instanceof IRI) {
 				IRI aURI = (IRI) theValue;
 				try {
 					// we need to figure out what type of bean this instance maps to.
-					Class<?> aClass = BeanReflectUtil.classFrom(mAccessor);
+					Class<?> aClass = mClass;
 
-					aClass = refineClass(mAccessor, aClass, mSource, aURI);
+					aClass = refineClass(mAccessor, aClass, theSource, aURI);
 
 					if (aClass.isAssignableFrom(java.net.URI.class)) {
 						return java.net.URI.create(aURI.toString());
 					}
 					else {
-						return getProxyOrDbObject(mAccessor, aClass, java.net.URI.create(aURI.toString()), mSource);
+						return getProxyOrDbObject(mAccessor, aClass, java.net.URI.create(aURI.toString()), theSource);
 					}
 				}
 				catch (Exception e) {
@@ -1340,38 +2015,112 @@ public final class RdfGenerator {
 				}
 			}
 		}
+
+		/**
+		 * Return the object for the bnode value
+		 * @param theSource the data source the bnode came from
+		 * @param theClass the type of the object
+		 * @param theBNode the bnode
+		 * @return the object, or null if it cannot be created and strict mode is not enabled
+		 */
+		private Object getBNodeObject(final DataSource theSource, final Class<?> theClass, final BNode theBNode) {
+			try {
+				return getProxyOrDbObject(mAccessor, theClass, theBNode, theSource);
+			}
+			catch (Exception e) {
+				if (EmpireOptions.STRICT_MODE) {
+					throw new RuntimeException(e);
+				}
+				else {
+					return null;
+				}
+			}
+		}
+
+		/**
+		 * Create the collection for the accessor from the values of the list
+		 * @param theSource the data source the values came from
+		 * @param theAccess the accessor which takes the collection
+		 * @param theClass the type of the elements of the collection
+		 * @param theList the values of the list
+		 * @return the collection
+		 */
+		private Collection<Object> asCollection(final DataSource theSource, final AccessibleObject theAccess, final Class<?> theClass, final Collection<Value> theList) {
+			Collection<Object> aValues = BeanReflectUtil.instantiateCollectionFromField(BeanReflectUtil.classFrom(theAccess));
+
+			for (Value aValue : theList) {
+				Object aListValue = null;
+
+				try {
+					aListValue = getProxyOrDbObject(mAccessor, theClass, aValue, theSource);
+				}
+				catch (Exception e) {
+					// we'll throw an error in a second...
+				}
+
+				if (aListValue == null) {
+					throw new RuntimeException("Error converting a list value: " + aValue + " -> " + theClass);
+				}
+
+				aValues.add(aListValue);
+			}
+
+			return aValues;
+		}
 	}
 
-	private static List<Value> asList(DataSource theSource, Resource theRes) throws DataSourceException {
-        List<Value> aList = Lists.newArrayList();
+	/**
+	 * The converter a {@link ValueToObject} used for the last literal, which is good for literals of the same datatype
+	 * until another converter is registered
+	 */
+	private static final class LastConverter {
+		private final IRI mDatatype;
+		private final LiteralConverter<?> mConverter;
+		private final int mGeneration;
+
+		private LastConverter(final IRI theDatatype, final LiteralConverter<?> theConverter, final int theGeneration) {
+			mDatatype = theDatatype;
+			mConverter = theConverter;
+			mGeneration = theGeneration;
+		}
+
+		private boolean isFor(final IRI theDatatype) {
+			return mDatatype.equals(theDatatype) && mGeneration == LiteralConverters.generation();
+		}
+	}
 
-        Resource aListRes = theRes;
+	/**
+	 * Return the values of the RDF list starting at the given cell.  The list structure is taken entirely from the graph.
+	 * @param theGraph the graph containing the list
+	 * @param theHead the head of the list
+	 * @return the values of the list, in order, or null if the graph does not contain the entire list
+	 */
+	private static List<Value> asList(Model theGraph, Resource theHead) {
+		List<Value> aList = Lists.newArrayList();
+		Set<Resource> aVisited = Sets.newHashSet();
 
-        while (aListRes != null) {
+		Resource aListRes = theHead;
 
-            Resource aFirst = (Resource) DataSourceUtil.getValue(theSource, aListRes, RDF.FIRST);
-            Resource aRest = (Resource) DataSourceUtil.getValue(theSource, aListRes, RDF.REST);
+		// the visited check guards against malformed, cyclic, lists
+		while (aListRes != null && !aListRes.equals(RDF.NIL) && aVisited.add(aListRes)) {
+			Value aFirst = Iterables.getFirst(theGraph.filter(aListRes, RDF.FIRST, null).objects(), null);
 
-            if (aFirst != null) {
-               aList.add(aFirst);
-            }
+			if (aFirst != null) {
+				aList.add(aFirst);
+			}
 
-            if (aRest == null || aRest.equals(RDF.NIL)) {
-               aListRes = null;
-            }
-            else {
-                aListRes = aRest;
-            }
-        }
+			aListRes = Models2.getResource(theGraph, aListRes, RDF.REST).orElse(null);
+		}
 
-        return aList;
+		return RDF.NIL.equals(aListRes) ? aList : null;
 	}
 
 	private static final MethodFilter METHOD_FILTER = theMethod -> !theMethod.getName().equals("finalize");
 
 	@SuppressWarnings("unchecked")
 	private static <T> T getProxyOrDbObject(Object theAccessor, Class<T> theClass, Object theKey, DataSource theSource) throws Exception {
-		if (BeanReflectUtil.isFetchTypeLazy(theAccessor)) {
+		// bnodes described with the referencing individual are always loaded, the proxy could not describe them later
+		if (BeanReflectUtil.isFetchTypeLazy(theAccessor) && !(PREFETCHED.get() != null && PREFETCHED.get().containsKey(theKey))) {
 			Proxy<T> aProxy = new Proxy<T>(theClass, asPrimaryKey(theKey), theSource);
 
 			ProxyFactory aFactory = new ProxyFactory();
@@ -1428,6 +2177,27 @@ public final class RdfGenerator {
 		}
 	}
 	
+	/**
+	 * Return the query which gets the structure of the RDF list which is the value of the property, the property value
+	 * and the rdf:first and rdf:rest of every cell of the list, in one go.  Requires property path support.
+	 * @param theSource the source the query will be executed against
+	 * @param theRes the resource
+	 * @param theProperty the property whose value is the head of the list
+	 * @return the query
+	 */
+	private static String getListConstructQuery(DataSource theSource, Resource theRes, IRI theProperty) {
+		Dialect aDialect = theSource.getQueryFactory().getDialect();
+
+		return "CONSTRUCT { " + aDialect.asQueryString(theRes) + " <" + theProperty.toString() + "> ?head .\n" +
+			   "?cell <" + RDF.FIRST + "> ?first .\n" +
+			   "?cell <" + RDF.REST + "> ?rest . }\n" +
+			   "WHERE\n" +
+			   "{ " + aDialect.asQueryString(theRes) + " <" + theProperty.toString() + "> ?head .\n" +
+			   "?head <" + RDF.REST + ">* ?cell .\n" +
+			   "?cell <" + RDF.FIRST + "> ?first .\n" +
+			   "?cell <" + RDF.REST + "> ?rest . }";
+	}
+
 	private static String getBNodeConstructQuery(DataSource theSource, Resource theRes, IRI theProperty) {
 		Dialect aDialect = theSource.getQueryFactory().getDialect();
 
@@ -1467,27 +2237,6 @@ public final class RdfGenerator {
             else if (!EmpireOptions.STRONG_TYPING && BeanReflectUtil.isPrimitive(theIn)) {
                 return FACTORY.createLiteral(theIn.toString());
             }
-			else if (Boolean.class.isInstance(theIn)) {
-				return FACTORY.createLiteral(Boolean.class.cast(theIn));
-			}
-			else if (Integer.class.isInstance(theIn)) {
-				return FACTORY.createLiteral(Integer.class.cast(theIn));
-			}
-			else if (Long.class.isInstance(theIn)) {
-				return FACTORY.createLiteral(Long.class.cast(theIn));
-			}
-			else if (Short.class.isInstance(theIn)) {
-				return FACTORY.createLiteral(Short.class.cast(theIn));
-			}
-			else if (Double.class.isInstance(theIn)) {
-				return FACTORY.createLiteral(Double.class.cast(theIn));
-			}
-			else if (Float.class.isInstance(theIn)) {
-				return FACTORY.createLiteral(Float.class.cast(theIn));
-			}
-			else if (Date.class.isInstance(theIn)) {
-				return FACTORY.createLiteral(Dates.datetime(Date.class.cast(theIn)), XMLSchema.DATETIME);
-			}
 			else if (String.class.isInstance(theIn)) {
 				if (annotation != null && !annotation.language().equals("")) {
 					return FACTORY.createLiteral(String.class.cast(theIn), annotation.language());
@@ -1496,16 +2245,16 @@ public final class RdfGenerator {
 					return FACTORY.createLiteral(String.class.cast(theIn), XMLSchema.STRING);
 				}
 			}
-			else if (Character.class.isInstance(theIn)) {
-				return FACTORY.createLiteral(Character.class.cast(theIn));
+			else if (java.net.URI.class.isInstance(theIn) && (annotation == null || !annotation.isXsdUri())) {
+				return FACTORY.createIRI(theIn.toString());
 			}
-			else if (java.net.URI.class.isInstance(theIn)) {
-				if (annotation != null && annotation.isXsdUri()) {
-					return FACTORY.createLiteral(theIn.toString(), XMLSchema.ANYURI);
-				}
-				else {
-                	return FACTORY.createIRI(theIn.toString());
-				}
+
+			// the converter is looked up for every value, the function lives as long as the class mapping and a
+			// converter registered after the mapping was created has to be used from then on
+			LiteralConverter<?> aConverter = LiteralConverters.forType(theIn.getClass());
+
+			if (aConverter != null) {
+				return LiteralConverters.toLiteral(aConverter, theIn, FACTORY);
 			}
 			else if (Value.class.isAssignableFrom(theIn.getClass())) {
 				return Value.class.cast(theIn);
@@ -1518,17 +2267,11 @@ public final class RdfGenerator {
 					throw new RuntimeException(e);
 				}
 			}
-			else if (theIn instanceof ProxyHandler) {
-				return this.apply( ((ProxyHandler)theIn).mProxy.value());
+			else if (isProxy(theIn)) {
+				return this.apply(unwrap(theIn));
 			}
 			else {
-				try {
-					Field aProxy =  theIn.getClass().getDeclaredField("handler");
-					return this.apply(((ProxyHandler)BeanReflectUtil.safeGet(aProxy, theIn)).mProxy.value());
-				}
-				catch (Exception e) {
-					throw new RuntimeException("Unknown type conversion: " + theIn.getClass() + " " + theIn + " " + mField);
-				}
+				throw new RuntimeException("Unknown type conversion: " + theIn.getClass() + " " + theIn + " " + mField);
 			}
 		}
 	}
@@ -1540,16 +2283,12 @@ public final class RdfGenerator {
 	}
 
 	private static class LanguageFilter implements Predicate<Value> {
-		private String mLangCode;
+		private final String mLangCode;
 
 		private LanguageFilter(final String theLangCode) {
 			mLangCode = theLangCode;
 		}
 
-		public void setLangCode(final String theLangCode) {
-			mLangCode = theLangCode;
-		}
-
 		public boolean test(final Value theValue) {
 			return theValue instanceof Literal && mLangCode.equals(((Literal)theValue).getLanguage());
 		}
@@ -79,6 +79,22 @@ public class Proxy<T> {
 		return mValue;
 	}
 
+	/**
+	 * Return the database key of the object this is proxying for, which is known without retrieving the object
+	 * @return the key
+	 */
+	public SupportsRdfId.RdfKey getKey() {
+		return mURI;
+	}
+
+	/**
+	 * Return whether or not the value has already been retrieved from the database
+	 * @return true if the value is loaded, false otherwise
+	 */
+	public boolean isLoaded() {
+		return mValue != null;
+	}
+
 	/**
 	 * Return the type of the object this is proxying for
 	 * @return the object type
@@ -77,6 +77,25 @@ public class ProxyAwareList<T> extends AbstractList<T> implements List<T> {
 		return unwrap(aObj);
 	}
 
+	/**
+	 * Return the values of the list which do not need to be retrieved from the database, that is, all of them except
+	 * for the proxied objects which have not been loaded yet.  Unlike iterating over the list, this never loads
+	 * anything.
+	 * @return the loaded values
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> getLoaded() {
+		List<T> aLoaded = new ArrayList<T>();
+
+		for (Object aObj : mList) {
+			if (!(aObj instanceof Proxy) || ((Proxy<T>) aObj).isLoaded()) {
+				aLoaded.add(unwrap(aObj));
+			}
+		}
+
+		return aLoaded;
+	}
+
 	/**
 	 * Given an object from the underlying list, either cast it and return it, or if it's a proxy, get the proxied
 	 * object.
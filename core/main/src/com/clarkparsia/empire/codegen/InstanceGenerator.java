@@ -15,6 +15,9 @@
 
 package com.clarkparsia.empire.codegen;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import javassist.ClassPool;
 import javassist.CtClass;
@@ -32,6 +35,8 @@ import javassist.bytecode.AnnotationsAttribute;
 import javassist.bytecode.SignatureAttribute;
 import javassist.bytecode.annotation.Annotation;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Arrays;
@@ -41,6 +46,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.function.Predicate;
 
+import com.clarkparsia.empire.DirtyTracking;
 import com.clarkparsia.empire.EmpireGenerated;
 import com.clarkparsia.empire.SupportsRdfId;
 import com.clarkparsia.empire.EmpireOptions;
@@ -64,6 +70,17 @@ public final class InstanceGenerator {
 
 	private static final Collection<Method> processedMethods = Sets.newHashSet();
 
+	/**
+	 * The properties whose setters mark them as dirty in the class being generated, in the order of their bits, or null
+	 * if the class does not track its changes
+	 */
+	private static List<String> trackedProperties = null;
+
+	/**
+	 * The properties tracked by the generated classes which implement {@link DirtyTracking}
+	 */
+	private static final Map<Class<?>, List<String>> TRACKED_PROPERTIES = Maps.newConcurrentMap();
+
 	/**
 	 * No instances
 	 */
@@ -86,6 +103,9 @@ public final class InstanceGenerator {
 	public synchronized static <T> Class<T> generateInstanceClass(Class<T> theInterface) throws Exception {
 		processedMethods.clear();
 
+		// when implementing an interface, every setter is generated, so they know about every change to the bean
+		trackedProperties = theInterface.isInterface() ? Lists.<String>newArrayList() : null;
+
 		// TODO: can we use some sort of template language for this?
 
 		ClassPool aPool = ClassPool.getDefault();
@@ -131,6 +151,16 @@ public final class InstanceGenerator {
 		aClass.addInterface(aSupportsRdfIdInterface);
 		aClass.addInterface(aEmpireGeneratedInterface);
 
+		if (trackedProperties != null) {
+			aClass.addInterface(aPool.get(DirtyTracking.class.getName()));
+
+			CtField aDirtyField = new CtField(aPool.get(BitSet.class.getName()), "mDirtyProperties", aClass);
+			aClass.addField(aDirtyField, CtField.Initializer.byExpr("new java.util.BitSet();"));
+
+			aClass.addMethod(CtNewMethod.make("public java.util.BitSet getDirtyProperties() { return mDirtyProperties; } ", aClass));
+			aClass.addMethod(CtNewMethod.make("public void clearDirtyProperties() { mDirtyProperties.clear(); } ", aClass));
+		}
+
 		CtField aInterfaceField = new CtField(aPool.get(Class.class.getName()), "mInterfaceClass", aClass);
 		aClass.addField(aInterfaceField, CtField.Initializer.byExpr(theInterface.getName() + ".class;"));
 		
@@ -210,8 +240,33 @@ public final class InstanceGenerator {
 			throw ex;
 		}
 
+		if (trackedProperties != null) {
+			TRACKED_PROPERTIES.put(aResult, ImmutableList.copyOf(trackedProperties));
+		}
+
 		return aResult;
 	}
+
+	/**
+	 * Return the properties of a generated class whose changes are tracked, that is, the properties corresponding to
+	 * the bits of {@link DirtyTracking#getDirtyProperties}.
+	 * @param theClass the generated class
+	 * @return the names of the tracked properties, or an empty list if the class does not track its changes
+	 */
+	public static List<String> getTrackedProperties(final Class<?> theClass) {
+		List<String> aProperties = TRACKED_PROPERTIES.get(theClass);
+
+		return aProperties == null ? ImmutableList.<String>of() : aProperties;
+	}
+
+	/**
+	 * Return the names of the getter methods of a bean property
+	 * @param theProperty the property name
+	 * @return the name of its getter, and that of its getter if it is a boolean property
+	 */
+	public static List<String> getterNames(final String theProperty) {
+		return ImmutableList.of(getterName(theProperty), booleanGetterName(theProperty));
+	}
 	
 	/**
 	 * For all the parent interfaces of a class, generate implementations of all their methods.  And for their parents, do the same, and the same for their parents, and so on...
@@ -276,6 +331,12 @@ public final class InstanceGenerator {
 			if (!hasMethod(theClass, setterName(aProp))) {
 				CtMethod aMethod = CtNewMethod.setter(setterName(aProp), aNewField);
 
+				if (trackedProperties != null) {
+					aMethod.insertAfter("mDirtyProperties.set(" + trackedProperties.size() + ");");
+
+					trackedProperties.add(aProp);
+				}
+
 				inheritAnnotations(theClass, aMethod);
 
 				SignatureAttribute attr = (SignatureAttribute) aNewField.getFieldInfo().getAttribute(SignatureAttribute.tag);
@@ -21,21 +21,32 @@ import com.clarkparsia.empire.Empire;
 import com.clarkparsia.empire.util.EmpireUtil;
 import com.clarkparsia.empire.impl.serql.SerqlDialect;
 import com.clarkparsia.empire.impl.sparql.ARQSPARQLDialect;
+import com.clarkparsia.empire.impl.sparql.SPARQLDialect;
 
 import com.complexible.common.openrdf.model.Models2;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import org.openrdf.model.Model;
 import org.openrdf.model.Resource;
 import org.openrdf.model.Value;
 import org.openrdf.model.BNode;
+import org.openrdf.model.Statement;
 import org.openrdf.model.vocabulary.RDF;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -55,6 +66,16 @@ public final class DataSourceUtil {
 	 */
 	private static final Logger LOGGER = LoggerFactory.getLogger(Empire.class.getName());
 
+	/**
+	 * How many levels of nested bnodes are included in the describe of a resource
+	 */
+	public static final int BNODE_CLOSURE_DEPTH = 3;
+
+	/**
+	 * The most subjects checked by a single query in {@link #exists(DataSource, Collection)}
+	 */
+	private static final int EXISTS_BATCH_SIZE = 500;
+
 	/**
 	 * No instances
 	 */
@@ -84,7 +105,9 @@ public final class DataSourceUtil {
 
 	/**
 	 * Do a poor-man's describe on the given resource, querying its context if that is supported, or otherwise
-	 * querying the graph in general.
+	 * querying the graph in general.  The describe includes the statements about the bnodes the resource references,
+	 * and the bnodes they reference, up to {@link #BNODE_CLOSURE_DEPTH} levels deep, since those cannot be reliably
+	 * described on their own.
 	 * @param theSource the {@link com.clarkparsia.empire.ds.DataSource} to query
 	 * @param theObj the object to do the "describe" operation on
 	 * @return all the statements about the given object
@@ -117,14 +140,14 @@ public final class DataSourceUtil {
 
 		// TODO: if source supports describe queries, use that.
 
-		String aSPARQL = "construct {?s ?p ?o}\n" +
+		String aSPARQL = "construct {?s ?p ?o" + sparqlClosureTemplate() + "}\n" +
 						 (aNG == null ? "" : "from <" + aNG + ">\n") +
-						 "where {?s ?p ?o. filter(?s = " + aDialect.asQueryString(aResource) + ") }";
+						 "where {" + sparqlClosurePattern(1, "?s ?p ?o") + " filter(?s = " + aDialect.asQueryString(aResource) + ") }";
 
 
-		String aSeRQL = "construct {s} p {o}\n" +
+		String aSeRQL = "construct {s} p {o}" + serqlClosureTemplate() + "\n" +
 						 (aNG == null ? "from\n" : "from context <" + aNG + ">\n") +
-						 "{s} p {o} where s = " + aDialect.asQueryString(aResource) + "";
+						 "{s} p {o}" + serqlClosurePattern(1) + " where s = " + aDialect.asQueryString(aResource) + "";
 
 		Model aGraph;
 
@@ -139,6 +162,216 @@ public final class DataSourceUtil {
 		return aGraph;
 	}
 
+	/**
+	 * Do a poor-man's describe on a batch of resources with a single query.  When the source uses SPARQL, the resources
+	 * are bound to the subject with a VALUES block, otherwise the subject is restricted with a disjunction.  Like
+	 * {@link #describe(DataSource, Object)} the referenced bnodes are included, use {@link #closure(Model, Resource)}
+	 * to get the describe of the individual resources from the result.
+	 * @param theSource the {@link com.clarkparsia.empire.ds.DataSource} to query
+	 * @param theResources the resources to describe
+	 * @param theNamedGraph the named graph the resources live in, or null to query the graph in general
+	 * @return all the statements about the given resources
+	 * @throws QueryException if there is an error while querying for the graph
+	 */
+	public static Model describe(DataSource theSource, Collection<? extends Resource> theResources, java.net.URI theNamedGraph) throws QueryException {
+		Dialect aDialect = theSource.getQueryFactory().getDialect();
+
+		String aNG = theSource instanceof SupportsNamedGraphs && theNamedGraph != null
+		             ? theNamedGraph.toString()
+		             : null;
+
+		// same as above, bnodes will not survive the trip to the database so they are simply not described
+		List<Resource> aResources = theResources.stream()
+		                                        .filter(aRes -> !(aRes instanceof BNode) || aDialect instanceof ARQSPARQLDialect)
+		                                        .collect(Collectors.toList());
+
+		if (aResources.isEmpty()) {
+			return Models2.newModel();
+		}
+
+		if (aDialect instanceof SerqlDialect) {
+			return theSource.graphQuery("construct {s} p {o}" + serqlClosureTemplate() + "\n" +
+			                            (aNG == null ? "from\n" : "from context <" + aNG + ">\n") +
+			                            "{s} p {o}" + serqlClosurePattern(1) + " where " +
+			                            aResources.stream()
+			                                      .map(aRes -> "s = " + aDialect.asQueryString(aRes))
+			                                      .collect(Collectors.joining(" or ")));
+		}
+		else {
+			// fall back on sparql
+			return theSource.graphQuery("construct {?s ?p ?o" + sparqlClosureTemplate() + "}\n" +
+			                            (aNG == null ? "" : "from <" + aNG + ">\n") +
+			                            "where {\nvalues ?s { " +
+			                            aResources.stream()
+			                                      .map(aDialect::asQueryString)
+			                                      .collect(Collectors.joining(" ")) +
+			                            " }\n" + sparqlClosurePattern(1, "?s ?p ?o") + " }");
+		}
+	}
+
+	/**
+	 * Return the SPARQL 1.1 Update request which removes everything about the resources, that is, the same statements
+	 * as are returned by {@link #describe(DataSource, Collection, java.net.URI) describing} them.  The resources cannot
+	 * be bnodes, they would be taken to be variables.
+	 * @param theResources the resources to remove
+	 * @param theNamedGraph the named graph to remove them from, or null to remove them from the default graph
+	 * @return the update request
+	 */
+	public static String removeUpdate(Collection<? extends Resource> theResources, java.net.URI theNamedGraph) {
+		Dialect aDialect = SPARQLDialect.instance();
+
+		return (theNamedGraph == null ? "" : "with <" + theNamedGraph + ">\n") +
+		       "delete {?s ?p ?o" + sparqlUpdateClosureTemplate() + "}\n" +
+		       "where {\nvalues ?s { " +
+		       theResources.stream()
+		                   .map(aDialect::asQueryString)
+		                   .collect(Collectors.joining(" ")) +
+		       " }\n" + sparqlUpdateClosurePattern(1, "?s ?p ?o") + " }";
+	}
+
+	/**
+	 * Return the describe of the resource from a graph containing the result of a describe, that is, the statements
+	 * about the resource and about the bnodes it references, recursively.
+	 * @param theGraph the graph
+	 * @param theResource the resource
+	 * @return the describe of the resource
+	 */
+	public static Model closure(Model theGraph, Resource theResource) {
+		Model aClosure = Models2.newModel();
+		Set<Resource> aVisited = Sets.newHashSet();
+		Deque<Resource> aQueue = new ArrayDeque<>();
+
+		aQueue.add(theResource);
+
+		while (!aQueue.isEmpty()) {
+			Resource aRes = aQueue.poll();
+
+			if (!aVisited.add(aRes)) {
+				continue;
+			}
+
+			for (Statement aStmt : theGraph.filter(aRes, null, null)) {
+				aClosure.add(aStmt);
+
+				if (aStmt.getObject() instanceof BNode) {
+					aQueue.add((BNode) aStmt.getObject());
+				}
+			}
+		}
+
+		return aClosure;
+	}
+
+	/**
+	 * The SPARQL construct template for the statements about the nested bnodes matched by {@link #sparqlClosurePattern(int, String)}
+	 * @return the template
+	 */
+	private static String sparqlClosureTemplate() {
+		StringBuilder aTemplate = new StringBuilder();
+
+		for (int i = 1; i <= BNODE_CLOSURE_DEPTH; i++) {
+			aTemplate.append(" . ?").append(closureVar(i - 1)).append(" ?p").append(i).append(" ?").append(closureVar(i));
+		}
+
+		return aTemplate.toString();
+	}
+
+	/**
+	 * The SPARQL graph pattern which matches the triple pattern and, when its object is a bnode, optionally the
+	 * statements about it, and their bnode objects, down to {@link #BNODE_CLOSURE_DEPTH}.  The pattern is the union of
+	 * the triple with an object which is not a bnode, and the triple with a bnode object joined with the statements
+	 * about the bnode.  The isBlank filter is part of the branch, rather than the condition of an optional, so it's
+	 * applied to the triple before the statements about its object are looked for; as the condition of an optional,
+	 * all the statements about every IRI object would be matched and then thrown away.
+	 * @param theDepth the current depth, the object of the triple is the variable for the depth before it
+	 * @param theTriple the triple pattern
+	 * @return the pattern
+	 */
+	private static String sparqlClosurePattern(int theDepth, String theTriple) {
+		return sparqlClosurePattern(theDepth, theTriple, false);
+	}
+
+	/**
+	 * The SPARQL update template for the statements about the nested bnodes matched by {@link #sparqlUpdateClosurePattern(int, String)}.
+	 * Unlike the construct template, the subjects are variables which are only bound to bnodes, since some stores
+	 * fail on a template whose subject is bound to a literal, even if the rest of it is unbound.
+	 * @return the template
+	 */
+	private static String sparqlUpdateClosureTemplate() {
+		StringBuilder aTemplate = new StringBuilder();
+
+		for (int i = 1; i <= BNODE_CLOSURE_DEPTH; i++) {
+			aTemplate.append(" . ?b").append(i).append(" ?p").append(i).append(" ?").append(closureVar(i));
+		}
+
+		return aTemplate.toString();
+	}
+
+	/**
+	 * The SPARQL graph pattern which matches the triple pattern and, when its object is a bnode, optionally the
+	 * statements about it, like {@link #sparqlClosurePattern(int, String)}, binding the bnodes for
+	 * {@link #sparqlUpdateClosureTemplate()}
+	 * @param theDepth the current depth, the object of the triple is the variable for the depth before it
+	 * @param theTriple the triple pattern
+	 * @return the pattern
+	 */
+	private static String sparqlUpdateClosurePattern(int theDepth, String theTriple) {
+		return sparqlClosurePattern(theDepth, theTriple, true);
+	}
+
+	private static String sparqlClosurePattern(int theDepth, String theTriple, boolean theBindBNodes) {
+		if (theDepth > BNODE_CLOSURE_DEPTH) {
+			return theTriple;
+		}
+
+		String aObject = "?" + closureVar(theDepth - 1);
+
+		String aNested = aObject + " ?p" + theDepth + " ?" + closureVar(theDepth) + "." +
+		                 (theBindBNodes ? " bind(" + aObject + " as ?b" + theDepth + ")" : "");
+
+		return "{ " + theTriple + " filter(!isBlank(" + aObject + ")) } union " +
+		       "{ " + theTriple + " filter(isBlank(" + aObject + ")) optional { " +
+		       sparqlClosurePattern(theDepth + 1, aNested, theBindBNodes) + " } }";
+	}
+
+	/**
+	 * The SeRQL construct template for the statements about the nested bnodes matched by {@link #serqlClosurePattern(int)}
+	 * @return the template
+	 */
+	private static String serqlClosureTemplate() {
+		StringBuilder aTemplate = new StringBuilder();
+
+		for (int i = 1; i <= BNODE_CLOSURE_DEPTH; i++) {
+			aTemplate.append(", {").append(closureVar(i - 1)).append("} p").append(i).append(" {").append(closureVar(i)).append("}");
+		}
+
+		return aTemplate.toString();
+	}
+
+	/**
+	 * The SeRQL path expression which optionally matches the statements about the bnode objects of o, and their
+	 * bnode objects, down to {@link #BNODE_CLOSURE_DEPTH}
+	 * @param theDepth the current depth
+	 * @return the path expression
+	 */
+	private static String serqlClosurePattern(int theDepth) {
+		if (theDepth > BNODE_CLOSURE_DEPTH) {
+			return "";
+		}
+
+		return ", [{" + closureVar(theDepth - 1) + "} p" + theDepth + " {" + closureVar(theDepth) + "}" +
+		       serqlClosurePattern(theDepth + 1) + " where isBNode(" + closureVar(theDepth - 1) + ")]";
+	}
+
+	/**
+	 * The name of the variable for the object at the given depth of the closure, the object of the described resource is o
+	 * @param theDepth the depth
+	 * @return the variable name
+	 */
+	private static String closureVar(int theDepth) {
+		return theDepth == 0 ? "o" : "o" + theDepth;
+	}
+
 	/**
 	 * Do a poor-man's ask on the given resource to see if any triples using the resource (as the subject) exist,
 	 * querying its context if that is supported, or otherwise querying the graph in general.
@@ -190,6 +423,91 @@ public final class DataSourceUtil {
 		}
 	}
 
+	/**
+	 * Return which of the objects have statements about them in the data source.  Rather than an "ask" per object as
+	 * with {@link #exists(DataSource, Object)}, the subjects are checked in one query for each named graph the objects are
+	 * in, or a few more for large numbers of objects.  Objects identified by a bnode are still checked individually
+	 * since they cannot be listed in a query.
+	 * @param theSource the {@link com.clarkparsia.empire.ds.DataSource} to query
+	 * @param theObjs the objects to check
+	 * @return the objects which exist in the data source, compared by identity
+	 * @throws QueryException if there is an error while querying
+	 */
+	public static Set<Object> exists(DataSource theSource, Collection<?> theObjs) throws QueryException {
+		Set<Object> aExisting = Sets.newIdentityHashSet();
+
+		// HashMap rather than the Map interface since the objects not in a named graph are keyed by null
+		HashMap<String, Map<Resource, List<Object>>> aByGraph = Maps.newHashMap();
+
+		for (Object aObj : theObjs) {
+			if (EmpireUtil.asSupportsRdfId(aObj).getRdfId() == null) {
+				continue;
+			}
+
+			Resource aSubject = EmpireUtil.asResource(EmpireUtil.asSupportsRdfId(aObj));
+
+			if (aSubject instanceof BNode) {
+				if (exists(theSource, aObj)) {
+					aExisting.add(aObj);
+				}
+
+				continue;
+			}
+
+			String aNG = null;
+
+			if (theSource instanceof SupportsNamedGraphs && EmpireUtil.hasNamedGraphSpecified(aObj)) {
+				java.net.URI aURI = EmpireUtil.getNamedGraph(aObj);
+
+				if (aURI != null) {
+					aNG = aURI.toString();
+				}
+			}
+
+			aByGraph.computeIfAbsent(aNG, theKey -> Maps.newLinkedHashMap())
+			        .computeIfAbsent(aSubject, theKey -> Lists.newArrayList())
+			        .add(aObj);
+		}
+
+		Dialect aDialect = theSource.getQueryFactory().getDialect();
+
+		for (Map.Entry<String, Map<Resource, List<Object>>> aEntry : aByGraph.entrySet()) {
+			String aNG = aEntry.getKey();
+
+			for (List<Resource> aSubjects : Iterables.partition(aEntry.getValue().keySet(), EXISTS_BATCH_SIZE)) {
+				String aQuery;
+
+				if (aDialect instanceof SerqlDialect) {
+					aQuery = "select distinct s\n" +
+					         (aNG == null ? "from\n" : "from context <" + aNG + ">\n") +
+					         "{s} p {o} where " +
+					         aSubjects.stream().map(theSubj -> "s = " + aDialect.asQueryString(theSubj)).collect(Collectors.joining(" or "));
+				}
+				else {
+					aQuery = "select distinct ?s\n" +
+					         (aNG == null ? "" : "from <" + aNG + ">\n") +
+					         "where { values ?s { " +
+					         aSubjects.stream().map(aDialect::asQueryString).collect(Collectors.joining(" ")) +
+					         " } ?s ?p ?o. }";
+				}
+
+				ResultSet aResults = theSource.selectQuery(aQuery);
+
+				try {
+					aResults.stream()
+					        .map(theBinding -> theBinding.getValue("s"))
+					        .filter(aEntry.getValue()::containsKey)
+					        .forEach(theSubj -> aExisting.addAll(aEntry.getValue().get(theSubj)));
+				}
+				finally {
+					aResults.close();
+				}
+			}
+		}
+
+		return aExisting;
+	}
+
 	/**
 	 * Return the type of the resource in the data source.
 	 * @param theSource the data source
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarkparsia.empire.ds;
+
+/**
+ * <p>Interface for a {@link MutableDataSource} which can execute SPARQL 1.1 Update requests.  Empire uses this to
+ * remove everything about an entity with a single request, rather than describing it and removing the result.</p>
+ *
+ * @author  Michael Grove
+ * @since   1.0
+ * @version 1.0
+ * @see MutableDataSource
+ */
+public interface SupportsSparqlUpdate extends MutableDataSource {
+
+	/**
+	 * Execute the SPARQL 1.1 Update request
+	 * @param theUpdate the update request
+	 * @throws DataSourceException thrown if the request is invalid, or there is an error while executing it
+	 */
+	public void update(String theUpdate) throws DataSourceException;
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarkparsia.empire.impl;
+
+import com.clarkparsia.empire.SupportsRdfId;
+import com.clarkparsia.empire.util.EmpireUtil;
+
+import com.complexible.common.openrdf.model.Models2;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Sets;
+
+import org.openrdf.model.Model;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A second-level cache of entity data shared by the {@link EntityManagerImpl EntityManagers} created by the same
+ * {@link EntityManagerFactoryImpl}.  The cache holds the describe of an individual, keyed by its {@link SupportsRdfId.RdfKey}
+ * and the bean class it was loaded as, rather than live objects, so every EntityManager still hydrates its own
+ * instances.  Entries are evicted when the cache grows past its maximum size or outlives its time to live, and are
+ * invalidated when an EntityManager adds or removes statements about the individual.</p>
+ *
+ * @author  Michael Grove
+ * @since   1.0
+ * @version 1.0
+ */
+public final class EntityCache {
+
+	/**
+	 * The cached describes
+	 */
+	private final Cache<Key, Model> mCache;
+
+	/**
+	 * The bean classes which have had an individual cached, used to find all the entries for an individual
+	 */
+	private final Set<Class<?>> mClasses = Sets.newConcurrentHashSet();
+
+	/**
+	 * Incremented by every invalidation, so a describe which was read before one is not cached after it
+	 */
+	private final AtomicLong mGeneration = new AtomicLong();
+
+	/**
+	 * Create a new EntityCache
+	 * @param theMaximumSize the maximum number of entries in the cache
+	 * @param theTimeToLive how long an entry is kept after it was cached, or a non-positive value to keep it until it is evicted by size or invalidated
+	 * @param theUnit the unit of the time to live
+	 */
+	public EntityCache(final long theMaximumSize, final long theTimeToLive, final TimeUnit theUnit) {
+		CacheBuilder<Object, Object> aBuilder = CacheBuilder.newBuilder()
+		                                                     .maximumSize(theMaximumSize)
+		                                                     .recordStats();
+
+		if (theTimeToLive > 0) {
+			aBuilder.expireAfterWrite(theTimeToLive, theUnit);
+		}
+
+		mCache = aBuilder.build();
+	}
+
+	/**
+	 * Return the cached describe of the individual when loaded as the given class
+	 * @param theKey the key of the individual
+	 * @param theClass the bean class
+	 * @return a copy of the describe, or null if it is not cached
+	 */
+	public Model get(final SupportsRdfId.RdfKey theKey, final Class<?> theClass) {
+		Model aGraph = mCache.getIfPresent(new Key(theKey, theClass));
+
+		return aGraph == null ? null : Models2.newModel(aGraph);
+	}
+
+	/**
+	 * Return the current generation of the cache, to be passed to {@link #put} with a describe read after calling this
+	 * @return the generation
+	 */
+	public long generation() {
+		return mGeneration.get();
+	}
+
+	/**
+	 * Cache the describe of the individual when loaded as the given class, unless the cache was invalidated since the
+	 * describe was read
+	 * @param theKey the key of the individual
+	 * @param theClass the bean class
+	 * @param theGraph the describe of the individual
+	 * @param theGeneration the {@link #generation} of the cache before the describe was read
+	 */
+	public void put(final SupportsRdfId.RdfKey theKey, final Class<?> theClass, final Model theGraph, final long theGeneration) {
+		if (theGeneration != mGeneration.get()) {
+			return;
+		}
+
+		mClasses.add(theClass);
+
+		mCache.put(new Key(theKey, theClass), Models2.newModel(theGraph));
+
+		// an invalidation could have happened while the describe was being put, and missed it
+		if (theGeneration != mGeneration.get()) {
+			mCache.invalidate(new Key(theKey, theClass));
+		}
+	}
+
+	/**
+	 * Invalidate the cached describes of the subjects of the given statements
+	 * @param theData the statements which were added to, or removed from, the data source
+	 */
+	public void invalidate(final Iterable<Statement> theData) {
+		Set<Resource> aSubjects = Sets.newHashSet();
+
+		for (Statement aStmt : theData) {
+			aSubjects.add(aStmt.getSubject());
+		}
+
+		for (Resource aSubject : aSubjects) {
+			invalidate(EmpireUtil.asPrimaryKey(aSubject));
+		}
+	}
+
+	/**
+	 * Invalidate the cached describes of the individual, regardless of the class it was loaded as
+	 * @param theKey the key of the individual
+	 */
+	public void invalidate(final SupportsRdfId.RdfKey theKey) {
+		mGeneration.incrementAndGet();
+
+		for (Class<?> aClass : mClasses) {
+			mCache.invalidate(new Key(theKey, aClass));
+		}
+	}
+
+	/**
+	 * Invalidate the entire cache
+	 */
+	public void invalidateAll() {
+		mGeneration.incrementAndGet();
+
+		mCache.invalidateAll();
+	}
+
+	/**
+	 * Return the number of entries in the cache
+	 * @return the number of entries
+	 */
+	public long size() {
+		return mCache.size();
+	}
+
+	/**
+	 * Return the number of lookups which found the individual in the cache
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return mCache.stats().hitCount();
+	}
+
+	/**
+	 * Return the number of lookups which did not find the individual in the cache
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return mCache.stats().missCount();
+	}
+
+	/**
+	 * Return the ratio of lookups which found the individual in the cache, 1.0 if there have been no lookups
+	 * @return the hit rate
+	 */
+	public double getHitRate() {
+		return mCache.stats().hitRate();
+	}
+
+	/**
+	 * Return the number of entries which were evicted because of the size or time to live of the cache.  This does
+	 * not include entries which were invalidated.
+	 * @return the eviction count
+	 */
+	public long getEvictionCount() {
+		return mCache.stats().evictionCount();
+	}
+
+	/**
+	 * Key of a cache entry, the key of the individual and the class it was loaded as
+	 */
+	private static final class Key {
+		private final SupportsRdfId.RdfKey mKey;
+		private final Class<?> mClass;
+
+		private Key(final SupportsRdfId.RdfKey theKey, final Class<?> theClass) {
+			mKey = theKey;
+			mClass = theClass;
+		}
+
+		/**
+		 * @inheritDoc
+		 */
+		@Override
+		public boolean equals(final Object theObj) {
+			if (this == theObj) {
+				return true;
+			}
+
+			if (!(theObj instanceof Key)) {
+				return false;
+			}
+
+			Key aKey = (Key) theObj;
+
+			return mKey.equals(aKey.mKey) && mClass.equals(aKey.mClass);
+		}
+
+		/**
+		 * @inheritDoc
+		 */
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(mKey, mClass);
+		}
+	}
+}
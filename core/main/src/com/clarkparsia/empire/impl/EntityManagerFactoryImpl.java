@@ -30,6 +30,7 @@ import java.util.HashMap;
 import java.util.Collection;
 import java.util.HashSet;
 import java.net.ConnectException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p>Implementation of the JPA {@link EntityManagerFactory} class to support creating Empire based
@@ -43,6 +44,78 @@ import java.net.ConnectException;
 public final class EntityManagerFactoryImpl implements EntityManagerFactory {
 
 	public static final String USE_EMPIRE_TRANSACTIONS = "use.empire.transactions";
+
+	/**
+	 * Configuration key to enable the second-level cache shared by the EntityManagers created by the factory
+	 * @see EntityCache
+	 */
+	public static final String SECOND_LEVEL_CACHE = "second.level.cache";
+
+	/**
+	 * Configuration key for the maximum number of entries in the second-level cache, defaults to {@link #DEFAULT_SECOND_LEVEL_CACHE_SIZE}
+	 */
+	public static final String SECOND_LEVEL_CACHE_SIZE = "second.level.cache.size";
+
+	/**
+	 * Configuration key for the number of seconds entries are kept in the second-level cache, by default they are kept
+	 * until they are evicted by size or invalidated
+	 */
+	public static final String SECOND_LEVEL_CACHE_TTL = "second.level.cache.ttl";
+
+	/**
+	 * The default maximum number of entries in the second-level cache
+	 */
+	public static final long DEFAULT_SECOND_LEVEL_CACHE_SIZE = 10000;
+
+	/**
+	 * Configuration key to enable the cache of query results shared by the EntityManagers created by the factory
+	 * @see QueryCache
+	 */
+	public static final String QUERY_CACHE = "query.cache";
+
+	/**
+	 * Configuration key for the maximum number of result rows held by the query cache, defaults to {@link #DEFAULT_QUERY_CACHE_SIZE}
+	 */
+	public static final String QUERY_CACHE_SIZE = "query.cache.size";
+
+	/**
+	 * Configuration key for the number of seconds results are kept in the query cache, by default they are kept
+	 * until they are evicted by size or invalidated
+	 */
+	public static final String QUERY_CACHE_TTL = "query.cache.ttl";
+
+	/**
+	 * The default maximum number of result rows held by the query cache
+	 */
+	public static final long DEFAULT_QUERY_CACHE_SIZE = 100000;
+
+	/**
+	 * Configuration key for how the EntityManagers verify their writes, one of the {@link VerificationPolicy} names,
+	 * defaults to {@link VerificationPolicy#NONE}
+	 */
+	public static final String VERIFICATION_POLICY = "verification.policy";
+
+	/**
+	 * Configuration key for the number of written entities verified by each write when the verification policy is
+	 * {@link VerificationPolicy#SAMPLED}, defaults to {@link #DEFAULT_VERIFICATION_SAMPLE_SIZE}
+	 */
+	public static final String VERIFICATION_SAMPLE_SIZE = "verification.sample.size";
+
+	/**
+	 * The default number of written entities verified by each write when sampling
+	 */
+	public static final int DEFAULT_VERIFICATION_SAMPLE_SIZE = 10;
+
+	/**
+	 * Configuration key for the number of entities written to the data source at once by the bulk operations of
+	 * {@link com.clarkparsia.empire.EmpireEntityManager}, defaults to {@link #DEFAULT_BULK_CHUNK_SIZE}
+	 */
+	public static final String BULK_CHUNK_SIZE = "bulk.chunk.size";
+
+	/**
+	 * The default number of entities written at once by the bulk operations
+	 */
+	public static final int DEFAULT_BULK_CHUNK_SIZE = 10000;
 	
 	/**
 	 * Factory for creating the DataSources backed by EntityManagers from this factory.
@@ -64,6 +137,16 @@ public final class EntityManagerFactoryImpl implements EntityManagerFactory {
 	 */
 	private Map<String, ?> mConfig;
 
+	/**
+	 * The second-level cache shared by the EntityManagers of this factory, or null if it is not enabled
+	 */
+	private EntityCache mCache;
+
+	/**
+	 * The cache of query results shared by the EntityManagers of this factory, or null if it is not enabled
+	 */
+	private QueryCache mQueryCache;
+
 	/**
 	 * Create a new AbstractEntityManagerFactory
      * @param theProvider the DataSourceFactory to use with this
@@ -82,6 +165,26 @@ public final class EntityManagerFactoryImpl implements EntityManagerFactory {
         mDataSourceFactoryProvider = theProvider;
 		
 		mConfig = theConfig;
+
+		if (isUseSecondLevelCache()) {
+			mCache = new EntityCache(mConfig.containsKey(SECOND_LEVEL_CACHE_SIZE)
+			                         ? Long.parseLong(mConfig.get(SECOND_LEVEL_CACHE_SIZE).toString())
+			                         : DEFAULT_SECOND_LEVEL_CACHE_SIZE,
+			                         mConfig.containsKey(SECOND_LEVEL_CACHE_TTL)
+			                         ? Long.parseLong(mConfig.get(SECOND_LEVEL_CACHE_TTL).toString())
+			                         : 0,
+			                         TimeUnit.SECONDS);
+		}
+
+		if (isUseQueryCache()) {
+			mQueryCache = new QueryCache(mConfig.containsKey(QUERY_CACHE_SIZE)
+			                             ? Long.parseLong(mConfig.get(QUERY_CACHE_SIZE).toString())
+			                             : DEFAULT_QUERY_CACHE_SIZE,
+			                             mConfig.containsKey(QUERY_CACHE_TTL)
+			                             ? Long.parseLong(mConfig.get(QUERY_CACHE_TTL).toString())
+			                             : 0,
+			                             TimeUnit.SECONDS);
+		}
 	}
 
 	/**
@@ -109,7 +212,25 @@ public final class EntityManagerFactoryImpl implements EntityManagerFactory {
 			
 			aSource.connect();
 
-			return new EntityManagerImpl( (MutableDataSource) aSource);
+			if (mQueryCache != null && aSource.getQueryFactory() instanceof RdfQueryFactory) {
+				((RdfQueryFactory) aSource.getQueryFactory()).setQueryCache(mQueryCache);
+			}
+
+			EntityManagerImpl aManager = new EntityManagerImpl( (MutableDataSource) aSource, mCache);
+
+			if (aConfig.containsKey(VERIFICATION_POLICY)) {
+				aManager.setVerificationPolicy(VerificationPolicy.valueOf(aConfig.get(VERIFICATION_POLICY).toString().toUpperCase()));
+			}
+
+			if (aConfig.containsKey(VERIFICATION_SAMPLE_SIZE)) {
+				aManager.setVerificationSampleSize(Integer.parseInt(aConfig.get(VERIFICATION_SAMPLE_SIZE).toString()));
+			}
+
+			if (aConfig.containsKey(BULK_CHUNK_SIZE)) {
+				aManager.setBulkChunkSize(Integer.parseInt(aConfig.get(BULK_CHUNK_SIZE).toString()));
+			}
+
+			return aManager;
 		}
 		catch (ConnectException e) {
 			throw new IllegalStateException("Could not connect to the data source", e);
@@ -123,6 +244,32 @@ public final class EntityManagerFactoryImpl implements EntityManagerFactory {
 		return mConfig.containsKey(USE_EMPIRE_TRANSACTIONS) && Boolean.parseBoolean(mConfig.get(USE_EMPIRE_TRANSACTIONS).toString());
 	}
 
+	private boolean isUseSecondLevelCache() {
+		return mConfig.containsKey(SECOND_LEVEL_CACHE) && Boolean.parseBoolean(mConfig.get(SECOND_LEVEL_CACHE).toString());
+	}
+
+	private boolean isUseQueryCache() {
+		return mConfig.containsKey(QUERY_CACHE) && Boolean.parseBoolean(mConfig.get(QUERY_CACHE).toString());
+	}
+
+	/**
+	 * Return the second-level cache shared by the EntityManagers created by this factory, which can be used to inspect
+	 * its statistics or invalidate it when the data source is modified outside of Empire.
+	 * @return the cache, or null if the second-level cache is not enabled
+	 */
+	public EntityCache getSecondLevelCache() {
+		return mCache;
+	}
+
+	/**
+	 * Return the cache of query results shared by the EntityManagers created by this factory, which can be used to
+	 * inspect its statistics or invalidate it when the data source is modified outside of Empire.
+	 * @return the cache, or null if the query cache is not enabled
+	 */
+	public QueryCache getQueryCache() {
+		return mQueryCache;
+	}
+
 	/**
 	 * @inheritDoc
 	 */
@@ -150,6 +297,14 @@ public final class EntityManagerFactoryImpl implements EntityManagerFactory {
 		mIsOpen = false;
 
 		cleanup();
+
+		if (mCache != null) {
+			mCache.invalidateAll();
+		}
+
+		if (mQueryCache != null) {
+			mQueryCache.invalidateAll();
+		}
 	}
 
 	/**
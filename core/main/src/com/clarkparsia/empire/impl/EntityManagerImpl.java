@@ -18,30 +18,46 @@ package com.clarkparsia.empire.impl;
 import com.clarkparsia.empire.ds.DataSourceException;
 import com.clarkparsia.empire.ds.MutableDataSource;
 import com.clarkparsia.empire.ds.SupportsNamedGraphs;
+import com.clarkparsia.empire.ds.SupportsSparqlUpdate;
 import com.clarkparsia.empire.SupportsRdfId;
 import com.clarkparsia.empire.ds.SupportsTransactions;
 import com.clarkparsia.empire.ds.DataSourceUtil;
 import com.clarkparsia.empire.ds.QueryException;
 import com.clarkparsia.empire.ds.impl.TransactionalDataSource;
 import com.clarkparsia.empire.Empire;
+import com.clarkparsia.empire.DirtyTracking;
+import com.clarkparsia.empire.EmpireEntityManager;
 import com.clarkparsia.empire.EmpireException;
 import com.clarkparsia.empire.EmpireGenerated;
 import com.clarkparsia.empire.EmpireOptions;
 
+import com.clarkparsia.empire.annotation.ClassMapping;
 import com.clarkparsia.empire.annotation.InvalidRdfException;
 import com.clarkparsia.empire.annotation.RdfGenerator;
 import com.clarkparsia.empire.annotation.RdfsClass;
 import com.clarkparsia.empire.annotation.AnnotationChecker;
+import com.clarkparsia.empire.annotation.runtime.ProxyAwareList;
+import com.clarkparsia.empire.codegen.InstanceGenerator;
 
 import com.complexible.common.openrdf.model.Models2;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.Primitives;
+import org.openrdf.model.BNode;
 import org.openrdf.model.Model;
+import org.openrdf.model.Statement;
+import org.openrdf.model.IRI;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Value;
+import org.openrdf.model.vocabulary.RDF;
 
+import javax.persistence.CascadeType;
 import javax.persistence.EntityExistsException;
-import javax.persistence.EntityManager;
 import javax.persistence.EntityNotFoundException;
 import javax.persistence.EntityTransaction;
 import javax.persistence.FlushModeType;
@@ -51,7 +67,6 @@ import javax.persistence.Query;
 
 import javax.persistence.Entity;
 import javax.persistence.PrePersist;
-import javax.persistence.EntityListeners;
 import javax.persistence.PostPersist;
 import javax.persistence.PostRemove;
 import javax.persistence.PostUpdate;
@@ -62,19 +77,22 @@ import javax.persistence.PreUpdate;
 import java.lang.annotation.Annotation;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
 
+import java.util.BitSet;
 import java.util.Map;
 import java.util.Collection;
-import java.util.LinkedHashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.HashSet;
 import java.util.Collections;
-import java.util.WeakHashMap;
 import java.util.Set;
+import java.util.Optional;
 
 import java.net.URI;
-import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.clarkparsia.empire.util.BeanReflectUtil.getAnnotatedFields;
 import static com.clarkparsia.empire.util.BeanReflectUtil.getAnnotatedGetters;
@@ -82,7 +100,6 @@ import static com.clarkparsia.empire.util.BeanReflectUtil.asSetter;
 import static com.clarkparsia.empire.util.BeanReflectUtil.safeGet;
 import static com.clarkparsia.empire.util.BeanReflectUtil.safeSet;
 import static com.clarkparsia.empire.util.BeanReflectUtil.hasAnnotation;
-import static com.clarkparsia.empire.util.BeanReflectUtil.getAnnotatedMethods;
 
 import com.clarkparsia.empire.util.EmpireUtil;
 import com.clarkparsia.empire.util.BeanReflectUtil;
@@ -101,7 +118,7 @@ import org.slf4j.LoggerFactory;
  * @see EntityManager
  * @see com.clarkparsia.empire.ds.DataSource
  */
-public final class EntityManagerImpl implements EntityManager {
+public final class EntityManagerImpl implements EmpireEntityManager {
 	/**
 	 * The logger
 	 */
@@ -123,9 +140,9 @@ public final class EntityManagerImpl implements EntityManager {
 	private EntityTransaction mTransaction;
 
 	/**
-	 * The Entity Listeners for our managed entities.
+	 * The instances of the EntityListener classes of our managed entities, empty for those which could not be created.
 	 */
-	private Map<Object, Collection<Object>> mManagedEntityListeners = new WeakHashMap<>();
+	private Map<Class<?>, Optional<Object>> mEntityListeners = Maps.newHashMap();
 
 	/**
 	 * The current collapsed view of a DataSourceOperation which is a merged set of adds & removes to the DataSource.
@@ -138,11 +155,65 @@ public final class EntityManagerImpl implements EntityManager {
 	 */
 	private Collection<Object> mCascadePending = new HashSet<>();
 
+	/**
+	 * The persistence context; the entities managed by this EntityManager keyed by their rdf id.  Entities become
+	 * managed when they are loaded by find, and finding a managed entity returns the managed instance without going
+	 * back to the data source.  Persist, merge and remove evict entities whose managed instance is out of date.
+	 */
+	private Map<SupportsRdfId.RdfKey, Object> mPersistenceContext = Maps.newHashMap();
+
+	/**
+	 * The second-level cache shared with the other EntityManagers of the factory, or null if there is none
+	 */
+	private final EntityCache mCache;
+
+	/**
+	 * The individuals which were written during the current transaction.  Their cache entries are invalidated again
+	 * when the transaction completes since the cache can be populated with uncommitted, or not yet visible, data in
+	 * the meantime.
+	 */
+	private Set<SupportsRdfId.RdfKey> mTransactionWrites = Sets.newHashSet();
+
+	/**
+	 * How writes to the data source are verified
+	 */
+	private VerificationPolicy mVerificationPolicy = VerificationPolicy.NONE;
+
+	/**
+	 * The number of written entities verified when writes are sampled
+	 */
+	private int mVerificationSampleSize = EntityManagerFactoryImpl.DEFAULT_VERIFICATION_SAMPLE_SIZE;
+
+	/**
+	 * When changes are written to the data source
+	 */
+	private FlushModeType mFlushMode = FlushModeType.AUTO;
+
+	/**
+	 * The changes which have not been written yet when the flush mode is {@link FlushModeType#COMMIT}.  They are
+	 * coalesced into a single operation which is executed when the EntityManager is flushed, or the transaction commits.
+	 */
+	private DataSourceOperation mPendingOp;
+
+	/**
+	 * The number of entities written at once by the bulk operations
+	 */
+	private int mBulkChunkSize = EntityManagerFactoryImpl.DEFAULT_BULK_CHUNK_SIZE;
+
 	/**
 	 * Create a new EntityManagerImpl
 	 * @param theSource the underlying RDF datasource used for persistence operations
 	 */
 	public EntityManagerImpl(MutableDataSource theSource) {
+		this(theSource, null);
+	}
+
+	/**
+	 * Create a new EntityManagerImpl
+	 * @param theSource the underlying RDF datasource used for persistence operations
+	 * @param theCache the second-level cache to load entities through, or null to always load them from the data source
+	 */
+	public EntityManagerImpl(MutableDataSource theSource, EntityCache theCache) {
 
 		// TODO: sparql for everything, just convert serql into sparql
 		// TODO: work like JPA/hibernate -- if something does not have a @Transient on it, convert it.  we'll just need to coin a URI in those cases
@@ -152,6 +223,39 @@ public final class EntityManagerImpl implements EntityManager {
 		mIsOpen = true;
 
 		mDataSource = theSource;
+		mCache = theCache;
+
+		if (theSource.getQueryFactory() instanceof RdfQueryFactory) {
+			// the query cache is shared with other entity managers, which must not see what this one has not committed
+			((RdfQueryFactory) theSource.getQueryFactory()).setUseQueryCache(() -> !hasUncommittedWrites());
+		}
+	}
+
+	/**
+	 * Set how the entities persisted or removed by this EntityManager are verified to be, or no longer be, in the
+	 * data source after they are written.  Defaults to {@link VerificationPolicy#NONE}.
+	 * @param thePolicy the verification policy
+	 */
+	public void setVerificationPolicy(final VerificationPolicy thePolicy) {
+		mVerificationPolicy = thePolicy;
+	}
+
+	/**
+	 * Set the number of written entities verified by each write when using {@link VerificationPolicy#SAMPLED}
+	 * @param theSampleSize the sample size
+	 */
+	public void setVerificationSampleSize(final int theSampleSize) {
+		mVerificationSampleSize = theSampleSize;
+	}
+
+	/**
+	 * Set the number of entities written to the data source at once by {@link #persistAll} and {@link #mergeAll}
+	 * @param theChunkSize the chunk size
+	 */
+	public void setBulkChunkSize(final int theChunkSize) {
+		Preconditions.checkArgument(theChunkSize > 0, "Chunk size must be positive");
+
+		mBulkChunkSize = theChunkSize;
 	}
 
 	/**
@@ -159,9 +263,39 @@ public final class EntityManagerImpl implements EntityManager {
 	 */
 	public void flush() {
 		assertOpen();
-		
-		// we'll do nothing here since our default implementation doesn't queue up changes, they're made
-		// as soon as remove/persist are called
+
+		// changes are only queued up with the commit flush mode, otherwise they're made as soon as
+		// remove/persist/merge are called and there is nothing to do
+		try {
+			flushPending();
+		}
+		catch (DataSourceException e) {
+			throw new PersistenceException(e);
+		}
+	}
+
+	/**
+	 * Write the pending changes to the data source, if there are any
+	 * @throws DataSourceException if there is an error while writing the changes
+	 */
+	private void flushPending() throws DataSourceException {
+		if (mPendingOp != null) {
+			DataSourceOperation aOp = mPendingOp;
+
+			mPendingOp = null;
+
+			aOp.execute();
+		}
+	}
+
+	/**
+	 * Flush the pending changes if any of them are to the given entity, so reading it from the data source sees them.
+	 * @param theKey the key of the entity
+	 */
+	private void flushIfWritten(final SupportsRdfId.RdfKey theKey) {
+		if (mPendingOp != null && theKey != null && mPendingOp.writes(EmpireUtil.asResource(EmpireUtil.asSupportsRdfId(theKey)))) {
+			flush();
+		}
 	}
 
 	/**
@@ -170,8 +304,10 @@ public final class EntityManagerImpl implements EntityManager {
 	public void setFlushMode(final FlushModeType theFlushModeType) {
 		assertOpen();
 
-		if (theFlushModeType != FlushModeType.AUTO) {
-			throw new IllegalArgumentException("Commit style flush mode not supported");
+		mFlushMode = theFlushModeType;
+
+		if (mFlushMode == FlushModeType.AUTO) {
+			flush();
 		}
 	}
 
@@ -181,7 +317,7 @@ public final class EntityManagerImpl implements EntityManager {
 	public FlushModeType getFlushMode() {
 		assertOpen();
 		
-		return FlushModeType.AUTO;
+		return mFlushMode;
 	}
 
 	/**
@@ -199,7 +335,8 @@ public final class EntityManagerImpl implements EntityManager {
 
 		assertContains(theObj);
 
-		Object aDbObj = find(theObj.getClass(), EmpireUtil.asSupportsRdfId(theObj).getRdfId());
+		// a refresh has to go back to the database, the managed instance is likely the one being refreshed
+		Object aDbObj = load(theObj.getClass(), EmpireUtil.asSupportsRdfId(theObj).getRdfId(), false);
 
         Collection<AccessibleObject> aAccessors = Sets.newHashSet();
 
@@ -223,6 +360,11 @@ public final class EntityManagerImpl implements EntityManager {
         catch (InvocationTargetException e) {
             throw new PersistenceException(e);
         }
+
+		// like a freshly loaded bean, the refreshed one has not been changed as far as the database is concerned
+		if (theObj instanceof DirtyTracking) {
+			((DirtyTracking) theObj).clearDirtyProperties();
+		}
     }
 
 	/**
@@ -231,6 +373,9 @@ public final class EntityManagerImpl implements EntityManager {
 	public void clear() {
 		assertOpen();
 
+		// like the managed entities, changes which have not been flushed are discarded
+		mPendingOp = null;
+
 		cleanState();
 	}
 
@@ -240,6 +385,12 @@ public final class EntityManagerImpl implements EntityManager {
 	public boolean contains(final Object theObj) {
 		assertStateOk(theObj);
 
+		if (mPersistenceContext.containsKey(EmpireUtil.asSupportsRdfId(theObj).getRdfId())) {
+			return true;
+		}
+
+		flushIfWritten(EmpireUtil.asSupportsRdfId(theObj).getRdfId());
+
 		try {
 			return DataSourceUtil.exists(getDataSource(), theObj);
 		}
@@ -309,6 +460,8 @@ public final class EntityManagerImpl implements EntityManager {
 			throw new IllegalStateException("EntityManager is already closed.");
 		}
 
+		flush();
+
 		getDataSource().disconnect();
 
 		mIsOpen = false;
@@ -320,7 +473,8 @@ public final class EntityManagerImpl implements EntityManager {
 	 * Clean up the current state of the EntityManager, release attached entities and the like.
 	 */
 	private void cleanState() {
-		mManagedEntityListeners.clear();
+		mEntityListeners.clear();
+		mPersistenceContext.clear();
 	}
 
 	/**
@@ -335,7 +489,33 @@ public final class EntityManagerImpl implements EntityManager {
 	 */
 	public EntityTransaction getTransaction() {
 		if (mTransaction == null) {
-			mTransaction = new DataSourceEntityTransaction(asSupportsTransactions());
+			final SupportsTransactions aSource = asSupportsTransactions();
+
+			mTransaction = new DataSourceEntityTransaction(new SupportsTransactions() {
+				public void begin() throws DataSourceException {
+					aSource.begin();
+				}
+
+				public void commit() throws DataSourceException {
+					flushPending();
+
+					aSource.commit();
+
+					invalidateTransactionWrites();
+					invalidateQueries();
+				}
+
+				public void rollback() throws DataSourceException {
+					// the managed entities may reflect changes which were just rolled back
+					mPersistenceContext.clear();
+					mPendingOp = null;
+
+					aSource.rollback();
+
+					invalidateTransactionWrites();
+					invalidateQueries();
+				}
+			});
 		}
 
 		return mTransaction;
@@ -350,7 +530,7 @@ public final class EntityManagerImpl implements EntityManager {
 		try {
 			assertNotContains(theObj);
 		}
-		catch (Throwable e) {
+		catch (RuntimeException e) {
 			throw new EntityExistsException(e);
 		}
 
@@ -370,12 +550,17 @@ public final class EntityManagerImpl implements EntityManager {
 				aOp.add(aData);
 			}
 
+			aOp.verifyAdd(theObj);
+
 			joinCurrentDataSourceOperation(aOp);
 
-			cascadeOperation(theObj, new IsPersistCascade(), new MergeCascade());
+			cascadeOperation(theObj, CascadeType.PERSIST, new MergeCascade());
 
 			finishCurrentDataSourceOperation(isTopOperation);
 
+			// the new entity is not managed, the next find will hydrate it from the database like any other
+			evict(theObj, null);
+
 			postPersist(theObj);
 		}
 		catch (InvalidRdfException ex) {
@@ -399,7 +584,19 @@ public final class EntityManagerImpl implements EntityManager {
 	private void finishCurrentDataSourceOperation(boolean theIsTop) throws DataSourceException {
 		if (theIsTop) {
 			mCascadePending.clear();
-			mOp.execute();
+
+			if (mFlushMode == FlushModeType.COMMIT) {
+				if (mPendingOp == null) {
+					mPendingOp = mOp;
+				}
+				else {
+					mPendingOp.append(mOp);
+				}
+			}
+			else {
+				mOp.execute();
+			}
+
 			mOp = null;
 		}
 	}
@@ -407,17 +604,96 @@ public final class EntityManagerImpl implements EntityManager {
 	/**
 	 * @inheritDoc
 	 */
-	@SuppressWarnings("unchecked")
 	public <T> T merge(final T theT) {
 		assertStateOk(theT);
 
+		Model aData;
+
+		try {
+			preUpdate(theT);
+
+			aData = asMergedRdf(theT);
+		}
+		catch (RuntimeException e) {
+			if (mTransaction != null) {
+				mTransaction.setRollbackOnly();
+			}
+
+			throw e;
+		}
+
+		return merge(theT, aData);
+	}
+
+	/**
+	 * Merge the entity, whose {@link PreUpdate} callbacks have been invoked
+	 * @param theT the entity
+	 * @param theData the entity as RDF, as returned by {@link #asMergedRdf}
+	 * @param <T> the type of the entity
+	 * @return the entity
+	 */
+	private <T> T merge(final T theT, final Model theData) {
+		boolean isTopOperation = (mOp == null);
+
+		try {
+			Runnable aMerged = joinMergeOperation(theT, theData);
+
+			finishCurrentDataSourceOperation(isTopOperation);
+
+			aMerged.run();
+
+			return theT;
+		}
+		catch (DataSourceException ex) {
+			throw new PersistenceException(ex);
+		}
+		catch (RuntimeException e) {
+			if (mTransaction != null) {
+				mTransaction.setRollbackOnly();
+			}
+
+			throw e;
+		}
+		finally {
+			if (isTopOperation) {
+				// written or failed, later operations must not join this one
+				mOp = null;
+			}
+		}
+	}
+
+	/**
+	 * Join the changes to the data of the entity, whose {@link PreUpdate} callbacks have been invoked, and those of the
+	 * merges cascaded from it, to the current operation.
+	 * @param theT the entity
+	 * @param theData the entity as RDF, as returned by {@link #asMergedRdf}
+	 * @return what is left to do once the operation has been written, updating the entity to reflect its data in the
+	 * database and invoking its {@link PostUpdate} callbacks
+	 */
+	private Runnable joinMergeOperation(final Object theT, final Model theData) {
+		Set<ClassMapping.PropertyMapping> aChanged = changedProperties(theT);
+		Resource aSubject = EmpireUtil.asResource(EmpireUtil.asSupportsRdfId(theT));
+
 		Model aExistingData = null;
-		
-		if (theT instanceof EmpireGenerated) {
+		Model aData = theData;
+
+		if (aChanged != null) {
+			// only the properties which could have changed were converted to rdf, so they are the only ones compared
+			Set<IRI> aProperties = aChanged.stream().map(ClassMapping.PropertyMapping::getProperty).collect(Collectors.toSet());
+
+			aExistingData = Models2.newModel(((EmpireGenerated) theT).getInstanceTriples().filter(aSubject, null, null).stream()
+			                                      .filter(theStmt -> aProperties.contains(theStmt.getPredicate()))
+			                                      .collect(Collectors.toList()));
+
+			aData = Models2.newModel(theData.filter(aSubject, null, null).stream()
+			                                .filter(theStmt -> aProperties.contains(theStmt.getPredicate()))
+			                                .collect(Collectors.toList()));
+		}
+		else if (theT instanceof EmpireGenerated) {
 			aExistingData = ((EmpireGenerated) theT).getInstanceTriples();
 		}
 
-		if (aExistingData == null || aExistingData.isEmpty()) {
+		if (aChanged == null && (aExistingData == null || aExistingData.isEmpty())) {
 			// it looks like this bean instance does not have instance triples set properly (for some reason)
 			// if we assume that aExistingData is empty, then no triples will be removed in the try/catch section below,
 			// which can lead to duplicate triples
@@ -425,9 +701,19 @@ public final class EntityManagerImpl implements EntityManager {
 			// while in ideal world, this situation should not occur, below is an attempt to alleviate the case (i.e.,
 			// find out what the instance triples actually are)
 			try {
+				flushIfWritten(EmpireUtil.asSupportsRdfId(theT).getRdfId());
+
 				if (theT instanceof EmpireGenerated) {
 					// if bean has been generated by Empire, then we can try to read its copy from the database, and use the triples from that copy
-					Object aDbObj = find(((EmpireGenerated) theT).getInterfaceClass(), EmpireUtil.asSupportsRdfId(theT).getRdfId());
+					// unless we're already managing a copy which knows what its triples are
+					Object aDbObj = mPersistenceContext.get(EmpireUtil.asSupportsRdfId(theT).getRdfId());
+
+					if (aDbObj == theT
+					    || !(aDbObj instanceof EmpireGenerated)
+					    || ((EmpireGenerated) aDbObj).getInstanceTriples() == null
+					    || ((EmpireGenerated) aDbObj).getInstanceTriples().isEmpty()) {
+						aDbObj = load(((EmpireGenerated) theT).getInterfaceClass(), EmpireUtil.asSupportsRdfId(theT).getRdfId(), false);
+					}
 
 					if (aDbObj != null) { 
 						aExistingData = ((EmpireGenerated) aDbObj).getInstanceTriples();
@@ -449,42 +735,201 @@ public final class EntityManagerImpl implements EntityManager {
 			}
 		}
 
+		if (aChanged == null && !aExistingData.isEmpty() && !aExistingData.contains(aSubject, RDF.TYPE, null)) {
+			// the existing data are the instance triples, which do not include the types of the entity.  those come
+			// from its class and don't change, so they're left out of the comparison rather than written every time
+			aData = Models2.newModel(aData.stream()
+			                              .filter(theStmt -> !(theStmt.getSubject().equals(aSubject) && theStmt.getPredicate().equals(RDF.TYPE)))
+			                              .collect(Collectors.toList()));
+		}
+
+		// only write what actually changed, rather than removing all the existing data and adding it all back
+		Model aRemoved = difference(aExistingData, aData);
+		Model aAdded = difference(aData, aExistingData);
+
+		DataSourceOperation aOp = new DataSourceOperation();
+
+		if (doesSupportNamedGraphs() && EmpireUtil.hasNamedGraphSpecified(theT)) {
+			java.net.URI aGraphURI = EmpireUtil.getNamedGraph(theT);
+
+			aOp.remove(aGraphURI, aRemoved);
+			aOp.add(aGraphURI, aAdded);
+		}
+		else {
+			aOp.remove(aRemoved);
+			aOp.add(aAdded);
+		}
+
+		joinCurrentDataSourceOperation(aOp);
+
+		// cascade the merge
+		cascadeOperation(theT, CascadeType.MERGE, new MergeCascade());
+
+		Model aMergedExistingData = aExistingData;
+		Model aMergedData = aData;
+
+		return () -> {
+			// the instance now knows what its data in the database is, so merging it again only writes what changes
+			// after this.  like when it is loaded, the types of the instance are not part of its instance triples.
+			if (aChanged != null) {
+				Model aInstanceTriples = Models2.newModel(((EmpireGenerated) theT).getInstanceTriples());
+				aInstanceTriples.removeAll(aMergedExistingData);
+				aInstanceTriples.addAll(aMergedData);
+
+				((EmpireGenerated) theT).setInstanceTriples(aInstanceTriples);
+			}
+			else if (theT instanceof EmpireGenerated) {
+				Model aInstanceTriples = Models2.newModel(aMergedData.filter(aSubject, null, null));
+				aInstanceTriples.remove(null, RDF.TYPE, null);
+
+				((EmpireGenerated) theT).setInstanceTriples(aInstanceTriples);
+			}
+
+			if (theT instanceof DirtyTracking) {
+				((DirtyTracking) theT).clearDirtyProperties();
+			}
+
+			// a different managed instance for the same entity is now out of date
+			evict(theT, theT);
+
+			postUpdate(theT);
+		};
+	}
+
+	/**
+	 * @inheritDoc
+	 */
+	public void persistAll(final Collection<?> theObjs) {
+		persistAll(theObjs.stream(), true);
+	}
+
+	/**
+	 * @inheritDoc
+	 */
+	public void persistAll(final Stream<?> theObjs, final boolean theCheckExists) {
+		assertOpen();
+
+		Iterator<? extends List<?>> aChunks = Iterators.partition(theObjs.iterator(), mBulkChunkSize);
+
+		while (aChunks.hasNext()) {
+			persistChunk(aChunks.next(), theCheckExists);
+		}
+	}
+
+	private void persistChunk(final List<?> theObjs, final boolean theCheckExists) {
+		theObjs.forEach(this::assertStateOk);
+
+		if (theCheckExists) {
+			assertNoneContained(theObjs);
+		}
+
 		try {
-			preUpdate(theT);
+			theObjs.forEach(this::prePersist);
 
-			Model aData = RdfGenerator.asRdf(theT);
+			// converting the entities to rdf is most of the work, and each one can be converted independently
+			List<Model> aData = theObjs.parallelStream().map(EntityManagerImpl::asRdf).collect(Collectors.toList());
 
 			boolean isTopOperation = (mOp == null);
 
 			DataSourceOperation aOp = new DataSourceOperation();
 
-			if (doesSupportNamedGraphs() && EmpireUtil.hasNamedGraphSpecified(theT)) {
-				java.net.URI aGraphURI = EmpireUtil.getNamedGraph(theT);
+			for (int i = 0; i < theObjs.size(); i++) {
+				Object aObj = theObjs.get(i);
 
-				aOp.remove(aGraphURI, aExistingData);
-				aOp.add(aGraphURI, aData);
-			}
-			else {
-				aOp.remove(aExistingData);
-				aOp.add(aData);
+				if (doesSupportNamedGraphs() && EmpireUtil.hasNamedGraphSpecified(aObj)) {
+					aOp.add(EmpireUtil.getNamedGraph(aObj), aData.get(i));
+				}
+				else {
+					aOp.add(aData.get(i));
+				}
+
+				aOp.verifyAdd(aObj);
 			}
 
 			joinCurrentDataSourceOperation(aOp);
 
-			// cascade the merge
-			cascadeOperation(theT, new IsMergeCascade(), new MergeCascade());
+			for (Object aObj : theObjs) {
+				cascadeOperation(aObj, CascadeType.PERSIST, new MergeCascade());
+			}
 
 			finishCurrentDataSourceOperation(isTopOperation);
 
-			postUpdate(theT);
+			for (Object aObj : theObjs) {
+				evict(aObj, null);
 
-            return theT;
+				postPersist(aObj);
+			}
 		}
 		catch (DataSourceException ex) {
 			throw new PersistenceException(ex);
 		}
-		catch (InvalidRdfException ex) {
-			throw new IllegalStateException(ex);
+		catch (RuntimeException e) {
+			if (mTransaction != null) {
+				mTransaction.setRollbackOnly();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * @inheritDoc
+	 */
+	public void mergeAll(final Collection<?> theObjs) {
+		mergeAll(theObjs.stream());
+	}
+
+	/**
+	 * @inheritDoc
+	 */
+	public void mergeAll(final Stream<?> theObjs) {
+		assertOpen();
+
+		Iterator<? extends List<?>> aChunks = Iterators.partition(theObjs.iterator(), mBulkChunkSize);
+
+		while (aChunks.hasNext()) {
+			mergeChunk(aChunks.next());
+		}
+	}
+
+	private void mergeChunk(final List<?> theObjs) {
+		theObjs.forEach(this::assertStateOk);
+
+		List<Model> aData;
+
+		try {
+			theObjs.forEach(this::preUpdate);
+
+			aData = theObjs.parallelStream().map(EntityManagerImpl::asMergedRdf).collect(Collectors.toList());
+		}
+		catch (RuntimeException e) {
+			if (mTransaction != null) {
+				mTransaction.setRollbackOnly();
+			}
+
+			throw e;
+		}
+
+		// each merge joins the operation of the chunk, like a cascaded merge would, so the chunk is written all at once
+		boolean isTopOperation = (mOp == null);
+
+		if (isTopOperation) {
+			mOp = new DataSourceOperation();
+		}
+
+		try {
+			List<Runnable> aMerged = Lists.newArrayListWithCapacity(theObjs.size());
+
+			for (int i = 0; i < theObjs.size(); i++) {
+				aMerged.add(joinMergeOperation(theObjs.get(i), aData.get(i)));
+			}
+
+			finishCurrentDataSourceOperation(isTopOperation);
+
+			// the entities only reflect their new data once the chunk has been written
+			aMerged.forEach(Runnable::run);
+		}
+		catch (DataSourceException ex) {
+			throw new PersistenceException(ex);
 		}
 		catch (RuntimeException e) {
 			if (mTransaction != null) {
@@ -493,6 +938,151 @@ public final class EntityManagerImpl implements EntityManager {
 
 			throw e;
 		}
+		finally {
+			if (isTopOperation) {
+				// written or failed, later operations must not join this one
+				mOp = null;
+			}
+		}
+	}
+
+	/**
+	 * Enforce that none of the objects exist in the database, checking all of them at once
+	 * @param theObjs the objects that should not exist
+	 * @throws EntityExistsException thrown if one of the objects already exists in the database
+	 */
+	private void assertNoneContained(final Collection<?> theObjs) {
+		List<Object> aUnmanaged = Lists.newArrayList();
+
+		for (Object aObj : theObjs) {
+			SupportsRdfId.RdfKey aKey = EmpireUtil.asSupportsRdfId(aObj).getRdfId();
+
+			if (mPersistenceContext.containsKey(aKey)) {
+				throw new EntityExistsException("Entity already exists: " + aObj);
+			}
+
+			flushIfWritten(aKey);
+
+			aUnmanaged.add(aObj);
+		}
+
+		try {
+			Set<Object> aExisting = DataSourceUtil.exists(getDataSource(), aUnmanaged);
+
+			if (!aExisting.isEmpty()) {
+				throw new EntityExistsException("Entity already exists: " + aExisting.iterator().next());
+			}
+		}
+		catch (QueryException e) {
+			throw new PersistenceException(e);
+		}
+	}
+
+	/**
+	 * Convert the entity to RDF for a merge.  For entities which keep track of their changes, only the properties which
+	 * could have changed are converted.
+	 * @param theObj the entity
+	 * @return the entity, or the properties of it which could have changed, as RDF
+	 * @throws IllegalStateException if the entity is not a valid Rdf entity
+	 */
+	private static Model asMergedRdf(final Object theObj) {
+		Set<ClassMapping.PropertyMapping> aChanged = changedProperties(theObj);
+
+		try {
+			return aChanged == null ? RdfGenerator.asRdf(theObj) : RdfGenerator.asRdf(theObj, aChanged::contains);
+		}
+		catch (InvalidRdfException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Return the properties of the entity which could have changed since it was loaded, or last merged.  Those are
+	 * the properties which were set since then, and those whose value can be changed without setting them, such as
+	 * collections.
+	 * @param theObj the entity
+	 * @return the properties which could have changed, or null if the entity does not keep track of its changes, or
+	 * it is not known what its data in the database is, in which case any of them could have
+	 */
+	private static Set<ClassMapping.PropertyMapping> changedProperties(final Object theObj) {
+		if (!(theObj instanceof DirtyTracking) || !(theObj instanceof EmpireGenerated)) {
+			return null;
+		}
+
+		Model aInstanceTriples = ((EmpireGenerated) theObj).getInstanceTriples();
+		List<String> aTracked = InstanceGenerator.getTrackedProperties(theObj.getClass());
+
+		if (aInstanceTriples == null || aInstanceTriples.isEmpty() || aTracked.isEmpty()) {
+			return null;
+		}
+
+		BitSet aDirty = ((DirtyTracking) theObj).getDirtyProperties();
+
+		Set<String> aTrackedGetters = Sets.newHashSet();
+		Set<String> aDirtyGetters = Sets.newHashSet();
+
+		for (int i = 0; i < aTracked.size(); i++) {
+			aTrackedGetters.addAll(InstanceGenerator.getterNames(aTracked.get(i)));
+
+			if (aDirty.get(i)) {
+				aDirtyGetters.addAll(InstanceGenerator.getterNames(aTracked.get(i)));
+			}
+		}
+
+		Set<ClassMapping.PropertyMapping> aChanged = Sets.newHashSet();
+
+		for (ClassMapping.PropertyMapping aProperty : ClassMapping.of(theObj.getClass()).getProperties()) {
+			if (!(aProperty.getAccessor() instanceof Method)) {
+				return null;
+			}
+
+			Method aGetter = (Method) aProperty.getAccessor();
+
+			if (aDirtyGetters.contains(aGetter.getName())
+			    || !aTrackedGetters.contains(aGetter.getName())
+			    || !isImmutable(aGetter.getReturnType())) {
+
+				// the values of lists are not just statements about the entity, so there's no comparing them on their own
+				if (aProperty.isList() || aProperty.getProperty() == null) {
+					return null;
+				}
+
+				aChanged.add(aProperty);
+			}
+		}
+
+		return aChanged;
+	}
+
+	/**
+	 * Return whether or not values of the type can only be changed by replacing them
+	 * @param theType the type
+	 * @return true if the values are immutable, false if they can be modified
+	 */
+	private static boolean isImmutable(final Class<?> theType) {
+		return theType.isPrimitive()
+		       || Primitives.isWrapperType(theType)
+		       || theType == String.class
+		       || theType == java.net.URI.class
+		       || theType.isEnum()
+		       || theType.getName().startsWith("java.time.")
+		       || Value.class.isAssignableFrom(theType)
+		       || SupportsRdfId.class.isAssignableFrom(theType);
+	}
+
+	/**
+	 * Convert the entity to RDF
+	 * @param theObj the entity
+	 * @return the entity as RDF
+	 * @throws IllegalStateException if the entity is not a valid Rdf entity
+	 */
+	private static Model asRdf(final Object theObj) {
+		try {
+			return RdfGenerator.asRdf(theObj);
+		}
+		catch (InvalidRdfException e) {
+			throw new IllegalStateException(e);
+		}
 	}
 
 	private void joinCurrentDataSourceOperation(final DataSourceOperation theOp) {
@@ -504,7 +1094,14 @@ public final class EntityManagerImpl implements EntityManager {
 		}
 	}
 
-	private <T> void cascadeOperation(T theT, CascadeTest theCascadeTest, CascadeAction theAction) {
+	private <T> void cascadeOperation(T theT, CascadeType theOperation, CascadeAction theAction) {
+		List<ClassMapping.PropertyMapping> aCascades = ClassMapping.of(theT.getClass()).getCascades(theOperation);
+
+		// most classes don't cascade anything
+		if (aCascades.isEmpty()) {
+			return;
+		}
+
 		// if we've already cascaded this, move on to the next thing, we don't want infinite loops
 		if (mCascadePending.contains(theT)) {
 			return;
@@ -513,25 +1110,22 @@ public final class EntityManagerImpl implements EntityManager {
 			mCascadePending.add(theT);
 		}
 
-		Collection<AccessibleObject> aAccessors = Sets.newHashSet();
-		
-		aAccessors.addAll(getAnnotatedFields(theT.getClass()));
-		aAccessors.addAll(getAnnotatedGetters(theT.getClass(), true));
+		// a proxy which has not been loaded cannot have been changed, so there is nothing to persist or merge and it's
+		// not loaded just to find that out.  removes still have to cascade to it though.
+		boolean aSkipUnloaded = theOperation != CascadeType.REMOVE;
 
-		for (AccessibleObject aObj : aAccessors) {
-			if (theCascadeTest.test(aObj)) {
-				try {
-					Object aAccessorValue = BeanReflectUtil.safeGet(aObj, theT);
-
-					if (aAccessorValue == null) {
-						continue;
-					}
+		for (ClassMapping.PropertyMapping aCascade : aCascades) {
+			try {
+				Object aAccessorValue = aCascade.get(theT);
 
-					theAction.test(aAccessorValue);
-				}
-				catch (Exception e) {
-					throw new PersistenceException(e);
+				if (aAccessorValue == null || (aSkipUnloaded && RdfGenerator.isUnloadedProxy(aAccessorValue))) {
+					continue;
 				}
+
+				theAction.cascadeTo(aAccessorValue, aSkipUnloaded);
+			}
+			catch (Exception e) {
+				throw new PersistenceException(e);
 			}
 		}
 	}
@@ -562,43 +1156,32 @@ public final class EntityManagerImpl implements EntityManager {
 		}
 	}
 
-	private class IsMergeCascade extends CascadeTest {
-		public boolean test(final AccessibleObject theValue) {
-			return BeanReflectUtil.isMergeCascade(theValue);
-		}
-	}
-
-	private class IsRemoveCascade extends CascadeTest {
-		public boolean test(final AccessibleObject theValue) {
-			return BeanReflectUtil.isRemoveCascade(theValue);
-		}
-	}
-
-	private class IsPersistCascade extends CascadeTest {
-		public boolean test(final AccessibleObject theValue) {
-			return BeanReflectUtil.isPersistCascade(theValue);
-		}
-	}
-
-	private abstract class CascadeTest implements Predicate<AccessibleObject> {
-	}
-
-	private abstract class CascadeAction implements Predicate<Object> {
+	private abstract class CascadeAction {
 		public abstract void cascade(Object theObj);
 
-		public final boolean test(Object theObj) {
+		/**
+		 * Cascade to the value of a property, or each of its values if it is a collection
+		 * @param theObj the value
+		 * @param theSkipUnloaded whether or not to skip values which are proxies that have not been loaded
+		 */
+		public final void cascadeTo(Object theObj, boolean theSkipUnloaded) {
 			// is it an error if you specify a cascade type for something that cannot be
 			// cascaded?  such as strings, or a non Entity instance?
-			if (Collection.class.isAssignableFrom(theObj.getClass())) {
-				for (Object aValue : (Collection) theObj) {
+			if (theSkipUnloaded && theObj instanceof ProxyAwareList) {
+				for (Object aValue : ((ProxyAwareList<?>) theObj).getLoaded()) {
 					cascade(aValue);
 				}
 			}
+			else if (Collection.class.isAssignableFrom(theObj.getClass())) {
+				for (Object aValue : (Collection) theObj) {
+					if (!theSkipUnloaded || !RdfGenerator.isUnloadedProxy(aValue)) {
+						cascade(aValue);
+					}
+				}
+			}
 			else {
 				cascade(theObj);
 			}
-
-			return true;
 		}
 	}
 
@@ -608,7 +1191,19 @@ public final class EntityManagerImpl implements EntityManager {
 	public void remove(final Object theObj) {
 		assertStateOk(theObj);
 
-		Model aData = assertContainsAndDescribe(theObj);
+		Resource aSubject = EmpireUtil.asResource(EmpireUtil.asSupportsRdfId(theObj));
+
+		boolean isRemovedBySubject = canRemoveBySubject(aSubject);
+
+		Model aData = null;
+
+		if (isRemovedBySubject) {
+			// the data is removed without being looked at, so only its existence needs checking
+			assertContains(theObj);
+		}
+		else {
+			aData = assertContainsAndDescribe(theObj);
+		}
 
 		try {
 			preRemove(theObj);
@@ -626,19 +1221,36 @@ public final class EntityManagerImpl implements EntityManager {
 			//Graph aData = RdfGenerator.asRdf(theObj);
 			//Graph aData = DataSourceUtil.describe(getDataSource(), theObj);
 
-			if (doesSupportNamedGraphs() && EmpireUtil.hasNamedGraphSpecified(theObj)) {
+			if (isRemovedBySubject) {
+				aOp.removeSubject(doesSupportNamedGraphs() && EmpireUtil.hasNamedGraphSpecified(theObj)
+				                  ? EmpireUtil.getNamedGraph(theObj)
+				                  : null,
+				                  aSubject);
+			}
+			else if (doesSupportNamedGraphs() && EmpireUtil.hasNamedGraphSpecified(theObj)) {
 				aOp.remove(EmpireUtil.getNamedGraph(theObj), aData);
 			}
 			else {
 				aOp.remove(aData);
 			}
 
+			aOp.verifyRemove(theObj);
+
 			joinCurrentDataSourceOperation(aOp);
 
-			cascadeOperation(theObj, new IsRemoveCascade(), new RemoveCascade());
+			cascadeOperation(theObj, CascadeType.REMOVE, new RemoveCascade());
+
+			// evicted before the operation is executed so that it's not taken to still be in the database when the
+			// remove is verified
+			evict(theObj, null);
 
 			finishCurrentDataSourceOperation(isTopOperation);
 
+			// none of its data is in the database anymore, so if it's persisted or merged again, all of it is written
+			if (theObj instanceof EmpireGenerated) {
+				((EmpireGenerated) theObj).setInstanceTriples(Models2.newModel());
+			}
+
 			postRemove(theObj);
 		}
 		catch (DataSourceException ex) {
@@ -652,6 +1264,20 @@ public final class EntityManagerImpl implements EntityManager {
 		}
 	}
 
+	/**
+	 * Return whether or not everything about the resource can be removed with a single SPARQL update, rather than
+	 * describing it and removing the result.  That requires a source which supports SPARQL 1.1 Update, and which
+	 * can roll the update back if it is part of a transaction, since our own transaction support has to know what
+	 * was removed.  Bnodes cannot be named in an update, so they are always described.
+	 * @param theSubject the resource to remove
+	 * @return true if the resource can be removed by subject, false otherwise
+	 */
+	private boolean canRemoveBySubject(final Resource theSubject) {
+		return getDataSource() instanceof SupportsSparqlUpdate
+		       && !(theSubject instanceof BNode)
+		       && (getDataSource() instanceof SupportsTransactions || mTransaction == null || !mTransaction.isActive());
+	}
+
 	/**
 	 * @inheritDoc
 	 */
@@ -665,13 +1291,66 @@ public final class EntityManagerImpl implements EntityManager {
 			throw new IllegalArgumentException(e);
 		}
 
+		SupportsRdfId.RdfKey aKey = EmpireUtil.asPrimaryKey(theObj);
+
+		Object aManaged = mPersistenceContext.get(aKey);
+
+		if (theClass.isInstance(aManaged)) {
+			return theClass.cast(aManaged);
+		}
+
+		flushIfWritten(aKey);
+
+		T aT = load(theClass, aKey, true);
+
+		if (aT != null && aManaged == null) {
+			manage(aT);
+		}
+
+		return aT;
+	}
+
+	/**
+	 * Load the entity with the given key, regardless of whether or not it is already managed
+	 * @param theClass the type of the entity
+	 * @param theKey the key of the entity
+	 * @param theUseCache whether or not the entity can be loaded from the second-level cache, otherwise it is loaded
+	 * from the data source and the second-level cache is updated with the result
+	 * @param <T> the type of the entity
+	 * @return the entity, or null if it does not exist
+	 */
+	private <T> T load(final Class<T> theClass, final Object theKey, final boolean theUseCache) {
 		try {
-			if (DataSourceUtil.exists(getDataSource(), EmpireUtil.asPrimaryKey(theObj))) {
-				T aT = RdfGenerator.fromRdf(theClass, EmpireUtil.asPrimaryKey(theObj), getDataSource());
+			SupportsRdfId.RdfKey aKey = EmpireUtil.asPrimaryKey(theKey);
+
+			Optional<T> aT;
+
+			if (mCache != null) {
+				Model aGraph = theUseCache ? mCache.get(aKey, theClass) : null;
+
+				if (aGraph == null) {
+					long aGeneration = mCache.generation();
+
+					aGraph = RdfGenerator.describe(theClass, aKey, getDataSource());
+
+					if (aGraph.isEmpty()) {
+						return null;
+					}
+
+					mCache.put(aKey, theClass, aGraph, aGeneration);
+				}
+
+				aT = Optional.of(RdfGenerator.fromRdf(theClass, aKey, aGraph, getDataSource()));
+			}
+			else {
+				// existence, type and data of the entity all come from the same describe, one round trip to the database
+				aT = RdfGenerator.fromRdfIfExists(theClass, aKey, getDataSource());
+			}
 
-				postLoad(aT);
+			if (aT.isPresent()) {
+				postLoad(aT.get());
 
-				return aT;
+				return aT.get();
 			}
 			else {
 				return null;
@@ -685,6 +1364,86 @@ public final class EntityManagerImpl implements EntityManager {
 		}
 	}
 
+	/**
+	 * @inheritDoc
+	 */
+	@Override
+	public <T> List<T> findAll(final Class<T> theClass, final Collection<?> theKeys) {
+		assertOpen();
+
+		try {
+			AnnotationChecker.assertValid(theClass);
+		}
+		catch (EmpireException e) {
+			throw new IllegalArgumentException(e);
+		}
+
+		List<SupportsRdfId.RdfKey> aKeys = theKeys.stream().map(EmpireUtil::asPrimaryKey).collect(Collectors.toList());
+
+		// like find, managed entities are returned as is, and the rest are loaded, a batch of them per query
+		Map<SupportsRdfId.RdfKey, T> aFound = Maps.newHashMap();
+		Set<SupportsRdfId.RdfKey> aToLoad = Sets.newLinkedHashSet();
+
+		try {
+			for (SupportsRdfId.RdfKey aKey : aKeys) {
+				Object aManaged = mPersistenceContext.get(aKey);
+
+				if (theClass.isInstance(aManaged)) {
+					aFound.put(aKey, theClass.cast(aManaged));
+					continue;
+				}
+
+				Model aCached = mCache != null ? mCache.get(aKey, theClass) : null;
+
+				if (aCached != null) {
+					T aT = RdfGenerator.fromRdf(theClass, aKey, aCached, getDataSource());
+
+					postLoad(aT);
+
+					aFound.put(aKey, aT);
+				}
+				else {
+					flushIfWritten(aKey);
+
+					aToLoad.add(aKey);
+				}
+			}
+
+			List<SupportsRdfId.RdfKey> aLoadKeys = Lists.newArrayList(aToLoad);
+			long aGeneration = mCache != null ? mCache.generation() : 0;
+
+			// like load, what was described goes into the second-level cache for the next time
+			List<T> aLoaded = RdfGenerator.fromRdfIfExists(theClass, aLoadKeys, getDataSource(), RdfGenerator.DEFAULT_BATCH_SIZE,
+			                                               (theKey, theGraph) -> {
+				                                               if (mCache != null) {
+					                                               mCache.put(theKey, theClass, theGraph, aGeneration);
+				                                               }
+			                                               });
+
+			for (int i = 0; i < aLoadKeys.size(); i++) {
+				if (aLoaded.get(i) != null) {
+					postLoad(aLoaded.get(i));
+
+					aFound.put(aLoadKeys.get(i), aLoaded.get(i));
+				}
+			}
+		}
+		catch (InvalidRdfException e) {
+			throw new IllegalArgumentException("Type is not valid, or object with key is not a valid Rdf Entity.", e);
+		}
+		catch (DataSourceException e) {
+			throw new PersistenceException(e);
+		}
+
+		for (T aT : aFound.values()) {
+			if (!mPersistenceContext.containsKey(EmpireUtil.asSupportsRdfId(aT).getRdfId())) {
+				manage(aT);
+			}
+		}
+
+		return aKeys.stream().map(aFound::get).collect(Collectors.toList());
+	}
+
 	/**
 	 * @inheritDoc
 	 */
@@ -700,6 +1459,121 @@ public final class EntityManagerImpl implements EntityManager {
 		return aObj;
 	}
 
+	/**
+	 * Add the entity to the persistence context
+	 * @param theObj the entity which is now managed
+	 */
+	private void manage(final Object theObj) {
+		SupportsRdfId.RdfKey aKey = EmpireUtil.asSupportsRdfId(theObj).getRdfId();
+
+		if (aKey != null) {
+			mPersistenceContext.put(aKey, theObj);
+		}
+	}
+
+	/**
+	 * Invalidate the second-level cache entries of the subjects of the data which was added to, or removed from, the
+	 * data source
+	 * @param theData the data
+	 */
+	private void invalidate(final Model theData) {
+		if (mCache == null) {
+			return;
+		}
+
+		mCache.invalidate(theData);
+
+		if (mTransaction != null && mTransaction.isActive()) {
+			for (Resource aSubject : theData.subjects()) {
+				mTransactionWrites.add(EmpireUtil.asPrimaryKey(aSubject));
+			}
+		}
+	}
+
+	/**
+	 * Invalidate the second-level cache entries of the individual
+	 * @param theSubject the individual which was written
+	 */
+	private void invalidate(final Resource theSubject) {
+		if (mCache == null) {
+			return;
+		}
+
+		mCache.invalidate(EmpireUtil.asPrimaryKey(theSubject));
+
+		if (mTransaction != null && mTransaction.isActive()) {
+			mTransactionWrites.add(EmpireUtil.asPrimaryKey(theSubject));
+		}
+	}
+
+	/**
+	 * Return whether or not this EntityManager has written data which is not committed, because there is an active
+	 * transaction, or because the writes are pending until the next flush
+	 * @return true if there are uncommitted writes, false otherwise
+	 */
+	private boolean hasUncommittedWrites() {
+		return (mTransaction != null && mTransaction.isActive()) || (mPendingOp != null && !mPendingOp.isEmpty());
+	}
+
+	/**
+	 * Invalidate the cached query results of the data source, if it caches them, since they may no longer be the results
+	 * of the queries after a write
+	 */
+	private void invalidateQueries() {
+		if (getDataSource().getQueryFactory() instanceof RdfQueryFactory) {
+			QueryCache aQueryCache = ((RdfQueryFactory) getDataSource().getQueryFactory()).getQueryCache();
+
+			if (aQueryCache != null) {
+				aQueryCache.invalidateAll();
+			}
+		}
+	}
+
+	/**
+	 * Invalidate the second-level cache entries of the individuals written during the transaction which just completed
+	 */
+	private void invalidateTransactionWrites() {
+		if (mCache != null) {
+			for (SupportsRdfId.RdfKey aKey : mTransactionWrites) {
+				mCache.invalidate(aKey);
+			}
+		}
+
+		mTransactionWrites.clear();
+	}
+
+	/**
+	 * Remove the entity from the persistence context unless it is the given instance
+	 * @param theObj the entity
+	 * @param theKeep the instance to keep managed, or null to always remove the entity
+	 */
+	private void evict(final Object theObj, final Object theKeep) {
+		SupportsRdfId.RdfKey aKey = EmpireUtil.asSupportsRdfId(theObj).getRdfId();
+
+		if (aKey != null && mPersistenceContext.get(aKey) != theKeep) {
+			mPersistenceContext.remove(aKey);
+		}
+	}
+
+	/**
+	 * Return the statements of the first graph which are not in the second.  Named graphs are not taken into account,
+	 * the statements of an entity are always written to the same one.
+	 * @param theGraph the graph
+	 * @param theOther the graph to subtract
+	 * @return the difference
+	 */
+	private static Model difference(final Model theGraph, final Model theOther) {
+		Model aDiff = Models2.newModel();
+
+		for (Statement aStmt : theGraph) {
+			if (!theOther.contains(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject())) {
+				aDiff.add(aStmt);
+			}
+		}
+
+		return aDiff;
+	}
+
 	/**
 	 * Enforce that the object exists in the database
 	 * @param theObj the object that should exist
@@ -722,6 +1596,8 @@ public final class EntityManagerImpl implements EntityManager {
 	private Model assertContainsAndDescribe(Object theObj) {
 		assertStateOk(theObj);
 
+		flushIfWritten(EmpireUtil.asSupportsRdfId(theObj).getRdfId());
+
 		try {
 			Model aGraph = DataSourceUtil.describe(getDataSource(), theObj);
 
@@ -922,75 +1798,42 @@ public final class EntityManagerImpl implements EntityManager {
 			return;
 		}
 
-		Collection<Method> aMethods = getAnnotatedMethods(theObj.getClass(), theLifecycleAnnotation);
-
-		Throwable aError = null;
-
-		// Entity methods take no arguments...
 		try {
-			for (Method aMethod : aMethods) {
-				aMethod.invoke(theObj);
+			LifecycleCallbacks aCallbacks = LifecycleCallbacks.of(theObj.getClass());
+
+			if (!aCallbacks.isEmpty()) {
+				aCallbacks.invoke(theObj, theLifecycleAnnotation, this::getEntityListener);
 			}
 		}
-		catch (Exception e) {
+		catch (Error e) {
+			throw e;
+		}
+		catch (Throwable e) {
 			LOGGER.info("There was an error during entity lifecycle notification for annotation: " +
 						 theLifecycleAnnotation + " on object: " + theObj +".", e);
 
 			Throwables.propagateIfInstanceOf(e, PersistenceException.class);
 			throw new PersistenceException(e);
 		}
-
-		for (Object aListener : getEntityListeners(theObj)) {
-			Collection<Method> aListenerMethods = getAnnotatedMethods(aListener.getClass(), theLifecycleAnnotation);
-
-			// EntityListeners methods take a single arguement, the entity
-			try {
-				for (Method aListenerMethod : aListenerMethods) {
-					aListenerMethod.invoke(aListener, theObj);
-				}
-			}
-			catch (Exception e) {
-				LOGGER.info("There was an error during lifecycle notification for annotation: " +
-							 theLifecycleAnnotation + " on object: " + theObj + ".", e);
-
-				Throwables.propagateIfInstanceOf(e, PersistenceException.class);
-				throw new PersistenceException(e);
-			}
-		}
 	}
 
 	/**
-	 * Get or create the list of EntityListeners for an object.  If a list is created, it will be kept around and
-	 * re-used for later persistence operations.
-	 * @param theObj the object to get EntityLIsteners for
-	 * @return the list of EntityListeners for the object, or null if they do not exist
+	 * Get or create the instance of an EntityListener class.  Once created, it will be kept around and re-used for
+	 * later persistence operations.  So is a failure to create it, it is only reported, and attempted, once.
+	 * @param theClass the EntityListener class
+	 * @return the instance of the EntityListener, or null if it could not be created
 	 */
-	private Collection<Object> getEntityListeners(final Object theObj) {
-		Collection<Object> aListeners = mManagedEntityListeners.get(theObj);
-
-		if (aListeners == null) {
-			EntityListeners aEntityListeners = BeanReflectUtil.getAnnotation(theObj.getClass(), EntityListeners.class);
-			
-			if (aEntityListeners != null) {
-				// if there are entity listeners, lets create them
-				aListeners = new LinkedHashSet<>();
-				for (Class<?> aClass : aEntityListeners.value()) {
-					try {
-						aListeners.add(Empire.get().instance(aClass));
-					}
-					catch (Exception e) {
-						LOGGER.error("There was an error instantiating an EntityListener. ", e);
-					}
-				}
-
-				mManagedEntityListeners.put(theObj, aListeners);
-			}
-			else {
-				aListeners = Collections.emptyList();
+	private Object getEntityListener(final Class<?> theClass) {
+		return mEntityListeners.computeIfAbsent(theClass, theKey -> {
+			try {
+				return Optional.ofNullable(Empire.get().instance(theKey));
 			}
-		}
+			catch (Exception e) {
+				LOGGER.error("There was an error instantiating an EntityListener, its callbacks will not be invoked. ", e);
 
-		return aListeners;
+				return Optional.empty();
+			}
+		}).orElse(null);
 	}
 
 	/**
@@ -1008,6 +1851,11 @@ public final class EntityManagerImpl implements EntityManager {
 		private final Map<java.net.URI, Model> mAdd;
 		private final Map<java.net.URI, Model> mRemove;
 
+		/**
+		 * The resources everything about which is removed, with a SPARQL update, by named graph
+		 */
+		private final Map<java.net.URI, Set<Resource>> mRemoveSubjects;
+
 		private final Set<Object> mVerifyAdd = Sets.newHashSet();
 		private final Set<Object> mVerifyRemove = Sets.newHashSet();
 
@@ -1017,6 +1865,7 @@ public final class EntityManagerImpl implements EntityManager {
 		DataSourceOperation() {
 			mAdd = Maps.newHashMap();
 			mRemove = Maps.newHashMap();
+			mRemoveSubjects = Maps.newHashMap();
 		}
 
 		/**
@@ -1028,11 +1877,22 @@ public final class EntityManagerImpl implements EntityManager {
 		public void execute() throws DataSourceException {
 			// TODO: should this be in its own transaction?  or join the current one?
 
+			// nothing changed, such as when merging an entity which was not modified
+			if (isEmpty()) {
+				return;
+			}
+
             if (getDataSource() instanceof SupportsTransactions) {
                 ((SupportsTransactions)getDataSource()).begin();
             }
 
             try {
+                for (URI aGraphURI : mRemoveSubjects.keySet()) {
+                    // one request for all of them, however many there are
+                    ((SupportsSparqlUpdate) getDataSource()).update(DataSourceUtil.removeUpdate(mRemoveSubjects.get(aGraphURI),
+                                                                                                doesSupportNamedGraphs() ? aGraphURI : null));
+                }
+
                 for (URI aGraphURI : mRemove.keySet()) {
                     if (doesSupportNamedGraphs() && aGraphURI != null) {
                         asSupportsNamedGraphs().remove(aGraphURI, mRemove.get(aGraphURI));
@@ -1055,6 +1915,16 @@ public final class EntityManagerImpl implements EntityManager {
                     ((SupportsTransactions)getDataSource()).commit();
                 }
 
+                for (Model aData : Iterables.concat(mRemove.values(), mAdd.values())) {
+                    invalidate(aData);
+                }
+
+                for (Resource aSubject : Iterables.concat(mRemoveSubjects.values())) {
+                    invalidate(aSubject);
+                }
+
+                invalidateQueries();
+
                 verify();
             }
             catch (DataSourceException e) {
@@ -1087,19 +1957,54 @@ public final class EntityManagerImpl implements EntityManager {
 		 * @throws PersistenceException if an add or remove failed for any reason
 		 */
 		private void verify() {
-			for (Object aObj : mVerifyRemove) {
-				if (contains(aObj)) {
+			if (mVerificationPolicy == VerificationPolicy.NONE || (mVerifyAdd.isEmpty() && mVerifyRemove.isEmpty())) {
+				return;
+			}
+
+			Collection<Object> aRemoved = mVerifyRemove;
+			Collection<Object> aAdded = mVerifyAdd;
+
+			if (mVerificationPolicy == VerificationPolicy.SAMPLED) {
+				List<Object> aSample = Lists.newArrayList(Iterables.concat(mVerifyRemove, mVerifyAdd));
+
+				if (aSample.size() > mVerificationSampleSize) {
+					Collections.shuffle(aSample);
+					aSample = aSample.subList(0, mVerificationSampleSize);
+
+					aRemoved = aSample.stream().filter(mVerifyRemove::contains).collect(Collectors.toList());
+					aAdded = aSample.stream().filter(mVerifyAdd::contains).collect(Collectors.toList());
+				}
+			}
+
+			// managed entities are known to be in the database, everything else is checked in one go
+			Set<Object> aExisting;
+
+			try {
+				aExisting = DataSourceUtil.exists(getDataSource(),
+				                                  Lists.newArrayList(Iterables.filter(Iterables.concat(aRemoved, aAdded),
+				                                                                      theObj -> !isManaged(theObj))));
+			}
+			catch (QueryException e) {
+				throw new PersistenceException(e);
+			}
+
+			for (Object aObj : aRemoved) {
+				if (isManaged(aObj) || aExisting.contains(aObj)) {
 					throw new PersistenceException("Remove failed for object: " + aObj.getClass() + " -> " + EmpireUtil.asSupportsRdfId(aObj).getRdfId());
 				}
 			}
 
-			for (Object aObj : mVerifyAdd) {
-				if (!contains(aObj)) {
+			for (Object aObj : aAdded) {
+				if (!isManaged(aObj) && !aExisting.contains(aObj)) {
 					throw new PersistenceException("Addition failed for object: " + aObj.getClass() + " -> " + EmpireUtil.asSupportsRdfId(aObj).getRdfId());
 				}
 			}
 		}
 
+		private boolean isManaged(final Object theObj) {
+			return mPersistenceContext.containsKey(EmpireUtil.asSupportsRdfId(theObj).getRdfId());
+		}
+
 		/**
 		 * Add this graph to the set of data to be added when this operation is executed
 		 * @param theGraph the graph to be added
@@ -1150,21 +2055,110 @@ public final class EntityManagerImpl implements EntityManager {
 			mRemove.put(theGraphURI, aGraph);
 		}
 
+		/**
+		 * Remove everything about the resource, from the specified named graph, when this operation is executed.  This
+		 * requires a data source which {@link SupportsSparqlUpdate supports SPARQL updates}.
+		 * @param theGraphURI the named graph the resource should be removed from, or null for the default graph
+		 * @param theSubject the resource to remove
+		 */
+		public void removeSubject(final java.net.URI theGraphURI, final Resource theSubject) {
+			mRemoveSubjects.computeIfAbsent(theGraphURI, theKey -> Sets.newHashSet()).add(theSubject);
+		}
+
 		/**
 		 * Merge the operation with this one.  This will merge all the changes being tracked into a single operation.
 		 * @param theOp the operation to merge
 		 */
 		public void merge(final DataSourceOperation theOp) {
+			for (Map.Entry<URI, Set<Resource>> aEntry : theOp.mRemoveSubjects.entrySet()) {
+				aEntry.getValue().forEach(aSubject -> removeSubject(aEntry.getKey(), aSubject));
+			}
+
+			for (Map.Entry<URI, Model> aEntry : theOp.mRemove.entrySet()) {
+				remove(aEntry.getKey(), aEntry.getValue());
+			}
+
+			for (Map.Entry<URI, Model> aEntry : theOp.mAdd.entrySet()) {
+				add(aEntry.getKey(), aEntry.getValue());
+			}
+
+			mVerifyAdd.addAll(theOp.mVerifyAdd);
+			mVerifyRemove.addAll(theOp.mVerifyRemove);
+		}
+
+		/**
+		 * Append the operation to this one, as if it were executed after it.  Unlike {@link #merge}, data removed by the
+		 * operation is no longer added by this one, and vice versa, so executing the result has the same effect as
+		 * executing the two operations one after the other.
+		 * @param theOp the operation to append
+		 */
+		public void append(final DataSourceOperation theOp) {
+			for (Map.Entry<URI, Set<Resource>> aEntry : theOp.mRemoveSubjects.entrySet()) {
+				Model aAdded = mAdd.get(aEntry.getKey());
+
+				for (Resource aSubject : aEntry.getValue()) {
+					if (aAdded != null) {
+						aAdded.removeAll(DataSourceUtil.closure(aAdded, aSubject));
+					}
+
+					removeSubject(aEntry.getKey(), aSubject);
+				}
+			}
+
 			for (Map.Entry<URI, Model> aEntry : theOp.mRemove.entrySet()) {
+				if (mAdd.containsKey(aEntry.getKey())) {
+					mAdd.get(aEntry.getKey()).removeAll(aEntry.getValue());
+				}
+
 				remove(aEntry.getKey(), aEntry.getValue());
 			}
 
 			for (Map.Entry<URI, Model> aEntry : theOp.mAdd.entrySet()) {
+				if (mRemove.containsKey(aEntry.getKey())) {
+					mRemove.get(aEntry.getKey()).removeAll(aEntry.getValue());
+				}
+
 				add(aEntry.getKey(), aEntry.getValue());
 			}
 
+			mVerifyAdd.removeAll(theOp.mVerifyRemove);
+			mVerifyRemove.removeAll(theOp.mVerifyAdd);
+
 			mVerifyAdd.addAll(theOp.mVerifyAdd);
 			mVerifyRemove.addAll(theOp.mVerifyRemove);
 		}
+
+		/**
+		 * Return whether or not this operation does nothing, that is, it neither changes nor verifies anything
+		 * @return true if the operation is empty, false otherwise
+		 */
+		public boolean isEmpty() {
+			for (Model aGraph : Iterables.concat(mRemove.values(), mAdd.values())) {
+				if (!aGraph.isEmpty()) {
+					return false;
+				}
+			}
+
+			if (mRemoveSubjects.values().stream().anyMatch(theSubjects -> !theSubjects.isEmpty())) {
+				return false;
+			}
+
+			return mVerifyAdd.isEmpty() && mVerifyRemove.isEmpty();
+		}
+
+		/**
+		 * Return whether or not this operation adds or removes any data about the given resource
+		 * @param theSubject the resource
+		 * @return true if the resource is written by this operation, false otherwise
+		 */
+		public boolean writes(final Resource theSubject) {
+			for (Model aGraph : Iterables.concat(mRemove.values(), mAdd.values())) {
+				if (aGraph.contains(theSubject, null, null)) {
+					return true;
+				}
+			}
+
+			return mRemoveSubjects.values().stream().anyMatch(theSubjects -> theSubjects.contains(theSubject));
+		}
 	}
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarkparsia.empire.impl;
+
+import com.clarkparsia.empire.util.BeanReflectUtil;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import javax.persistence.EntityListeners;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import javax.persistence.PrePersist;
+import javax.persistence.PreRemove;
+import javax.persistence.PreUpdate;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * <p>The lifecycle callbacks of an entity class, such as its {@link PrePersist} or {@link PostLoad} methods and those
+ * of its {@link EntityListeners}.  They are looked up once per class and invoked through {@link MethodHandle MethodHandles},
+ * and most classes have none at all, in which case there is nothing to do for any lifecycle event.</p>
+ *
+ * @author  Michael Grove
+ * @since   1.0
+ * @version 1.0
+ */
+final class LifecycleCallbacks {
+
+	/**
+	 * The lifecycle events
+	 */
+	private static final List<Class<? extends Annotation>> EVENTS = ImmutableList.of(PrePersist.class, PostPersist.class,
+	                                                                                  PreRemove.class, PostRemove.class,
+	                                                                                  PreUpdate.class, PostUpdate.class,
+	                                                                                  PostLoad.class);
+
+	private static final MethodType CALLBACK_TYPE = MethodType.methodType(void.class, Object.class);
+
+	private static final MethodType LISTENER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	/**
+	 * The callbacks, by class
+	 */
+	private static final Map<Class<?>, LifecycleCallbacks> CALLBACKS = Maps.newConcurrentMap();
+
+	/**
+	 * The callback methods of the entity class, by event
+	 */
+	private final Map<Class<? extends Annotation>, List<MethodHandle>> mCallbacks;
+
+	/**
+	 * The callback methods of the entity listeners, by event
+	 */
+	private final Map<Class<? extends Annotation>, List<ListenerCallback>> mListenerCallbacks;
+
+	private LifecycleCallbacks(final Class<?> theClass) {
+		ImmutableMap.Builder<Class<? extends Annotation>, List<MethodHandle>> aCallbacks = ImmutableMap.builder();
+		ImmutableMap.Builder<Class<? extends Annotation>, List<ListenerCallback>> aListenerCallbacks = ImmutableMap.builder();
+
+		EntityListeners aEntityListeners = BeanReflectUtil.getAnnotation(theClass, EntityListeners.class);
+
+		for (Class<? extends Annotation> aEvent : EVENTS) {
+			ImmutableList.Builder<MethodHandle> aHandles = ImmutableList.builder();
+
+			for (Method aMethod : BeanReflectUtil.getAnnotatedMethods(theClass, aEvent)) {
+				aHandles.add(handle(aMethod, CALLBACK_TYPE));
+			}
+
+			ImmutableList.Builder<ListenerCallback> aListenerHandles = ImmutableList.builder();
+
+			if (aEntityListeners != null) {
+				for (Class<?> aListener : aEntityListeners.value()) {
+					for (Method aMethod : BeanReflectUtil.getAnnotatedMethods(aListener, aEvent)) {
+						aListenerHandles.add(new ListenerCallback(aListener, handle(aMethod, LISTENER_TYPE)));
+					}
+				}
+			}
+
+			List<MethodHandle> aEventCallbacks = aHandles.build();
+			List<ListenerCallback> aEventListenerCallbacks = aListenerHandles.build();
+
+			if (!aEventCallbacks.isEmpty()) {
+				aCallbacks.put(aEvent, aEventCallbacks);
+			}
+
+			if (!aEventListenerCallbacks.isEmpty()) {
+				aListenerCallbacks.put(aEvent, aEventListenerCallbacks);
+			}
+		}
+
+		mCallbacks = aCallbacks.build();
+		mListenerCallbacks = aListenerCallbacks.build();
+	}
+
+	/**
+	 * Return the lifecycle callbacks of the class
+	 * @param theClass the class
+	 * @return the callbacks
+	 */
+	static LifecycleCallbacks of(final Class<?> theClass) {
+		LifecycleCallbacks aCallbacks = CALLBACKS.get(theClass);
+
+		if (aCallbacks == null) {
+			// looking the callbacks up twice is harmless, so there's no need to hold a lock while doing it
+			aCallbacks = new LifecycleCallbacks(theClass);
+
+			LifecycleCallbacks aExisting = CALLBACKS.putIfAbsent(theClass, aCallbacks);
+
+			if (aExisting != null) {
+				aCallbacks = aExisting;
+			}
+		}
+
+		return aCallbacks;
+	}
+
+	/**
+	 * Return whether or not the class has any callbacks
+	 * @return true if there are no callbacks for any event, false otherwise
+	 */
+	boolean isEmpty() {
+		return mCallbacks.isEmpty() && mListenerCallbacks.isEmpty();
+	}
+
+	/**
+	 * Invoke the callbacks for the event; first those of the entity itself, then those of its listeners.
+	 * @param theObj the entity
+	 * @param theEvent the annotation denoting the event, such as {@link PrePersist}, {@link PostLoad}, etc.
+	 * @param theListeners the function which provides the instance of an entity listener class, or null if it cannot
+	 *                     be created, in which case its callbacks are skipped
+	 * @throws Throwable whatever is thrown by a callback
+	 */
+	void invoke(final Object theObj, final Class<? extends Annotation> theEvent,
+	            final Function<Class<?>, Object> theListeners) throws Throwable {
+		List<MethodHandle> aCallbacks = mCallbacks.get(theEvent);
+
+		if (aCallbacks != null) {
+			// Entity methods take no arguments...
+			for (MethodHandle aCallback : aCallbacks) {
+				aCallback.invokeExact(theObj);
+			}
+		}
+
+		List<ListenerCallback> aListenerCallbacks = mListenerCallbacks.get(theEvent);
+
+		if (aListenerCallbacks != null) {
+			// EntityListeners methods take a single argument, the entity
+			for (ListenerCallback aCallback : aListenerCallbacks) {
+				Object aListener = theListeners.apply(aCallback.mListener);
+
+				if (aListener != null) {
+					aCallback.mHandle.invokeExact(aListener, theObj);
+				}
+			}
+		}
+	}
+
+	private static MethodHandle handle(final Method theMethod, final MethodType theType) {
+		// callbacks are public, but their classes need not be
+		boolean aOldAccess = BeanReflectUtil.setAccessible(theMethod, true);
+
+		try {
+			return MethodHandles.lookup().unreflect(theMethod).asType(theType);
+		}
+		catch (IllegalAccessException e) {
+			throw new IllegalStateException("Cannot access " + theMethod, e);
+		}
+		finally {
+			BeanReflectUtil.setAccessible(theMethod, aOldAccess);
+		}
+	}
+
+	/**
+	 * A callback method of an entity listener class
+	 */
+	private static final class ListenerCallback {
+		private final Class<?> mListener;
+		private final MethodHandle mHandle;
+
+		private ListenerCallback(final Class<?> theListener, final MethodHandle theHandle) {
+			mListener = theListener;
+			mHandle = theHandle;
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarkparsia.empire.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+
+import org.openrdf.query.BindingSet;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A cache of the results of select queries, shared by the {@link RdfQuery queries} of the {@link RdfQueryFactory}
+ * it is set on.  Entries are keyed by the query string, with its parameters bound, and the bean class and projection
+ * variable of the query, and hold the rows of the result rather than beans, so every query still hydrates its own
+ * instances.  The cache is bounded by the total number of rows it holds, and is invalidated in its entirety whenever
+ * an {@link EntityManagerImpl} using the factory writes to the data source.</p>
+ *
+ * @author  Michael Grove
+ * @since   1.0
+ * @version 1.0
+ */
+public final class QueryCache {
+
+	/**
+	 * The cached rows, by query
+	 */
+	private final Cache<List<Object>, List<BindingSet>> mCache;
+
+	/**
+	 * The maximum number of rows held by the cache
+	 */
+	private final long mMaximumRows;
+
+	/**
+	 * Incremented every time the cache is invalidated, so results of queries which were running at the time are not cached
+	 */
+	private final AtomicLong mGeneration = new AtomicLong();
+
+	/**
+	 * Create a new QueryCache
+	 * @param theMaximumRows the maximum number of result rows held by the cache, each entry counts as at least one
+	 * @param theTimeToLive how long an entry is kept after it was cached, or a non-positive value to keep it until it is evicted by size or invalidated
+	 * @param theUnit the unit of the time to live
+	 */
+	public QueryCache(final long theMaximumRows, final long theTimeToLive, final TimeUnit theUnit) {
+		mMaximumRows = theMaximumRows;
+
+		CacheBuilder<List<Object>, List<BindingSet>> aBuilder = CacheBuilder.newBuilder()
+		                                                                    .maximumWeight(theMaximumRows)
+		                                                                    .weigher((List<Object> theKey, List<BindingSet> theRows) -> Math.max(theRows.size(), 1))
+		                                                                    .recordStats();
+
+		if (theTimeToLive > 0) {
+			aBuilder.expireAfterWrite(theTimeToLive, theUnit);
+		}
+
+		mCache = aBuilder.build();
+	}
+
+	/**
+	 * Return the maximum number of result rows held by the cache, the results of a query with more rows than this are
+	 * never cached
+	 * @return the maximum number of rows
+	 */
+	public long getMaximumRows() {
+		return mMaximumRows;
+	}
+
+	/**
+	 * Return the current generation of the cache, to be passed to {@link #put} with the results of a query executed
+	 * after calling this
+	 * @return the generation
+	 */
+	long generation() {
+		return mGeneration.get();
+	}
+
+	/**
+	 * Return the cached rows of the query
+	 * @param theQuery the query string
+	 * @param theClass the bean class of the query, or null
+	 * @param theProjectionVar the projection variable of the query
+	 * @return the rows, or null if they are not cached
+	 */
+	List<BindingSet> get(final String theQuery, final Class<?> theClass, final String theProjectionVar) {
+		return mCache.getIfPresent(key(theQuery, theClass, theProjectionVar));
+	}
+
+	/**
+	 * Cache the rows of the query, unless the cache was invalidated since the query was executed
+	 * @param theQuery the query string
+	 * @param theClass the bean class of the query, or null
+	 * @param theProjectionVar the projection variable of the query
+	 * @param theRows the rows of the result
+	 * @param theGeneration the {@link #generation} of the cache before the query was executed
+	 */
+	void put(final String theQuery, final Class<?> theClass, final String theProjectionVar,
+	         final List<BindingSet> theRows, final long theGeneration) {
+		if (theGeneration != mGeneration.get()) {
+			return;
+		}
+
+		mCache.put(key(theQuery, theClass, theProjectionVar), ImmutableList.copyOf(theRows));
+
+		// an invalidation could have happened while the rows were being put, and missed them
+		if (theGeneration != mGeneration.get()) {
+			mCache.invalidateAll();
+		}
+	}
+
+	/**
+	 * Invalidate the entire cache
+	 */
+	public void invalidateAll() {
+		mGeneration.incrementAndGet();
+
+		mCache.invalidateAll();
+	}
+
+	/**
+	 * Return the number of entries in the cache
+	 * @return the number of entries
+	 */
+	public long size() {
+		return mCache.size();
+	}
+
+	/**
+	 * Return the number of queries which found their results in the cache
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return mCache.stats().hitCount();
+	}
+
+	/**
+	 * Return the number of queries which did not find their results in the cache
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return mCache.stats().missCount();
+	}
+
+	/**
+	 * Return the ratio of queries which found their results in the cache, 1.0 if there have been no lookups
+	 * @return the hit rate
+	 */
+	public double getHitRate() {
+		return mCache.stats().hitRate();
+	}
+
+	/**
+	 * Return the number of entries which were evicted because of the size or time to live of the cache.  This does
+	 * not include entries which were invalidated.
+	 * @return the eviction count
+	 */
+	public long getEvictionCount() {
+		return mCache.stats().evictionCount();
+	}
+
+	private static List<Object> key(final String theQuery, final Class<?> theClass, final String theProjectionVar) {
+		return Arrays.asList(theQuery, theClass, theProjectionVar);
+	}
+}
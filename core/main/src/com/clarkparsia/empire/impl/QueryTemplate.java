@@ -0,0 +1,602 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarkparsia.empire.impl;
+
+import com.clarkparsia.empire.Dialect;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import org.openrdf.model.Value;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>A query string as provided to {@link RdfQuery}, compiled once into the text between its parameter tokens and the
+ * slots of the parameters, along with the limit and offset it specifies.  Creating a query for the same string again,
+ * such as for a named query, reuses the template rather than validating and parsing the string again, and binding
+ * the parameters is a single pass over the template.  Templates are immutable and shared by all the queries of the
+ * JVM.</p>
+ *
+ * @author  Michael Grove
+ * @since   1.0
+ * @version 1.0
+ */
+final class QueryTemplate {
+
+	/**
+	 * The maximum number of templates which are kept
+	 */
+	private static final int MAX_TEMPLATES = 1000;
+
+	/**
+	 * The compiled templates, by dialect and query string
+	 */
+	private static final Cache<List<Object>, QueryTemplate> TEMPLATES = CacheBuilder.newBuilder()
+	                                                                                .maximumSize(MAX_TEMPLATES)
+	                                                                                .build();
+
+	/**
+	 * A parameter token, either a named one, "??name", or an unnamed one, "??", which must be followed by the end of a
+	 * triple pattern or whitespace
+	 */
+	private static final Pattern PARAMETER = Pattern.compile(RdfQuery.VT_RE + "(?:([a-zA-Z0-9_\\-]+)|(?=[\\.\\s})]))");
+
+	private static final Pattern LIMIT = Pattern.compile("limit\\s*([0-9]+)");
+
+	private static final Pattern OFFSET = Pattern.compile("offset\\s*([0-9]+)");
+
+	private static final List<String> KEYWORDS = ImmutableList.of("select", "construct", "ask", "describe");
+
+	private static final Pattern ORDER_BY = Pattern.compile("(?i)(?<![\\w?$])order\\s+by\\b");
+
+	/**
+	 * The text before, between and after the parameter slots, there is one more of these than there are slots
+	 */
+	private final List<String> mText;
+
+	/**
+	 * The name of the parameter of each slot, or null for the slot of an unnamed parameter
+	 */
+	private final List<String> mSlots;
+
+	/**
+	 * The names of the named parameters
+	 */
+	private final Set<String> mNames;
+
+	/**
+	 * The number of unnamed parameters, which are numbered from 1 in the order they appear in the query
+	 */
+	private final int mIndexedCount;
+
+	/**
+	 * The limit specified by the query, or -1 for none
+	 */
+	private final int mLimit;
+
+	/**
+	 * The offset specified by the query, or -1 for none
+	 */
+	private final int mOffset;
+
+	/**
+	 * Whether or not the query string is a complete query, rather than just its pattern
+	 */
+	private final boolean mIsComplete;
+
+	/**
+	 * The index of the text, and the position within it, of the brace which closes the where clause of the query, or
+	 * -1 if it has none
+	 */
+	private final int mWhereEndText;
+
+	private final int mWhereEndOffset;
+
+	/**
+	 * The index of the text, and the position within it, where the solution modifiers of the query go.  That's the
+	 * end of the query, or the start of a values clause which follows the where clause.
+	 */
+	private final int mModifiersText;
+
+	private final int mModifiersOffset;
+
+	/**
+	 * Whether or not the query specifies its own order
+	 */
+	private final boolean mIsOrdered;
+
+	private QueryTemplate(final String theQuery) {
+		// limits and offsets in the query string are removed, they're appended to the query when it's created so
+		// that they can be changed on the query object
+		Matcher aLimit = LIMIT.matcher(theQuery);
+		mLimit = aLimit.find() ? Integer.parseInt(aLimit.group(1)) : -1;
+
+		Matcher aOffset = OFFSET.matcher(theQuery);
+		mOffset = aOffset.find() ? Integer.parseInt(aOffset.group(1)) : -1;
+
+		String aQuery = OFFSET.matcher(LIMIT.matcher(theQuery).replaceAll("")).replaceAll("");
+
+		// braces and keywords are looked for in the query without its literals, iris and comments, which could contain anything
+		String aMasked = mask(aQuery);
+		int aWhereEnd = whereEnd(aMasked);
+		int aValues = valuesStart(aMasked, aWhereEnd);
+
+		mIsOrdered = isOrdered(aMasked);
+
+		ImmutableList.Builder<String> aText = ImmutableList.builder();
+		List<Integer> aTextStarts = Lists.newArrayList();
+		List<String> aSlots = Lists.newArrayList();
+		ImmutableSet.Builder<String> aNames = ImmutableSet.builder();
+
+		Matcher aMatcher = PARAMETER.matcher(aQuery);
+
+		int aStart = 0;
+		int aIndexedCount = 0;
+
+		while (aMatcher.find()) {
+			aText.add(aQuery.substring(aStart, aMatcher.start()));
+			aTextStarts.add(aStart);
+			aSlots.add(aMatcher.group(1));
+
+			if (aMatcher.group(1) != null) {
+				aNames.add(aMatcher.group(1));
+			}
+			else {
+				aIndexedCount++;
+			}
+
+			aStart = aMatcher.end();
+		}
+
+		aText.add(aQuery.substring(aStart));
+		aTextStarts.add(aStart);
+
+		mText = aText.build();
+		mSlots = Collections.unmodifiableList(aSlots);
+		mNames = aNames.build();
+		mIndexedCount = aIndexedCount;
+		mIsComplete = startsWithKeyword(theQuery);
+
+		mWhereEndText = textOf(aTextStarts, aWhereEnd);
+		mWhereEndOffset = mWhereEndText == -1 ? -1 : aWhereEnd - aTextStarts.get(mWhereEndText);
+
+		mModifiersText = aValues == -1 ? aTextStarts.size() - 1 : textOf(aTextStarts, aValues);
+		mModifiersOffset = aValues == -1 ? mText.get(mModifiersText).length() : aValues - aTextStarts.get(mModifiersText);
+	}
+
+	/**
+	 * Return the index of the text containing the position of the query
+	 * @param theTextStarts the positions in the query where each text starts
+	 * @param thePosition the position, or -1
+	 * @return the index of the text, or -1 if the position is -1
+	 */
+	private static int textOf(final List<Integer> theTextStarts, final int thePosition) {
+		if (thePosition == -1) {
+			return -1;
+		}
+
+		int aIndex = 0;
+
+		// parameters are never masked, so the position is not within one and the text after the last start before it
+		// contains it
+		while (aIndex + 1 < theTextStarts.size() && theTextStarts.get(aIndex + 1) <= thePosition) {
+			aIndex++;
+		}
+
+		return aIndex;
+	}
+
+	/**
+	 * Return the template of the query string, validating and compiling it if this is the first time it's used
+	 * @param theDialect the dialect of the query
+	 * @param theQuery the query string
+	 * @param theProjectionVarName the name of the variable whose values are the query results
+	 * @return the template
+	 * @throws IllegalArgumentException if the query is not valid for the dialect
+	 */
+	static QueryTemplate of(final Dialect theDialect, final String theQuery, final String theProjectionVarName) {
+		try {
+			return TEMPLATES.get(Arrays.<Object>asList(theDialect, theQuery, theProjectionVarName), () -> {
+				theDialect.validateQueryFormat(theQuery, theProjectionVarName);
+
+				return new QueryTemplate(theQuery);
+			});
+		}
+		catch (ExecutionException e) {
+			throw Throwables.propagate(e.getCause());
+		}
+		catch (UncheckedExecutionException e) {
+			throw Throwables.propagate(e.getCause());
+		}
+	}
+
+	/**
+	 * Return the names of the named parameters of the query
+	 * @return the parameter names
+	 */
+	Set<String> getParameterNames() {
+		return mNames;
+	}
+
+	/**
+	 * Return the number of unnamed parameters of the query
+	 * @return the number of parameters
+	 */
+	int getIndexedParameterCount() {
+		return mIndexedCount;
+	}
+
+	/**
+	 * Return the limit specified by the query string
+	 * @return the limit, or -1 if none is specified
+	 */
+	int getLimit() {
+		return mLimit;
+	}
+
+	/**
+	 * Return the offset specified by the query string
+	 * @return the offset, or -1 if none is specified
+	 */
+	int getOffset() {
+		return mOffset;
+	}
+
+	/**
+	 * Return whether or not the query string is a complete query, starting with its type, rather than just the pattern
+	 * of the query
+	 * @return true if the query is complete, false otherwise
+	 */
+	boolean isComplete() {
+		return mIsComplete;
+	}
+
+	/**
+	 * Return whether or not the query string has a where clause, that is, a group of graph patterns
+	 * @return true if it has a where clause, false otherwise
+	 */
+	boolean hasWhereClause() {
+		return mWhereEndText != -1;
+	}
+
+	/**
+	 * Return whether or not the query string specifies the order of its results
+	 * @return true if the query has an order by, false otherwise
+	 */
+	boolean isOrdered() {
+		return mIsOrdered;
+	}
+
+	/**
+	 * Return the query string with the values of the parameters in their slots.  The tokens of the parameters which
+	 * have no value are replaced with variables, named parameters with a variable of the same name.
+	 * @param theDialect the dialect of the query
+	 * @param theNamedParameters the values of the named parameters, null for parameters without one
+	 * @param theIndexedParameters the values of the unnamed parameters, by their index, null for parameters without one
+	 * @return the query string with the parameters bound, without leading or trailing whitespace
+	 */
+	String bind(final Dialect theDialect, final Map<String, Value> theNamedParameters, final Map<Integer, Value> theIndexedParameters) {
+		return bind(theDialect, theNamedParameters, theIndexedParameters, null, null);
+	}
+
+	/**
+	 * Return the query string with the values of the parameters in their slots, like {@link #bind(Dialect, Map, Map)},
+	 * the given filter at the end of its where clause, and the given solution modifiers after it, but before a values
+	 * clause which follows it.
+	 * @param theDialect the dialect of the query
+	 * @param theNamedParameters the values of the named parameters, null for parameters without one
+	 * @param theIndexedParameters the values of the unnamed parameters, by their index, null for parameters without one
+	 * @param theFilter the filter expression to add to the where clause, or null for none
+	 * @param theModifiers the solution modifiers, such as order by or limit, to add to the query, or null for none
+	 * @return the query string with the parameters bound, without leading or trailing whitespace
+	 * @throws IllegalStateException if there is a filter, but the query has no where clause
+	 */
+	String bind(final Dialect theDialect, final Map<String, Value> theNamedParameters, final Map<Integer, Value> theIndexedParameters,
+	            final String theFilter, final String theModifiers) {
+		Preconditions.checkState(theFilter == null || hasWhereClause(), "Query has no where clause to filter");
+
+		StringBuilder aQuery = new StringBuilder();
+
+		appendText(aQuery, 0, theFilter, theModifiers);
+
+		int aIndex = 1;
+
+		for (int i = 0; i < mSlots.size(); i++) {
+			String aName = mSlots.get(i);
+
+			Value aValue = aName != null
+			               ? theNamedParameters.get(aName)
+			               : theIndexedParameters.get(aIndex++);
+
+			if (aValue != null) {
+				aQuery.append(theDialect.asQueryString(aValue));
+			}
+			else {
+				aQuery.append(theDialect.asVar(aName));
+			}
+
+			appendText(aQuery, i + 1, theFilter, theModifiers);
+		}
+
+		return aQuery.toString().trim();
+	}
+
+	private void appendText(final StringBuilder theQuery, final int theIndex, final String theFilter, final String theModifiers) {
+		String aText = mText.get(theIndex);
+
+		int aFrom = 0;
+
+		if (theFilter != null && theIndex == mWhereEndText) {
+			theQuery.append(aText, aFrom, mWhereEndOffset).append(" filter(").append(theFilter).append(") ");
+			aFrom = mWhereEndOffset;
+		}
+
+		if (theModifiers != null && theIndex == mModifiersText) {
+			theQuery.append(aText, aFrom, mModifiersOffset).append(" ").append(theModifiers).append(" ");
+			aFrom = mModifiersOffset;
+		}
+
+		theQuery.append(aText, aFrom, aText.length());
+	}
+
+	/**
+	 * Return the query with the contents of its string literals, iris and comments blanked out, so that the braces and
+	 * keywords which are left are those of the query itself.  The positions of everything else are unchanged.
+	 * @param theQuery the query
+	 * @return the masked query
+	 */
+	private static String mask(final String theQuery) {
+		char[] aChars = theQuery.toCharArray();
+
+		int i = 0;
+
+		while (i < aChars.length) {
+			char aChar = aChars[i];
+
+			if (aChar == '"' || aChar == '\'') {
+				boolean isLong = i + 2 < aChars.length && aChars[i + 1] == aChar && aChars[i + 2] == aChar;
+				int aQuotes = isLong ? 3 : 1;
+				int aEnd = i + aQuotes;
+
+				while (aEnd < aChars.length
+				       && !(aChars[aEnd] == aChar && (!isLong || (aEnd + 2 < aChars.length && aChars[aEnd + 1] == aChar && aChars[aEnd + 2] == aChar)))) {
+					if (aChars[aEnd] == '\\') {
+						aEnd++;
+					}
+
+					aEnd++;
+				}
+
+				blank(aChars, i + aQuotes, aEnd);
+
+				i = aEnd + aQuotes;
+			}
+			else if (aChar == '<') {
+				// an iri has no whitespace, unlike the less than operator usually does
+				int aEnd = i + 1;
+
+				while (aEnd < aChars.length && aChars[aEnd] != '>' && aChars[aEnd] != '<' && !Character.isWhitespace(aChars[aEnd])) {
+					aEnd++;
+				}
+
+				if (aEnd < aChars.length && aChars[aEnd] == '>') {
+					blank(aChars, i + 1, aEnd);
+
+					i = aEnd + 1;
+				}
+				else {
+					i++;
+				}
+			}
+			else if (aChar == '#') {
+				int aEnd = i;
+
+				while (aEnd < aChars.length && aChars[aEnd] != '\n') {
+					aEnd++;
+				}
+
+				blank(aChars, i, aEnd);
+
+				i = aEnd;
+			}
+			else {
+				i++;
+			}
+		}
+
+		return new String(aChars);
+	}
+
+	private static void blank(final char[] theChars, final int theStart, final int theEnd) {
+		for (int i = theStart; i < Math.min(theEnd, theChars.length); i++) {
+			theChars[i] = ' ';
+		}
+	}
+
+	/**
+	 * Return the position of the brace closing the where clause of the masked query.  That is the first top level
+	 * group after the where keyword or, since the keyword is optional, the first top level group when there is none.
+	 * @param theMasked the masked query
+	 * @return the position of the brace, or -1 if the query has no where clause
+	 */
+	private static int whereEnd(final String theMasked) {
+		int aStart = 0;
+		int aDepth = 0;
+
+		for (int i = 0; i < theMasked.length(); i++) {
+			char aChar = theMasked.charAt(i);
+
+			if (aChar == '{') {
+				aDepth++;
+			}
+			else if (aChar == '}') {
+				aDepth--;
+			}
+			else if (aDepth == 0 && isKeyword(theMasked, i, "where")) {
+				aStart = i;
+				break;
+			}
+		}
+
+		int aOpen = -1;
+		aDepth = 0;
+
+		for (int i = aStart; i < theMasked.length(); i++) {
+			char aChar = theMasked.charAt(i);
+
+			if (aChar == '{') {
+				if (aDepth == 0 && aOpen == -1) {
+					aOpen = i;
+				}
+
+				aDepth++;
+			}
+			else if (aChar == '}' && aDepth > 0) {
+				aDepth--;
+
+				if (aDepth == 0 && aOpen != -1) {
+					return i;
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Return the position of the values clause which follows the where clause of the masked query
+	 * @param theMasked the masked query
+	 * @param theWhereEnd the position of the brace closing the where clause, or -1 if there is none
+	 * @return the position of the values keyword, or -1 if there is no such clause
+	 */
+	private static int valuesStart(final String theMasked, final int theWhereEnd) {
+		if (theWhereEnd == -1) {
+			return -1;
+		}
+
+		int aDepth = 0;
+
+		for (int i = theWhereEnd + 1; i < theMasked.length(); i++) {
+			char aChar = theMasked.charAt(i);
+
+			if (aChar == '{') {
+				aDepth++;
+			}
+			else if (aChar == '}') {
+				aDepth--;
+			}
+			else if (aDepth == 0 && isKeyword(theMasked, i, "values")) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Return whether or not the masked query has an order by outside of any group, that is, one of its own rather than
+	 * that of a sub-query
+	 */
+	private static boolean isOrdered(final String theMasked) {
+		Matcher aMatcher = ORDER_BY.matcher(theMasked);
+
+		while (aMatcher.find()) {
+			int aDepth = 0;
+
+			for (int i = 0; i < aMatcher.start(); i++) {
+				if (theMasked.charAt(i) == '{') {
+					aDepth++;
+				}
+				else if (theMasked.charAt(i) == '}') {
+					aDepth--;
+				}
+			}
+
+			if (aDepth == 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean isKeyword(final String theMasked, final int theStart, final String theKeyword) {
+		int aEnd = theStart + theKeyword.length();
+
+		return theMasked.regionMatches(true, theStart, theKeyword, 0, theKeyword.length())
+		       && (theStart == 0 || !isNameChar(theMasked.charAt(theStart - 1)))
+		       && (aEnd == theMasked.length() || !isNameChar(theMasked.charAt(aEnd)));
+	}
+
+	private static boolean isNameChar(final char theChar) {
+		return Character.isLetterOrDigit(theChar) || theChar == '_' || theChar == '?' || theChar == '$' || theChar == ':';
+	}
+
+	/**
+	 * Return whether or not the query begins with a query type keyword, regardless of case and leading whitespace
+	 * @param theQuery the query
+	 * @return true if the query starts with a keyword, false otherwise
+	 */
+	static boolean startsWithKeyword(final CharSequence theQuery) {
+		for (String aKeyword : KEYWORDS) {
+			if (startsWith(theQuery, aKeyword)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Return whether or not the query begins with the word, regardless of case and leading whitespace
+	 * @param theQuery the query
+	 * @param theWord the word, in lower case
+	 * @return true if the query starts with the word, false otherwise
+	 */
+	static boolean startsWith(final CharSequence theQuery, final String theWord) {
+		int aStart = 0;
+
+		while (aStart < theQuery.length() && Character.isWhitespace(theQuery.charAt(aStart))) {
+			aStart++;
+		}
+
+		if (theQuery.length() - aStart < theWord.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < theWord.length(); i++) {
+			if (Character.toLowerCase(theQuery.charAt(aStart + i)) != theWord.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -17,26 +17,34 @@ package com.clarkparsia.empire.impl;
 
 import org.openrdf.model.Model;
 import org.openrdf.model.IRI;
+import org.openrdf.model.Literal;
 import org.openrdf.model.Value;
 import org.openrdf.model.vocabulary.XMLSchema;
 import org.openrdf.model.impl.SimpleValueFactory;
 import org.openrdf.query.BindingSet;
+import org.openrdf.rio.ntriples.NTriplesUtil;
 
 import com.clarkparsia.empire.ds.DataSource;
 import com.clarkparsia.empire.ds.ResultSet;
 import com.clarkparsia.empire.ds.QueryException;
+import com.clarkparsia.empire.ds.impl.AbstractResultSet;
 import com.clarkparsia.empire.Dialect;
 import com.clarkparsia.empire.EmpireOptions;
+import com.clarkparsia.empire.SupportsRdfId;
+import com.clarkparsia.empire.impl.sparql.SPARQLDialect;
 
 import static com.clarkparsia.empire.util.EmpireUtil.asPrimaryKey;
 
 import com.clarkparsia.empire.util.BeanReflectUtil;
 import com.clarkparsia.empire.annotation.RdfGenerator;
 import com.clarkparsia.empire.annotation.AnnotationChecker;
+import com.clarkparsia.empire.annotation.InvalidRdfException;
 import com.clarkparsia.empire.annotation.runtime.Proxy;
 import com.clarkparsia.empire.annotation.runtime.ProxyAwareList;
 
 import com.complexible.common.base.Dates;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,14 +56,18 @@ import javax.persistence.PersistenceException;
 import javax.persistence.Query;
 import javax.persistence.TemporalType;
 
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * <p>Implementation of the JPA {@link Query} interface for RDF based query languages.</p>
@@ -97,6 +109,29 @@ public final class RdfQuery implements Query {
      */
     public static final String HINT_ENTITY_CLASS = "entity-class";
 
+	/**
+	 * Key of the {@link javax.persistence.QueryHint} to specify the number of results to hydrate with a single
+	 * describe.  When set, result entities are loaded eagerly in batches of this size rather than one at a time, or
+	 * through a {@link Proxy} per result.
+	 */
+	public static final String HINT_BATCH_SIZE = "batch-size";
+
+	/**
+	 * Key of the {@link javax.persistence.QueryHint} to specify the association paths to fetch along with the result
+	 * entities, either as a comma separated string or a collection of paths.  This overrides the
+	 * {@link com.clarkparsia.empire.annotation.FetchPlan} of the entity class, and implies batched hydration of the
+	 * results, using {@link RdfGenerator#DEFAULT_BATCH_SIZE} unless {@link #HINT_BATCH_SIZE} is also given.
+	 */
+	public static final String HINT_FETCH_PLAN = "fetch-plan";
+
+	/**
+	 * Key of the {@link javax.persistence.QueryHint} to populate the result beans directly from the columns of each
+	 * result row, rather than describing each result; see {@link RdfGenerator#fromRow}.  The query should select every
+	 * variable to be set on the beans, and the {@link #getProjectionVarName projection variable} is the id of the
+	 * beans.  The bean class need not be an entity.
+	 */
+	public static final String HINT_ROW_PROJECTION = "row-projection";
+
 	/**
 	 * The DataSource the query will be executed against
 	 */
@@ -153,9 +188,30 @@ public final class RdfQuery implements Query {
 	 */
 	private Dialect mQueryDialect;
 
-	private static String UNAMED_VAR_REGEX = VT_RE + "[\\.\\s})]";
+	/**
+	 * The compiled query string
+	 */
+	private QueryTemplate mTemplate;
+
+	/**
+	 * The variable the results are ordered and paged by, or null when results are paged by offset
+	 */
+	private String mKeyVar;
+
+	/**
+	 * The value of the key of the last result of the previous page, the results start after it; null for the first page
+	 */
+	private Value mKeyValue;
+
+	/**
+	 * The value of the key of the last result which was read
+	 */
+	private Value mLastKey;
 
-	private static String NAMED_VAR_REGEX = VT_RE + "[a-zA-Z0-9_\\-]+";
+	/**
+	 * The number of results which were read
+	 */
+	private int mReadCount;
 
 	/**
 	 * Create a new RdfQuery
@@ -169,7 +225,8 @@ public final class RdfQuery implements Query {
 
 		mQueryDialect = theSource.getQueryFactory().getDialect();
 
-		mQueryDialect.validateQueryFormat(getQueryString(), getProjectionVarName());
+		// validated and compiled once per query string, rather than every time a query is created for it
+		mTemplate = QueryTemplate.of(mQueryDialect, getQueryString(), getProjectionVarName());
 
 		// trying to guess if this is a construct query or not.  this is not foolproof, but since the only way of
 		// definitely specifying this right now is to cast a query object as an RdfQuery and use setConstruct, that
@@ -179,6 +236,9 @@ public final class RdfQuery implements Query {
 		}
 
 		parseParameters();
+
+		mLimit = mTemplate.getLimit();
+		mOffset = mTemplate.getOffset();
 	}
 
 	/**
@@ -313,6 +373,82 @@ public final class RdfQuery implements Query {
 		return mIsConstruct;
 	}
 
+	/**
+	 * Page through the results by the values of a variable, rather than by offset, so reading a page costs the same
+	 * however deep it is.  The results are ordered by the variable, and only those after the continuation are returned,
+	 * up to the {@link #setMaxResults maximum number of results}; the continuation for the next page is then available
+	 * from {@link #getContinuation}.  The values of the variable must be unique, the projection variable is usually
+	 * the one to use, and the query string cannot have an order by of its own, nor should an offset be set.  The values
+	 * must also be IRIs or literals without a language tag; bnodes cannot be selected again by a later query, and
+	 * language tagged literals cannot be compared in SPARQL.
+	 * @param theKeyVar the variable to page by
+	 * @param theContinuation the continuation from the previous page, or null for the first page
+	 * @return this query
+	 * @throws UnsupportedOperationException if the query language is not SPARQL
+	 * @throws IllegalArgumentException if the continuation is not valid, or the query has an order by or no where clause
+	 */
+	public Query setKeyset(final String theKeyVar, final String theContinuation) {
+		if (!(mQueryDialect instanceof SPARQLDialect)) {
+			throw new UnsupportedOperationException("Keyset pagination is only supported for SPARQL queries");
+		}
+
+		if (mTemplate.isOrdered()) {
+			throw new IllegalArgumentException("Keyset pagination orders the results, the query must not have an order by of its own");
+		}
+
+		if (!mTemplate.hasWhereClause()) {
+			throw new IllegalArgumentException("Keyset pagination requires a query with a where clause");
+		}
+
+		Value aKeyValue = null;
+
+		if (theContinuation != null) {
+			try {
+				aKeyValue = NTriplesUtil.parseValue(theContinuation, SimpleValueFactory.getInstance());
+			}
+			catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Invalid continuation: " + theContinuation, e);
+			}
+
+			if (!isKey(aKeyValue)) {
+				throw new IllegalArgumentException("Invalid continuation, keys must be IRIs or literals without a language tag: " + theContinuation);
+			}
+		}
+
+		mKeyVar = theKeyVar;
+		mKeyValue = aKeyValue;
+
+		return this;
+	}
+
+	/**
+	 * Return the continuation to pass to {@link #setKeyset} for the page after the results which were just read.  There
+	 * is only a next page if a full page of results was read, that is, as many as the maximum number of results.
+	 * @return the continuation, or null if there are no more results, or the query is not paged by {@link #setKeyset keyset}
+	 * @throws IllegalStateException if the key of the last result is a bnode or a language tagged literal, which the
+	 * next page cannot be selected by
+	 */
+	public String getContinuation() {
+		if (mKeyVar == null || mLastKey == null || getMaxResults() == -1 || mReadCount < getMaxResults()) {
+			return null;
+		}
+
+		if (!isKey(mLastKey)) {
+			throw new IllegalStateException("Cannot continue after " + NTriplesUtil.toNTriplesString(mLastKey) + ", the values of ?" + mKeyVar
+			                                + " must be IRIs or literals without a language tag to page by them");
+		}
+
+		return NTriplesUtil.toNTriplesString(mLastKey);
+	}
+
+	/**
+	 * Return whether or not the value can be the key of a page, that is, whether it is an IRI or a literal without a
+	 * language tag
+	 */
+	private static boolean isKey(final Value theValue) {
+		return theValue instanceof IRI || (theValue instanceof Literal && !((Literal) theValue).getLanguage().isPresent());
+	}
+
 	/**
 	 * Execute the describe query.
 	 * @return the resulting RDF graph
@@ -356,66 +492,336 @@ public final class RdfQuery implements Query {
 	public List getResultList() {
 		List aList = new ProxyAwareList();
 
+		try (Stream<?> aResults = results()) {
+			aResults.forEachOrdered(aList::add);
+		}
+		catch (Exception e) {
+			throw new PersistenceException(e);
+		}
+
+		return aList;
+	}
+
+	/**
+	 * Execute the query and return its results as a stream rather than a list.  Rows are pulled from the data source
+	 * as the stream is consumed and, when a bean class is specified, the beans are created as they are reached, a batch
+	 * at a time when the {@link #HINT_BATCH_SIZE batch size} or {@link #HINT_FETCH_PLAN fetch plan} hints are set; so
+	 * unlike {@link #getResultList} the results of the query are never all held in memory at once.  The elements of the
+	 * stream are the same as those of the list returned by {@link #getResultList}, except that they are never
+	 * {@link Proxy proxies}.  The stream holds the underlying result set open and must be closed when it is no longer
+	 * needed, preferably with try-with-resources.
+	 * @return the results of the query
+	 * @throws PersistenceException if there is an error while executing the query, or creating a result
+	 */
+	public Stream<?> getResultStream() {
+		return results().map(theObj -> theObj instanceof Proxy ? ((Proxy) theObj).value() : theObj);
+	}
+
+	/**
+	 * Execute the query and return a lazy stream of its results; the {@link Model} of a construct query, the raw
+	 * {@link BindingSet} rows when there is no bean class, otherwise the beans, or proxies for them, created from the
+	 * values of the {@link #getProjectionVarName projection variable}.  Closing the stream closes the result set.
+	 * @return the results
+	 */
+	private Stream<?> results() {
+		if (isConstruct()) {
+			try {
+				return Stream.of(getSource().graphQuery(query()));
+			}
+			catch (QueryException e) {
+				throw new PersistenceException(e);
+			}
+		}
+
+		mLastKey = null;
+		mReadCount = 0;
+
+		final ResultSet aResults = mKeyVar == null ? select() : new KeysetResultSet(select());
+
+		if (getBeanClass() == null) {
+			return stream(aResults).onClose(aResults::close);
+		}
+
+		if (isRowProjection()) {
+			// every value is in the row, there's nothing to describe
+			return stream(aResults).map(this::asProjectedBean).onClose(aResults::close);
+		}
+
+		final Collection<String> aFetchPlan = getFetchPlan();
+		final int aBatchSize = getBatchSize() > 0 || aFetchPlan == null
+		                       ? getBatchSize()
+		                       : RdfGenerator.DEFAULT_BATCH_SIZE;
+
+		if (aBatchSize > 0) {
+			// rows are read a batch at a time and the entities of each batch are hydrated together, so at most one
+			// batch of results is held in memory
+			return stream(Iterators.partition(aResults, aBatchSize))
+				       .flatMap(theBatch -> asBeans(theBatch, aBatchSize, aFetchPlan).stream())
+				       .onClose(aResults::close);
+		}
+		else {
+			return stream(aResults).map(this::asBean).onClose(aResults::close);
+		}
+	}
+
+	/**
+	 * Execute the select query, or return its cached rows when the {@link RdfQueryFactory} of the data source has a
+	 * {@link QueryCache} which holds them.  The rows of a query which was not cached are cached once all of them were read.
+	 * The cache is not used at all while the {@link RdfQueryFactory#isUseQueryCache factory says so}, that is, while
+	 * there are writes to the data source which are not committed.
+	 * @return the rows of the result
+	 */
+	private ResultSet select() {
+		final QueryCache aCache = getSource().getQueryFactory() instanceof RdfQueryFactory
+		                          && ((RdfQueryFactory) getSource().getQueryFactory()).isUseQueryCache()
+		                          ? ((RdfQueryFactory) getSource().getQueryFactory()).getQueryCache()
+		                          : null;
+
+		final String aQuery = query();
+
 		try {
-			if (isConstruct()) {
-				Model aGraph = getSource().graphQuery(query());
-				aList.add(aGraph);
+			if (aCache == null) {
+				return getSource().selectQuery(aQuery);
 			}
-			else {
 
-				try (ResultSet aResults = getSource().selectQuery(query())) {
-					if (getBeanClass() != null) {
-						// for now, by convention, for this to work like the JPQL stuff where you do something like
-						// "from Product pr join pr.poc as p where p.id = ?" and expect to get a list of Product instances
-						// back as the result set, you *MUST* have a var in the projection called 'result' which is
-						// the URI of the things you want to get back; when you don't do this, we prefix your partial query
-						// with this string
-						while (aResults.hasNext()) {
-							BindingSet aBS = aResults.next();
-
-							Object aObj;
-
-							String aVarName = getProjectionVarName();
-
-							if (aBS.getValue(aVarName) instanceof IRI && AnnotationChecker.isValid(getBeanClass())) {
-								if (EmpireOptions.ENABLE_QUERY_RESULT_PROXY) {
-									aObj = new Proxy(getBeanClass(), asPrimaryKey(aBS.getValue(aVarName)), getSource());
-								}
-								else {
-									aObj = RdfGenerator.fromRdf(getBeanClass(),
-									                            asPrimaryKey(aBS.getValue(aVarName)),
-									                            getSource());
-								}
-							}
-							else {
-								aObj = new RdfGenerator.ValueToObject(getSource(), null,
-								                                      getBeanClass(), null).apply(aBS.getValue(aVarName));
-							}
-
-							// if the object could not be created, or it was and its not the bean class type, or not a proxy
-							// for something of the bean class type, then we could not bind the value in the result set
-							// which is an error.
-							if (aObj == null
-							    || !(getBeanClass().isInstance(aObj) || (aObj instanceof Proxy && getBeanClass().isAssignableFrom(((Proxy) aObj)
-								                                                                                                      .getProxyClass())))) {
-								throw new PersistenceException("Cannot bind query result to bean: " + getBeanClass());
-							}
-							else {
-								aList.add(aObj);
-							}
-						}
-					}
-					else {
-						aList.addAll(Lists.newArrayList(aResults));
+			List<BindingSet> aRows = aCache.get(aQuery, getBeanClass(), getProjectionVarName());
+
+			if (aRows != null) {
+				// there's nothing to release for cached rows
+				return new AbstractResultSet(aRows) {
+					@Override
+					public void close() {
 					}
-				}
+				};
 			}
+
+			long aGeneration = aCache.generation();
+
+			return new CachingResultSet(getSource().selectQuery(aQuery), aCache, aQuery, aGeneration);
 		}
-		catch (Exception e) {
+		catch (QueryException e) {
 			throw new PersistenceException(e);
 		}
+	}
 
-		return aList;
+	/**
+	 * Return the bean populated from the columns of the row
+	 * @param theRow the row
+	 * @return the bean
+	 * @throws PersistenceException if the bean cannot be created from the row
+	 */
+	private Object asProjectedBean(final BindingSet theRow) {
+		try {
+			return RdfGenerator.fromRow(getBeanClass(), theRow, getProjectionVarName(), getSource());
+		}
+		catch (InvalidRdfException e) {
+			throw new PersistenceException("Cannot bind query result to bean: " + getBeanClass(), e);
+		}
+	}
+
+	/**
+	 * Return the bean, or a proxy for it, which is the value of the projection variable of the row
+	 * @param theRow the row
+	 * @return the bean
+	 * @throws PersistenceException if the value cannot be bound to the bean class
+	 */
+	@SuppressWarnings("unchecked")
+	private Object asBean(final BindingSet theRow) {
+		// for now, by convention, for this to work like the JPQL stuff where you do something like
+		// "from Product pr join pr.poc as p where p.id = ?" and expect to get a list of Product instances
+		// back as the result set, you *MUST* have a var in the projection called 'result' which is
+		// the URI of the things you want to get back; when you don't do this, we prefix your partial query
+		// with this string
+		Value aValue = theRow.getValue(getProjectionVarName());
+
+		Object aObj;
+
+		if (aValue instanceof IRI && AnnotationChecker.isValid(getBeanClass())) {
+			if (EmpireOptions.ENABLE_QUERY_RESULT_PROXY) {
+				aObj = new Proxy(getBeanClass(), asPrimaryKey(aValue), getSource());
+			}
+			else {
+				try {
+					aObj = RdfGenerator.fromRdf(getBeanClass(), asPrimaryKey(aValue), getSource());
+				}
+				catch (Exception e) {
+					throw new PersistenceException(e);
+				}
+			}
+		}
+		else {
+			aObj = new RdfGenerator.ValueToObject(getSource(), null, getBeanClass(), null).apply(aValue);
+		}
+
+		// if the object could not be created, or it was and its not the bean class type, or not a proxy
+		// for something of the bean class type, then we could not bind the value in the result set
+		// which is an error.
+		if (aObj == null
+		    || !(getBeanClass().isInstance(aObj) || (aObj instanceof Proxy && getBeanClass().isAssignableFrom(((Proxy) aObj).getProxyClass())))) {
+			throw new PersistenceException("Cannot bind query result to bean: " + getBeanClass());
+		}
+
+		return aObj;
+	}
+
+	/**
+	 * Return the beans for a batch of rows, hydrating the entities among them with a single describe
+	 * @param theRows the rows
+	 * @param theBatchSize the batch size
+	 * @param theFetchPlan the association paths to fetch with the entities, or null
+	 * @return the beans, in the order of the rows
+	 * @throws PersistenceException if a value cannot be bound to the bean class
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Object> asBeans(final List<BindingSet> theRows, final int theBatchSize, final Collection<String> theFetchPlan) {
+		List<Object> aBeans = Lists.newArrayListWithCapacity(theRows.size());
+
+		// the positions of the entities to be hydrated in the batch, and their keys
+		List<Integer> aBatchIndexes = Lists.newArrayList();
+		List<SupportsRdfId.RdfKey> aBatchKeys = Lists.newArrayList();
+
+		boolean aIsEntity = AnnotationChecker.isValid(getBeanClass());
+
+		for (BindingSet aRow : theRows) {
+			Value aValue = aRow.getValue(getProjectionVarName());
+
+			if (aValue instanceof IRI && aIsEntity) {
+				aBatchIndexes.add(aBeans.size());
+				aBatchKeys.add(asPrimaryKey(aValue));
+
+				// placeholder until the batch is loaded
+				aBeans.add(null);
+			}
+			else {
+				aBeans.add(asBean(aRow));
+			}
+		}
+
+		if (!aBatchKeys.isEmpty()) {
+			List<?> aObjs;
+
+			try {
+				aObjs = theFetchPlan == null
+				        ? RdfGenerator.fromRdf(getBeanClass(), aBatchKeys, getSource(), theBatchSize)
+				        : RdfGenerator.fromRdf(getBeanClass(), aBatchKeys, getSource(), theBatchSize, theFetchPlan);
+			}
+			catch (Exception e) {
+				throw new PersistenceException(e);
+			}
+
+			for (int i = 0; i < aObjs.size(); i++) {
+				if (!getBeanClass().isInstance(aObjs.get(i))) {
+					throw new PersistenceException("Cannot bind query result to bean: " + getBeanClass());
+				}
+
+				aBeans.set(aBatchIndexes.get(i), aObjs.get(i));
+			}
+		}
+
+		return aBeans;
+	}
+
+	/**
+	 * A result set which records the key of the last row read, for the continuation of keyset pagination
+	 */
+	private final class KeysetResultSet extends AbstractResultSet {
+		private final ResultSet mResults;
+
+		private KeysetResultSet(final ResultSet theResults) {
+			super(theResults);
+
+			mResults = theResults;
+		}
+
+		/**
+		 * @inheritDoc
+		 */
+		@Override
+		public BindingSet next() {
+			BindingSet aRow = super.next();
+
+			mLastKey = aRow.getValue(mKeyVar);
+			mReadCount++;
+
+			return aRow;
+		}
+
+		/**
+		 * @inheritDoc
+		 */
+		@Override
+		public void close() {
+			mResults.close();
+		}
+	}
+
+	/**
+	 * A result set which records the rows as they are read, and caches them once all of them were read.  A result
+	 * which is not read to the end, or which has more rows than the cache can hold, is not cached.
+	 */
+	private final class CachingResultSet extends AbstractResultSet {
+		private final ResultSet mResults;
+		private final QueryCache mCache;
+		private final String mQueryString;
+		private final long mGeneration;
+		private List<BindingSet> mRows = Lists.newArrayList();
+
+		private CachingResultSet(final ResultSet theResults, final QueryCache theCache, final String theQuery, final long theGeneration) {
+			super(theResults);
+
+			mResults = theResults;
+			mCache = theCache;
+			mQueryString = theQuery;
+			mGeneration = theGeneration;
+		}
+
+		/**
+		 * @inheritDoc
+		 */
+		@Override
+		public boolean hasNext() {
+			boolean aHasNext = super.hasNext();
+
+			if (!aHasNext && mRows != null) {
+				mCache.put(mQueryString, getBeanClass(), getProjectionVarName(), mRows, mGeneration);
+
+				mRows = null;
+			}
+
+			return aHasNext;
+		}
+
+		/**
+		 * @inheritDoc
+		 */
+		@Override
+		public BindingSet next() {
+			BindingSet aRow = super.next();
+
+			if (mRows != null) {
+				mRows.add(aRow);
+
+				if (mRows.size() > mCache.getMaximumRows()) {
+					mRows = null;
+				}
+			}
+
+			return aRow;
+		}
+
+		/**
+		 * @inheritDoc
+		 */
+		@Override
+		public void close() {
+			mRows = null;
+
+			mResults.close();
+		}
+	}
+
+	private static <T> Stream<T> stream(final Iterator<T> theIterator) {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(theIterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
 	}
 
 	/**
@@ -433,6 +839,61 @@ public final class RdfQuery implements Query {
         }
     }
 
+	/**
+	 * Returns the number of results to hydrate with a single describe as specified by the {@link #HINT_BATCH_SIZE}
+	 * QueryHint.
+	 * @return the batch size, or 0 if results are not to be hydrated in batches
+	 */
+	protected int getBatchSize() {
+		if (getHints().containsKey(HINT_BATCH_SIZE)) {
+			Object aValue = getHints().get(HINT_BATCH_SIZE);
+
+			try {
+				return aValue instanceof Number ? ((Number) aValue).intValue() : Integer.parseInt(aValue.toString().trim());
+			}
+			catch (NumberFormatException e) {
+				LOGGER.error("Invalid batch size set on query, value is not a number: " + aValue);
+				return 0;
+			}
+		}
+		else {
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns whether or not the result beans are populated from the result rows as specified by the
+	 * {@link #HINT_ROW_PROJECTION} QueryHint.
+	 * @return true if the beans are populated from the rows, false if each of them is described
+	 */
+	protected boolean isRowProjection() {
+		return getHints().containsKey(HINT_ROW_PROJECTION) && Boolean.parseBoolean(getHints().get(HINT_ROW_PROJECTION).toString());
+	}
+
+	/**
+	 * Returns the association paths to fetch with the results as specified by the {@link #HINT_FETCH_PLAN} QueryHint.
+	 * @return the fetch plan, or null if one is not specified
+	 */
+	@SuppressWarnings("unchecked")
+	protected Collection<String> getFetchPlan() {
+		if (getHints().containsKey(HINT_FETCH_PLAN)) {
+			Object aValue = getHints().get(HINT_FETCH_PLAN);
+
+			if (aValue instanceof Collection) {
+				return (Collection<String>) aValue;
+			}
+			else if (aValue instanceof String[]) {
+				return Arrays.asList((String[]) aValue);
+			}
+			else {
+				return Splitter.on(',').trimResults().omitEmptyStrings().splitToList(aValue.toString());
+			}
+		}
+		else {
+			return null;
+		}
+	}
+
 	/**
 	 * @inheritDoc
 	 */
@@ -633,135 +1094,83 @@ public final class RdfQuery implements Query {
 	}
 
 	/**
-	 * Given the query string fragment, replace all variable parameter tokens with the values specified by the user
-	 * through the various setParameter methods.
-	 * @param theQuery the query fragment
-	 * @return the query string with all parameter variables replaced
-	 * @see #setParameter
+	 * Given a query fragment from {@link #getQueryString} pull out all the variable parameters
 	 */
-	private String insertVariables(String theQuery) {
-		String aBuffer = theQuery;
+	private void parseParameters() {
+		mNamedParameters.clear();
+		mIndexedParameters.clear();
 
-		for (String aName : mNamedParameters.keySet()) {
-			boolean containsParam = Pattern.compile(VT_RE+aName).matcher(aBuffer).find();
-			if (mNamedParameters.get(aName) != null && containsParam) {
-				aBuffer = replaceVariable(aBuffer, aName, mNamedParameters.get(aName));
-			}
+		// i'm pretty sure the JPA stuff is 1-indexed rather than the normal 0-indexed
+		for (int aIndex = 1; aIndex <= mTemplate.getIndexedParameterCount(); aIndex++) {
+			mIndexedParameters.put(aIndex, null);
 		}
 
-		int aIndex = 1;
-		while (aBuffer.contains(VARIABLE_TOKEN)) {
-			boolean containsParam = Pattern.compile(VT_RE).matcher(aBuffer).find();
-			if (mIndexedParameters.get(aIndex) != null && containsParam) {
-				aBuffer = aBuffer.replaceFirst(VT_RE, mQueryDialect.asQueryString(mIndexedParameters.get(aIndex++)));
-			}
-			else {
-				break;
-			}
+		for (String aName : mTemplate.getParameterNames()) {
+			mNamedParameters.put(aName, null);
 		}
-
-		return aBuffer;
 	}
 
-	private String replaceVariable(String theQuery, String theVariable, Value theValue) {
-		// using this instead of replaceAll -- which keeps giving group does not exist errors.  I think my regex must
-		// be subtly (is that a word?) wrong and I'm just not seeing it.  This works, for now.
-
-		StringBuilder aQueryBuffer = new StringBuilder();
-
-		Matcher m = Pattern.compile(VT_RE+theVariable).matcher(theQuery);
-
-		int start = 0;
-		while (m.find()) {
-			aQueryBuffer.append(theQuery.substring(start, m.start()));
-			aQueryBuffer.append(mQueryDialect.asQueryString(theValue));
-
-			start = m.start() + m.group(0).length();
-		}
-
-		aQueryBuffer.append(theQuery.substring(start));
-
-		return aQueryBuffer.toString();
+	protected boolean startsWithKeyword(String theQuery) {
+		return QueryTemplate.startsWithKeyword(theQuery);
 	}
 
 	/**
-	 * Given a query fragment from {@link #getQueryString} pull out all the variable parameters
+	 * Return the filter expression selecting the results whose key comes after the continuation.  IRIs cannot be
+	 * compared in SPARQL, but they are ordered by their string value, so that is what they are compared by.
+	 * @return the filter expression
 	 */
-	private void parseParameters() {
-		mNamedParameters.clear();
-		mIndexedParameters.clear();
+	private String keyFilter() {
+		String aVar = mQueryDialect.asVar(mKeyVar);
 
-		Matcher aMatcher = Pattern.compile(UNAMED_VAR_REGEX).matcher(getQueryString());
-
-		// i'm pretty sure the JPA stuff is 1-indexed rather than the normal 0-indexed
-		int aIndex = 1;
-		while (aMatcher.find()) {
-			mIndexedParameters.put(aIndex++, null);
+		if (mKeyValue instanceof IRI) {
+			return "str(" + aVar + ") > " + mQueryDialect.asQueryString(SimpleValueFactory.getInstance().createLiteral(mKeyValue.stringValue()));
 		}
-
-		aMatcher = Pattern.compile(NAMED_VAR_REGEX).matcher(getQueryString());
-
-		while (aMatcher.find()) {
-			mNamedParameters.put(getQueryString().substring(aMatcher.start() + VARIABLE_TOKEN.length(), aMatcher.end()), null);
+		else {
+			return aVar + " > " + mQueryDialect.asQueryString(mKeyValue);
 		}
 	}
 
-	protected boolean startsWithKeyword(String theQuery) {
-		String q = theQuery.toLowerCase().trim();
-		return q.startsWith("select") || q.startsWith("construct") || q.startsWith("ask") || q.startsWith("describe");
-	}
-
 	/**
 	 * Return a valid, executable query instance from the specified query fragment, and user specified settings such
 	 * as parameter values, limit, offset, etc.
 	 * @return a valid query that can be run against a DataSource
 	 */
 	protected String query() {
-		// use some regexs to look for and remove limits and offsets specified in the query string and store them locally
-		// these will get postfixed to the query later on.
-		boolean containsLimit = Pattern.compile("limit(\\s)*[0-9]+[^}]*").matcher(getQueryString()).find();
-		boolean containsOffset = Pattern.compile("offset(\\s)*[0-9]+[^}]*").matcher(getQueryString()).find();
-
-		if (containsLimit) {
-			String aLimitGrabRegex = "limit(\\s)*[0-9]+";
-			Matcher m = Pattern.compile(aLimitGrabRegex).matcher(getQueryString());
-
-			if (m.find() && getMaxResults() == -1) {
-				setMaxResults(Integer.parseInt(m.group(0).split(" ")[1]));
-			}
-
-			mQuery = mQuery.replaceAll(aLimitGrabRegex, "");
+		// the parameters are bound to the slots of the compiled query string in one go, unbound parameters become
+		// variables.  limits and offsets specified in the query string are not part of the template, they are the
+		// initial limit and offset of this query, and get postfixed to the query like any others.
+		// with keyset pagination, the results after the key are selected at the end of the where clause.  the order,
+		// limit and offset go after the where clause, which is not the end of the query when it has a values clause.
+		StringBuilder aModifiers = new StringBuilder();
+
+		if (mKeyVar != null) {
+			aModifiers.append(" order by ").append(mQueryDialect.asVar(mKeyVar));
 		}
 
-		if (containsOffset) {
-			String aOffsetGrabRegex = "offset(\\s)*[0-9]+";
-			Matcher m = Pattern.compile(aOffsetGrabRegex).matcher(getQueryString());
-
-			if (m.find() && getFirstResult() == -1) {
-				setFirstResult(Integer.parseInt(m.group(0).split(" ")[1]));
-			}
-			
-			mQuery = mQuery.replaceAll(aOffsetGrabRegex, "");
+		if (getMaxResults() != -1) {
+			aModifiers.append(" limit ").append(getMaxResults());
 		}
 
-		String queryStr = insertVariables(getQueryString()).trim();
-
-		queryStr = replaceUnusedVariableTokens(queryStr);
+		if (getFirstResult() != -1) {
+			aModifiers.append(" offset ").append(getFirstResult());
+		}
 
-//		validateVariables();
+		String queryStr = mTemplate.bind(mQueryDialect, mNamedParameters, mIndexedParameters,
+		                                 mKeyVar != null && mKeyValue != null ? keyFilter() : null,
+		                                 aModifiers.length() == 0 ? null : aModifiers.toString().trim());
 
 		// TODO: should we get the values for the keywords used here (select, distinct, construct, limit, offset) from
 		// the subclass rather than hard coding them?  or will these be the same for all rdf based query languages?
 
 		StringBuffer aQuery = new StringBuffer(queryStr);
 
-        if (!aQuery.toString().toLowerCase().startsWith(mQueryDialect.patternKeyword())
-			&& !startsWithKeyword(aQuery.toString())) {
+        if (!QueryTemplate.startsWith(aQuery, mQueryDialect.patternKeyword())
+			&& !startsWithKeyword(queryStr)) {
             aQuery.insert(0, mQueryDialect.patternKeyword());
         }
 
         StringBuilder aStart = new StringBuilder();
-		if (!startsWithKeyword(getQueryString())) {
+		if (!mTemplate.isComplete()) {
 			aStart.insert(0, isConstruct() ? "construct " : "select ").append(isDistinct() ? " distinct " : "").append(" ");
 			
 			if (isConstruct()) {
@@ -774,41 +1183,8 @@ public final class RdfQuery implements Query {
 
         aQuery.insert(0, aStart.toString());
 
-		if (getMaxResults() != -1) {
-			aQuery.append(" limit ").append(getMaxResults());
-		}
-
-		if (getFirstResult() != -1) {
-			aQuery.append(" offset ").append(getFirstResult());
-		}
-
 		mQueryDialect.insertNamespaces(aQuery);
 
 		return aQuery.toString();
 	}
-
-	/**
-	 * Replaces all unused variable place holders with syntactically correct replacements.  Unnamed variable tokens "??"
-	 * in the query string get replaced with "[]" and named variable tokens "??foo" get turned into normal variables,
-	 * e.g. "?foo"
-	 * @param theQuery the query
-	 * @return the query w/ unused variables replaced w/ the appropriate equivalents.
-	 */
-	private String replaceUnusedVariableTokens(String theQuery) {
-		StringBuilder aQueryBuffer = new StringBuilder();
-
-		Matcher m = Pattern.compile(NAMED_VAR_REGEX).matcher(theQuery);
-
-		int start = 0;
-		while (m.find()) {
-			aQueryBuffer.append(theQuery.substring(start, m.start()));
-			aQueryBuffer.append(mQueryDialect.asVar(m.group(0).replaceAll(VT_RE, "")));
-
-			start = m.start() + m.group(0).length();
-		}
-
-		aQueryBuffer.append(theQuery.substring(start));
-
-		return aQueryBuffer.toString().replaceAll(UNAMED_VAR_REGEX, mQueryDialect.asVar(null) + " ");
-	}
 }
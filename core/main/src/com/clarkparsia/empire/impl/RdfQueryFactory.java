@@ -32,6 +32,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Collection;
 import java.util.Arrays;
+import java.util.function.BooleanSupplier;
 
 /**
  * <p>Implements the common operations of a {@link QueryFactory} and defers query language specific operations
@@ -58,6 +59,16 @@ public class RdfQueryFactory implements QueryFactory {
 	 */
 	private Map<String, NamedQueryInfo> mNamedQueries = Maps.newHashMap();
 
+	/**
+	 * The cache of the results of the queries created by this factory, or null if results are not cached
+	 */
+	private QueryCache mQueryCache;
+
+	/**
+	 * Whether or not the results of queries can be taken from, and put into, the {@link #mQueryCache cache} right now
+	 */
+	private BooleanSupplier mUseQueryCache = () -> true;
+
 	/**
 	 * Create a new AbstractQueryFactory
 	 * @param theSource the data source the queries will be executed against
@@ -112,6 +123,43 @@ public class RdfQueryFactory implements QueryFactory {
 		return mSource;
 	}
 
+	/**
+	 * Return the cache of the results of the queries created by this factory
+	 * @return the cache, or null if results are not cached
+	 */
+	public QueryCache getQueryCache() {
+		return mQueryCache;
+	}
+
+	/**
+	 * Set the cache of the results of the queries created by this factory.  The {@link EntityManagerImpl EntityManagers}
+	 * using the data source of this factory invalidate the cache when they write to it, but it is up to the caller to
+	 * invalidate it when the data source is modified outside of Empire.
+	 * @param theQueryCache the cache, or null to not cache results
+	 */
+	public void setQueryCache(final QueryCache theQueryCache) {
+		mQueryCache = theQueryCache;
+	}
+
+	/**
+	 * Return whether or not the results of queries can be taken from, and put into, the {@link #getQueryCache cache}
+	 * right now
+	 * @return true if the cache can be used, false if queries should go straight to the data source
+	 */
+	public boolean isUseQueryCache() {
+		return mQueryCache != null && mUseQueryCache.getAsBoolean();
+	}
+
+	/**
+	 * Set when the {@link #getQueryCache cache} can be used.  The cache is shared by all the
+	 * {@link EntityManagerImpl EntityManagers} of a factory, so the one using the data source of this factory does not
+	 * use it while it has writes which the others cannot see yet.
+	 * @param theUseQueryCache whether or not the cache can be used right now
+	 */
+	public void setUseQueryCache(final BooleanSupplier theUseQueryCache) {
+		mUseQueryCache = theUseQueryCache;
+	}
+
 	/**
 	 * Add a named query to this factory
 	 * @param theInfo the information about the query
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarkparsia.empire.impl;
+
+/**
+ * <p>How an {@link EntityManagerImpl} checks that the entities it persisted or removed are, or are no longer, in the
+ * data source once the write has been made.</p>
+ *
+ * @author  Michael Grove
+ * @since   1.0
+ * @version 1.0
+ */
+public enum VerificationPolicy {
+
+	/**
+	 * Writes are not verified
+	 */
+	NONE,
+
+	/**
+	 * A random sample of the written entities is verified
+	 */
+	SAMPLED,
+
+	/**
+	 * All of the written entities are verified, checking as many as possible with a single query
+	 */
+	BATCHED
+}
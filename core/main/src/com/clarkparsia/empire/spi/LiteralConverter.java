@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarkparsia.empire.spi;
+
+import org.openrdf.model.IRI;
+import org.openrdf.model.Literal;
+import org.openrdf.model.ValueFactory;
+
+import java.util.Set;
+
+/**
+ * <p>Converts between RDF literals and a Java type.  Converters are registered with
+ * {@link com.clarkparsia.empire.annotation.LiteralConverters}, either programmatically or by listing them in
+ * <code>META-INF/services/com.clarkparsia.empire.spi.LiteralConverter</code>, and are used when converting beans to
+ * and from RDF; a converter registered for a datatype or Java type takes precedence over the ones registered before it,
+ * including the ones built into Empire.</p>
+ *
+ * @param <T> the Java type
+ *
+ * @author  Michael Grove
+ * @since   1.0
+ * @version 1.0
+ */
+public interface LiteralConverter<T> {
+
+	/**
+	 * Return the Java type of the converted values
+	 * @return the type
+	 */
+	public Class<T> getType();
+
+	/**
+	 * Return the datatypes of the literals which can be converted to the Java type.  This can be empty if the
+	 * converter is only used to create literals.
+	 * @return the datatypes
+	 */
+	public Set<IRI> getDatatypes();
+
+	/**
+	 * Convert the literal to the Java type
+	 * @param theLiteral the literal, whose datatype is one of {@link #getDatatypes}
+	 * @return the converted value
+	 * @throws IllegalArgumentException if the lexical value of the literal is not valid for the type
+	 */
+	public T fromLiteral(Literal theLiteral);
+
+	/**
+	 * Convert the value to a literal
+	 * @param theValue the value
+	 * @param theFactory the factory to use to create the literal
+	 * @return the literal
+	 */
+	public Literal toLiteral(T theValue, ValueFactory theFactory);
+}
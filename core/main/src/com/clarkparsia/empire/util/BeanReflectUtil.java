@@ -54,6 +54,7 @@ import java.util.Date;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Collections;
 
 /**
  * <p>Some utility methods which use the Java reflect stuff to do a lot of the runtime accessing of fields and methods
@@ -68,7 +69,7 @@ public final class BeanReflectUtil {
 	/**
 	 * Small cache so we don't have to recalcuation information via java.lang.reflect every time, which can be expensive
 	 */
-	private final static Map<Class<?>, BeanReflectCacheEntry> cache = new HashMap<Class<?>, BeanReflectCacheEntry>();
+	private final static Map<Class<?>, BeanReflectCacheEntry> cache = Maps.newConcurrentMap();
 
 	/**
 	 * Cannot create instances of this class
@@ -1037,6 +1038,6 @@ public final class BeanReflectUtil {
 		public Collection<Method> mInferredSetters;
 		public Collection<Method> mInferredGetters;
 
-		public Map<Class<? extends Annotation>, Annotation> mAnnotations = Maps.newHashMap();
+		public Map<Class<? extends Annotation>, Annotation> mAnnotations = Collections.synchronizedMap(Maps.<Class<? extends Annotation>, Annotation>newHashMap());
 	}
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarkparsia.empire;
+
+import com.clarkparsia.empire.annotation.RdfGenerator;
+import com.clarkparsia.empire.api.TestPerson;
+import com.clarkparsia.empire.util.TestModule;
+import com.clarkparsia.empire.util.TestUtil;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Reports the throughput of converting plain beans, which are not lazy loading proxies, to RDF with
+ * {@link RdfGenerator#asRdf}.  asRdf used to decide whether a bean was a proxy by looking up a declared field called
+ * <code>handler</code>, which throws for every plain bean; the "before" numbers do that lookup ahead of each
+ * conversion, the "after" numbers are asRdf as it is, which recognizes proxies with an instanceof check.  This is not
+ * part of the test suite, run it with the number of beans to convert, 100000 by default.</p>
+ *
+ * @author  Michael Grove
+ * @since   1.0
+ * @version 1.0
+ */
+public final class AsRdfBenchmark {
+
+	private static final int ROUNDS = 5;
+
+	public static void main(final String[] args) throws Exception {
+		TestUtil.setConfigSystemProperty("test.empire.config.properties");
+		Empire.init(new TestModule());
+
+		int aCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+		List<TestPerson> aPeople = people(aCount);
+
+		// the first rounds are a warm up, they pay for mapping the class and for the jit
+		for (int aRound = 0; aRound < ROUNDS; aRound++) {
+			System.out.println("Round " + (aRound + 1));
+
+			report("asRdf, before (handler field lookup)", aCount, asRdf(aPeople, true));
+			report("asRdf, after", aCount, asRdf(aPeople, false));
+		}
+	}
+
+	private static long asRdf(final List<TestPerson> thePeople, final boolean theLookupHandler) throws Exception {
+		long aStatements = 0;
+
+		Stopwatch aWatch = Stopwatch.createStarted();
+
+		for (TestPerson aPerson : thePeople) {
+			if (theLookupHandler) {
+				lookupHandler(aPerson);
+			}
+
+			aStatements += RdfGenerator.asRdf(aPerson).size();
+		}
+
+		long aMillis = aWatch.elapsed(TimeUnit.MILLISECONDS);
+
+		// use the result so the conversion can't be optimized away
+		if (aStatements == 0) {
+			throw new IllegalStateException("Nothing was converted");
+		}
+
+		return aMillis;
+	}
+
+	/**
+	 * The proxy check asRdf did before, which fails with an exception for every bean which is not a proxy
+	 */
+	private static void lookupHandler(final Object theObj) {
+		try {
+			theObj.getClass().getDeclaredField("handler");
+		}
+		catch (NoSuchFieldException e) {
+			// not a proxy
+		}
+	}
+
+	private static List<TestPerson> people(final int theCount) {
+		List<TestPerson> aPeople = Lists.newArrayListWithCapacity(theCount);
+
+		for (int i = 0; i < theCount; i++) {
+			TestPerson aPerson = new TestPerson();
+			aPerson.setMBox("mailto:person" + i + "@example.org");
+			aPerson.setFirstName("person");
+			aPerson.setLastName(String.valueOf(i));
+			aPerson.setWeight((float) i);
+
+			aPeople.add(aPerson);
+		}
+
+		return aPeople;
+	}
+
+	private static void report(final String theName, final int theCount, final long theMillis) {
+		System.out.println(String.format("%-40s %8d beans in %6d ms, %10.1f beans/s",
+		                                 theName, theCount, theMillis, theCount * 1000.0 / Math.max(theMillis, 1)));
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.clarkparsia.empire;
+
+import com.clarkparsia.empire.api.MutableTestDataSource;
+import com.clarkparsia.empire.api.TestPerson;
+import com.clarkparsia.empire.impl.EntityManagerImpl;
+import com.clarkparsia.empire.util.Repositories2;
+import com.clarkparsia.empire.util.TestModule;
+import com.clarkparsia.empire.util.TestUtil;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Reports the throughput of persisting entities one at a time with {@link EntityManagerImpl#persist} against
+ * persisting them in bulk with {@link EntityManagerImpl#persistAll}, against an in-memory repository.  This is not part
+ * of the test suite, run it with the number of entities to persist, 10000 by default.</p>
+ *
+ * @author  Michael Grove
+ * @since   1.0
+ * @version 1.0
+ */
+public final class BulkPersistBenchmark {
+
+	private static final int ROUNDS = 3;
+
+	public static void main(final String[] args) throws Exception {
+		TestUtil.setConfigSystemProperty("test.empire.config.properties");
+		Empire.init(new TestModule());
+
+		int aCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+		// the first rounds are a warm up, they pay for loading & mapping the classes and for the jit
+		for (int aRound = 0; aRound < ROUNDS; aRound++) {
+			System.out.println("Round " + (aRound + 1));
+
+			report("persist", aCount, persistEach(people("each" + aRound, aCount)));
+			report("persistAll", aCount, persistAll(people("all" + aRound, aCount), true));
+			report("persistAll, no existence checks", aCount, persistAll(people("unchecked" + aRound, aCount), false));
+		}
+	}
+
+	private static long persistEach(final List<TestPerson> thePeople) {
+		EntityManagerImpl aManager = new EntityManagerImpl(new MutableTestDataSource(Repositories2.createInMemoryRepo()));
+
+		Stopwatch aWatch = Stopwatch.createStarted();
+
+		for (TestPerson aPerson : thePeople) {
+			aManager.persist(aPerson);
+		}
+
+		return aWatch.elapsed(TimeUnit.MILLISECONDS);
+	}
+
+	private static long persistAll(final List<TestPerson> thePeople, final boolean theCheckExists) {
+		EntityManagerImpl aManager = new EntityManagerImpl(new MutableTestDataSource(Repositories2.createInMemoryRepo()));
+
+		Stopwatch aWatch = Stopwatch.createStarted();
+
+		aManager.persistAll(thePeople.stream(), theCheckExists);
+
+		return aWatch.elapsed(TimeUnit.MILLISECONDS);
+	}
+
+	private static List<TestPerson> people(final String thePrefix, final int theCount) {
+		List<TestPerson> aPeople = Lists.newArrayListWithCapacity(theCount);
+
+		for (int i = 0; i < theCount; i++) {
+			TestPerson aPerson = new TestPerson();
+			aPerson.setMBox("mailto:" + thePrefix + i + "@example.org");
+			aPerson.setFirstName(thePrefix);
+			aPerson.setLastName(String.valueOf(i));
+			aPerson.setWeight((float) i);
+
+			aPeople.add(aPerson);
+		}
+
+		return aPeople;
+	}
+
+	private static void report(final String theName, final int theCount, final long theMillis) {
+		System.out.println(String.format("%-35s %8d entities in %6d ms, %10.1f entities/s",
+		                                 theName, theCount, theMillis, theCount * 1000.0 / Math.max(theMillis, 1)));
+	}
+}
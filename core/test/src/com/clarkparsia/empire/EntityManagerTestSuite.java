@@ -26,7 +26,19 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Set;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
@@ -51,13 +63,19 @@ import com.clarkparsia.empire.annotation.SupportsRdfIdImpl;
 import com.clarkparsia.empire.codegen.InstanceGenerator;
 
 import com.clarkparsia.empire.ds.DataSource;
+import com.clarkparsia.empire.ds.DataSourceUtil;
 import com.clarkparsia.empire.ds.DataSourceException;
 import com.clarkparsia.empire.ds.DataSourceFactory;
 import com.clarkparsia.empire.ds.MutableDataSource;
+import com.clarkparsia.empire.ds.SupportsSparqlUpdate;
 import com.clarkparsia.empire.ds.SupportsTransactions;
 import com.clarkparsia.empire.ds.TripleSource;
 
+import com.clarkparsia.empire.impl.EntityCache;
+import com.clarkparsia.empire.impl.QueryCache;
 import com.clarkparsia.empire.impl.EntityManagerFactoryImpl;
+import com.clarkparsia.empire.impl.RdfQuery;
+import com.clarkparsia.empire.impl.serql.SerqlDialect;
 import com.clarkparsia.empire.api.BaseTestClass;
 
 import com.clarkparsia.empire.api.TestEntityListener;
@@ -71,10 +89,12 @@ import com.clarkparsia.empire.typing.A;
 import com.clarkparsia.empire.typing.AnotherB;
 import com.clarkparsia.empire.typing.B;
 
+import com.clarkparsia.empire.util.EmpireUtil;
 import com.clarkparsia.empire.util.TestUtil;
 import com.complexible.common.openrdf.model.ModelIO;
 import com.complexible.common.openrdf.model.Models2;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 
 import org.junit.After;
@@ -84,8 +104,12 @@ import org.junit.BeforeClass;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import org.openrdf.model.BNode;
 import org.openrdf.model.Graph;
+import org.openrdf.model.IRI;
+import org.openrdf.model.Model;
 import org.openrdf.model.Statement;
+import org.openrdf.model.ValueFactory;
 import org.openrdf.model.impl.SimpleValueFactory;
 import org.openrdf.model.vocabulary.RDF;
 
@@ -94,6 +118,7 @@ import org.openrdf.rio.RDFParseException;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeTrue;
@@ -177,6 +202,36 @@ public abstract class EntityManagerTestSuite {
 		}
 	}
 
+	@Test
+	public void testQueryParameterBinding() {
+		EntityManager aManager = createEntityManager();
+
+		try {
+			Query aQuery = aManager.createQuery("select ?s where { ?s ??p ?o . ?o ??pp ?? . } limit 5");
+
+			assertEquals(5, ((RdfQuery) aQuery).getMaxResults());
+
+			aQuery.setParameter("p", URI.create("urn:p"));
+			aQuery.setParameter(1, SimpleValueFactory.getInstance().createLiteral("v"));
+
+			String aQueryString = aQuery.toString();
+
+			assertTrue(aQueryString.contains("?s <urn:p> ?o"));
+
+			// unbound parameters are variables, and a parameter is not bound to the others which start with its name
+			assertTrue(aQueryString.contains("?o ?pp \"v\""));
+
+			// the same query string again gets its own parameters
+			Query aOther = aManager.createQuery("select ?s where { ?s ??p ?o . ?o ??pp ?? . } limit 5");
+
+			assertTrue(aOther.toString().contains("?s ?p ?o . ?o ?pp []"));
+			assertTrue(aOther.toString().endsWith("limit 5"));
+		}
+		finally {
+			aManager.close();
+		}
+	}
+
 	/**
 	 * Test to ensure we don't get into an infinite loop persisting two objects which both hold a reference to each other.
 	 */
@@ -266,6 +321,29 @@ public abstract class EntityManagerTestSuite {
 		assertEquals(c, one.list);
 	}
 
+	/**
+	 * The structure of an rdf:List is fetched with a single query, so a list is read back in order even when the bnode
+	 * ids of its cells cannot be used in subsequent queries.
+	 */
+	@Test
+	public void testListReadInOneQuery() {
+		EntityManager aMgr = createEntityManager();
+
+		assumeTrue(!(((DataSource) aMgr.getDelegate()).getQueryFactory().getDialect() instanceof SerqlDialect));
+
+		OneWithList one = new OneWithList();
+
+		for (int i = 0; i < 50; i++) {
+			one.list.add(new Elem("elem" + i));
+		}
+
+		aMgr.persist(one);
+
+		List<Elem> aList = Lists.newArrayList(aMgr.find(OneWithList.class, one.getRdfId()).list);
+
+		assertEquals(one.list, aList);
+	}
+
 	/**
 	 * Test case for using generated instances and avoiding duplicates.  If you use a generated classes and persist it originally to an EM, then make changes on
 	 * the *same* object and merge those changes, EmpireGenerated is not correctly populated, so nothing is deleted and you end up with duplicated values.  So
@@ -375,6 +453,40 @@ public abstract class EntityManagerTestSuite {
 		assertEquals(1, Lists.newArrayList(aGraph.match(null, SimpleValueFactory.getInstance().createIRI("urn:label"), null)).size());
 	}
 
+	/**
+	 * Merging an entity whose lazily loaded references were never accessed must not load them
+	 * @throws Exception test error
+	 */
+	@Test
+	public void testMergeDoesNotLoadProxies() throws Exception {
+		EntityManager aManager = createEntityManager();
+
+		assumeTrue(aManager.getDelegate() instanceof MutableDataSource);
+
+		insertData((MutableDataSource) aManager.getDelegate(), new File(DATA_FILE));
+
+		String aLaunchURI = "http://nasa.dataincubator.org/launch/SATURNSA1";
+
+		LaunchUsingProxy aLaunch = aManager.find(LaunchUsingProxy.class, aLaunchURI);
+
+		// the launch site is lazily loaded, and merges are cascaded to it
+		assertTrue(RdfGenerator.isUnloadedProxy(aLaunch.getLaunchSite()));
+
+		aLaunch.setLaunched("1961-10-27");
+
+		aManager.merge(aLaunch);
+
+		// but it has not changed since it was never loaded, so neither the merge nor the cascade load it
+		assertTrue(RdfGenerator.isUnloadedProxy(aLaunch.getLaunchSite()));
+
+		aManager.clear();
+
+		LaunchUsingProxy aMerged = aManager.find(LaunchUsingProxy.class, aLaunchURI);
+
+		assertEquals("1961-10-27", aMerged.getLaunched());
+		assertEquals(aLaunch.getLaunchSite().getRdfId(), aMerged.getLaunchSite().getRdfId());
+	}
+
 	/**
 	 * Test for basic proxying using Javassist
 	 * @throws Exception test error
@@ -1088,6 +1200,391 @@ public abstract class EntityManagerTestSuite {
 		assertEquals(aCopy, aCraft);
 	}
 
+	/**
+	 * Finding an entity which is already managed should return the managed instance rather than going back to the
+	 * data source.
+	 */
+	@Test
+	public void testPersistenceContext() throws Exception {
+		EntityManager aManager = createEntityManager();
+
+		assumeTrue(aManager.getDelegate() instanceof MutableDataSource);
+
+		MutableDataSource aSource = (MutableDataSource) aManager.getDelegate();
+
+		insertData(aSource, new File(DATA_FILE));
+
+		URI aURI = URI.create("http://nasa.dataincubator.org/spacecraft/1957-001A");
+
+		Spacecraft aCraft = aManager.find(Spacecraft.class, aURI);
+
+		assertTrue(aCraft == aManager.find(Spacecraft.class, aURI));
+		assertTrue(aCraft == aManager.getReference(Spacecraft.class, aURI));
+
+		// take the data out from under the EntityManager, the managed instance is still returned, without a trip to
+		// the database
+		aSource.remove(Models2.newModel(((EmpireGenerated) aCraft).getAllTriples()));
+
+		assertTrue(aCraft == aManager.find(Spacecraft.class, aURI));
+		assertTrue(aManager.contains(aCraft));
+
+		aManager.clear();
+
+		assertTrue(null == aManager.find(Spacecraft.class, aURI));
+
+		Spacecraft aNewCraft = new Spacecraft();
+		aNewCraft.setName("Ares 1");
+
+		aManager.persist(aNewCraft);
+
+		Spacecraft aManagedCraft = aManager.find(Spacecraft.class, aNewCraft.getRdfId());
+
+		assertTrue(aManagedCraft == aManager.find(Spacecraft.class, aNewCraft.getRdfId()));
+
+		aManagedCraft.setName("Ares 2");
+
+		aManager.merge(aManagedCraft);
+
+		assertTrue(aManagedCraft == aManager.find(Spacecraft.class, aNewCraft.getRdfId()));
+
+		aManager.remove(aManagedCraft);
+
+		assertTrue(null == aManager.find(Spacecraft.class, aNewCraft.getRdfId()));
+	}
+
+	/**
+	 * EntityManagers created by the same factory share the second-level cache, entities are loaded from the cache
+	 * rather than the database until they are written.
+	 */
+	@Test
+	public void testSecondLevelCache() throws Exception {
+		EntityManagerFactoryImpl aFactory = new EntityManagerFactoryImpl(createDataSourceFactory(),
+		                                                                 ImmutableMap.of(EntityManagerFactoryImpl.SECOND_LEVEL_CACHE, "true"));
+
+		EntityManager aManager = aFactory.createEntityManager();
+
+		assumeTrue(aManager.getDelegate() instanceof MutableDataSource);
+
+		insertData((MutableDataSource) aManager.getDelegate(), new File(DATA_FILE));
+
+		EntityCache aCache = aFactory.getSecondLevelCache();
+
+		URI aURI = URI.create("http://nasa.dataincubator.org/spacecraft/1957-001A");
+
+		Spacecraft aCraft = aManager.find(Spacecraft.class, aURI);
+
+		assertEquals(0, aCache.getHitCount());
+		assertEquals(1, aCache.getMissCount());
+
+		// a new manager gets its own instance, but from the cached data
+		EntityManager aOtherManager = aFactory.createEntityManager();
+
+		Spacecraft aOtherCraft = aOtherManager.find(Spacecraft.class, aURI);
+
+		assertTrue(aCraft != aOtherCraft);
+		assertEquals(aCraft, aOtherCraft);
+		assertEquals(1, aCache.getHitCount());
+
+		aCraft.setName("Sputnik 1");
+
+		aManager.merge(aCraft);
+
+		aManager.clear();
+		aOtherManager.clear();
+
+		assertEquals(0, aCache.size());
+
+		assertEquals("Sputnik 1", aManager.find(Spacecraft.class, aURI).getName());
+		assertEquals(2, aCache.getMissCount());
+
+		// a describe read before an invalidation is stale, it is not cached after it
+		long aGeneration = aCache.generation();
+
+		aCache.invalidate(EmpireUtil.asPrimaryKey(aURI));
+		aCache.put(EmpireUtil.asPrimaryKey(aURI), Spacecraft.class, Models2.newModel(), aGeneration);
+
+		assertEquals(0, aCache.size());
+
+		// the cache is bounded
+		EntityManagerFactoryImpl aBoundedFactory = new EntityManagerFactoryImpl(createDataSourceFactory(),
+		                                                                        ImmutableMap.of(EntityManagerFactoryImpl.SECOND_LEVEL_CACHE, "true",
+		                                                                                        EntityManagerFactoryImpl.SECOND_LEVEL_CACHE_SIZE, "1"));
+
+		EntityManager aBoundedManager = aBoundedFactory.createEntityManager();
+
+		insertData((MutableDataSource) aBoundedManager.getDelegate(), new File(DATA_FILE));
+
+		aBoundedManager.find(Spacecraft.class, aURI);
+		aBoundedManager.find(Spacecraft.class, URI.create("http://nasa.dataincubator.org/spacecraft/1957-002A"));
+
+		assertEquals(1, aBoundedFactory.getSecondLevelCache().size());
+		assertEquals(1, aBoundedFactory.getSecondLevelCache().getEvictionCount());
+	}
+
+	/**
+	 * Results of repeated queries come from the query cache until the EntityManager writes to the data source
+	 */
+	@Test
+	public void testQueryCache() throws Exception {
+		EntityManagerFactoryImpl aFactory = new EntityManagerFactoryImpl(createDataSourceFactory(),
+		                                                                 ImmutableMap.of(EntityManagerFactoryImpl.QUERY_CACHE, "true"));
+
+		EntityManager aManager = aFactory.createEntityManager();
+
+		assumeTrue(aManager.getDelegate() instanceof MutableDataSource);
+
+		insertData((MutableDataSource) aManager.getDelegate(), new File(DATA_FILE));
+
+		QueryCache aCache = aFactory.getQueryCache();
+
+		List aResults = aManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class).getResultList();
+
+		assertEquals(0, aCache.getHitCount());
+		assertEquals(1, aCache.getMissCount());
+		assertEquals(1, aCache.size());
+
+		List aCachedResults = aManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class).getResultList();
+
+		assertEquals(1, aCache.getHitCount());
+		assertEquals(aResults.size(), aCachedResults.size());
+
+		// a query which is not read to the end is not cached
+		try (Stream<?> aStream = ((RdfQuery) aManager.createNativeQuery(TEST_AGENCY_QUERY)).getResultStream()) {
+			aStream.findFirst();
+		}
+
+		assertEquals(2, aCache.getMissCount());
+		assertEquals(1, aCache.size());
+
+		Spacecraft aCraft = (Spacecraft) aResults.get(0);
+		aCraft.setName("Cached Craft");
+
+		aManager.merge(aCraft);
+
+		assertEquals(0, aCache.size());
+
+		List aNewResults = aManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class).getResultList();
+
+		assertEquals(3, aCache.getMissCount());
+		assertEquals(aResults.size(), aNewResults.size());
+
+		// the cache is bounded by the number of rows
+		EntityManagerFactoryImpl aBoundedFactory = new EntityManagerFactoryImpl(createDataSourceFactory(),
+		                                                                        ImmutableMap.of(EntityManagerFactoryImpl.QUERY_CACHE, "true",
+		                                                                                        EntityManagerFactoryImpl.QUERY_CACHE_SIZE, "1"));
+
+		EntityManager aBoundedManager = aBoundedFactory.createEntityManager();
+
+		insertData((MutableDataSource) aBoundedManager.getDelegate(), new File(DATA_FILE));
+
+		aBoundedManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class).getResultList();
+
+		assertEquals(0, aBoundedFactory.getQueryCache().size());
+	}
+
+	/**
+	 * The query cache is shared by the entity managers of a factory, none of them caches results which the others can't
+	 * see yet
+	 */
+	@Test
+	public void testQueryCacheWithUncommittedWrites() throws Exception {
+		EntityManagerFactoryImpl aFactory = new EntityManagerFactoryImpl(createDataSourceFactory(),
+		                                                                 ImmutableMap.of(EntityManagerFactoryImpl.QUERY_CACHE, "true"));
+
+		EntityManager aManager = aFactory.createEntityManager();
+		EntityManager aOtherManager = aFactory.createEntityManager();
+
+		assumeTrue(aManager.getDelegate() instanceof MutableDataSource);
+
+		insertData((MutableDataSource) aManager.getDelegate(), new File(DATA_FILE));
+		insertData((MutableDataSource) aOtherManager.getDelegate(), new File(DATA_FILE));
+
+		QueryCache aCache = aFactory.getQueryCache();
+
+		aManager.getTransaction().begin();
+
+		Spacecraft aCraft = (Spacecraft) aManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class).getResultList().get(0);
+		aCraft.setName("Uncommitted Craft");
+
+		aManager.merge(aCraft);
+
+		List aResults = aManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class).getResultList();
+
+		assertTrue(aResults.stream().anyMatch(theCraft -> "Uncommitted Craft".equals(((Spacecraft) theCraft).getName())));
+
+		// nothing was cached, or even looked for, during the transaction
+		assertEquals(0, aCache.size());
+		assertEquals(0, aCache.getMissCount());
+
+		List aOtherResults = aOtherManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class).getResultList();
+
+		assertFalse(aOtherResults.stream().anyMatch(theCraft -> "Uncommitted Craft".equals(((Spacecraft) theCraft).getName())));
+		assertEquals(1, aCache.getMissCount());
+		assertEquals(1, aCache.size());
+
+		aManager.getTransaction().rollback();
+
+		// once the transaction is over, the results are cached again
+		aManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class).getResultList();
+
+		assertEquals(2, aCache.getMissCount());
+		assertEquals(1, aCache.size());
+
+		// the same goes for writes which are pending until the next flush
+		aManager.setFlushMode(FlushModeType.COMMIT);
+
+		aCraft = (Spacecraft) aManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class).getResultList().get(0);
+		aCraft.setName("Pending Craft");
+
+		assertEquals(1, aCache.getHitCount());
+
+		aManager.merge(aCraft);
+
+		aManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class).getResultList();
+
+		assertEquals(1, aCache.getHitCount());
+		assertEquals(2, aCache.getMissCount());
+
+		aManager.flush();
+
+		assertEquals(0, aCache.size());
+	}
+
+	/**
+	 * The entities loaded by findAll go into the second-level cache, like those loaded by find
+	 */
+	@Test
+	public void testFindAllFillsSecondLevelCache() throws Exception {
+		EntityManagerFactoryImpl aFactory = new EntityManagerFactoryImpl(createDataSourceFactory(),
+		                                                                 ImmutableMap.of(EntityManagerFactoryImpl.SECOND_LEVEL_CACHE, "true"));
+
+		EntityManager aManager = aFactory.createEntityManager();
+
+		assumeTrue(aManager instanceof EmpireEntityManager);
+		assumeTrue(aManager.getDelegate() instanceof MutableDataSource);
+
+		insertData((MutableDataSource) aManager.getDelegate(), new File(DATA_FILE));
+
+		EntityCache aCache = aFactory.getSecondLevelCache();
+
+		List<URI> aKeys = Arrays.asList(URI.create("http://nasa.dataincubator.org/spacecraft/1957-001A"),
+		                                URI.create("http://nasa.dataincubator.org/spacecraft/1957-002A"));
+
+		((EmpireEntityManager) aManager).findAll(Spacecraft.class, aKeys);
+
+		assertEquals(2, aCache.size());
+		assertEquals(0, aCache.getHitCount());
+
+		List<Spacecraft> aFound = ((EmpireEntityManager) aFactory.createEntityManager()).findAll(Spacecraft.class, aKeys);
+
+		assertEquals(2, aCache.getHitCount());
+		assertEquals(aKeys.get(1), aFound.get(1).getRdfId().value());
+	}
+
+	@Test
+	public void testVerifiedWrites() throws Exception {
+		EntityManagerFactoryImpl aFactory = new EntityManagerFactoryImpl(createDataSourceFactory(),
+		                                                                 ImmutableMap.of(EntityManagerFactoryImpl.VERIFICATION_POLICY, "batched"));
+
+		EntityManager aManager = aFactory.createEntityManager();
+
+		assumeTrue(aManager.getDelegate() instanceof MutableDataSource);
+
+		Spacecraft aCraft = new Spacecraft();
+		aCraft.setRdfId(new SupportsRdfId.URIKey(URI.create("urn:test:verified:craft")));
+		aCraft.setAgency("agency");
+
+		Spacecraft aOtherCraft = new Spacecraft();
+		aOtherCraft.setRdfId(new SupportsRdfId.URIKey(URI.create("urn:test:verified:other")));
+		aOtherCraft.setAgency("agency");
+
+		// the persist is verified, it would fail if the craft could not be found
+		aManager.persist(aCraft);
+
+		Set<Object> aExisting = DataSourceUtil.exists((DataSource) aManager.getDelegate(), Arrays.asList(aCraft, aOtherCraft));
+
+		assertEquals(1, aExisting.size());
+		assertTrue(aExisting.contains(aCraft));
+
+		aManager.remove(aCraft);
+
+		assertTrue(DataSourceUtil.exists((DataSource) aManager.getDelegate(), Arrays.asList(aCraft, aOtherCraft)).isEmpty());
+	}
+
+	/**
+	 * Entities are hydrated concurrently; each EntityManager should get its own, fully populated, instances and cycle
+	 * resolution within one load must not hand out instances which are being built by a load on another thread.
+	 */
+	@Test
+	public void testConcurrentFind() throws Exception {
+		final int aThreads = 8;
+		final List<URI> aKeys = Lists.newArrayList(URI.create("http://nasa.dataincubator.org/spacecraft/1957-001A"),
+		                                           URI.create("http://nasa.dataincubator.org/spacecraft/1957-002A"));
+
+		final List<EntityManager> aManagers = Lists.newArrayList();
+		for (int i = 0; i < aThreads; i++) {
+			EntityManager aManager = createEntityManager();
+
+			assumeTrue(aManager.getDelegate() instanceof MutableDataSource);
+
+			insertData((MutableDataSource) aManager.getDelegate(), new File(DATA_FILE));
+
+			aManagers.add(aManager);
+		}
+
+		ExecutorService aExecutor = Executors.newFixedThreadPool(aThreads);
+
+		try {
+			final CountDownLatch aStart = new CountDownLatch(1);
+			List<Future<List<Spacecraft>>> aFutures = Lists.newArrayList();
+
+			for (final EntityManager aManager : aManagers) {
+				aFutures.add(aExecutor.submit(new Callable<List<Spacecraft>>() {
+					public List<Spacecraft> call() throws Exception {
+						aStart.await();
+
+						List<Spacecraft> aLoaded = Lists.newArrayList();
+						for (int i = 0; i < 10; i++) {
+							for (URI aKey : aKeys) {
+								aLoaded.add(aManager.find(Spacecraft.class, aKey));
+							}
+						}
+
+						return aLoaded;
+					}
+				}));
+			}
+
+			aStart.countDown();
+
+			Map<Object, Integer> aOwners = new IdentityHashMap<>();
+
+			for (int i = 0; i < aFutures.size(); i++) {
+				for (Spacecraft aCraft : aFutures.get(i).get(1, TimeUnit.MINUTES)) {
+					assertNotNull(aCraft);
+					assertEquals("U.S.S.R", aCraft.getAgency());
+
+					// the cycle back from the launch resolves to the instance being loaded, never one from another thread
+					assertNotNull(aCraft.getLaunch());
+					assertTrue(aCraft.getLaunch().getSpacecraft().stream().anyMatch(theCraft -> theCraft == aCraft));
+
+					Integer aOwner = aOwners.put(aCraft, i);
+					assertTrue(aOwner == null || aOwner == i);
+
+					Integer aLaunchOwner = aOwners.put(aCraft.getLaunch(), i);
+					assertTrue(aLaunchOwner == null || aLaunchOwner == i);
+				}
+			}
+		}
+		finally {
+			aExecutor.shutdownNow();
+
+			for (EntityManager aManager : aManagers) {
+				aManager.close();
+			}
+		}
+	}
+
 	@Test
 	public void testQuerying() throws Exception {
 		EntityManager aManager = createEntityManager();
@@ -1174,6 +1671,271 @@ public abstract class EntityManagerTestSuite {
 		assertEquals(aCraft.getAlternateName(), Collections.singletonList("00001"));
 	}
 
+	@Test
+	public void testFindAll() throws Exception {
+		EntityManager aManager = createEntityManager();
+
+		assumeTrue(aManager instanceof EmpireEntityManager);
+		assumeTrue(aManager.getDelegate() instanceof MutableDataSource);
+
+		insertData((MutableDataSource) aManager.getDelegate(), new File(DATA_FILE));
+
+		List aCrafts = aManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class).getResultList();
+
+		assertTrue(aCrafts.size() > 3);
+
+		URI aMissing = URI.create("http://nasa.dataincubator.org/spacecraft/missing");
+
+		List<Object> aKeys = Lists.newArrayList();
+
+		for (Object aCraft : aCrafts) {
+			aKeys.add(((Spacecraft) aCraft).getRdfId().value());
+		}
+
+		aKeys.add(1, aMissing);
+
+		// one of them is already managed, and is returned as is
+		Spacecraft aManaged = aManager.find(Spacecraft.class, aKeys.get(0));
+
+		List<Spacecraft> aFound = ((EmpireEntityManager) aManager).findAll(Spacecraft.class, aKeys);
+
+		assertEquals(aKeys.size(), aFound.size());
+		assertTrue(aManaged == aFound.get(0));
+		assertNull(aFound.get(1));
+
+		for (int i = 2; i < aKeys.size(); i++) {
+			Spacecraft aCraft = (Spacecraft) aCrafts.get(i - 1);
+
+			assertEquals(aCraft.getRdfId(), aFound.get(i).getRdfId());
+			assertEquals(aCraft.getName(), aFound.get(i).getName());
+			assertEquals(aCraft.getAgency(), aFound.get(i).getAgency());
+
+			// the found entities are managed
+			assertTrue(aFound.get(i) == aManager.find(Spacecraft.class, aKeys.get(i)));
+		}
+	}
+
+	@Test
+	public void testBatchedQueryHydration() throws Exception {
+		EntityManager aManager = createEntityManager();
+
+		assumeTrue(aManager.getDelegate() instanceof MutableDataSource);
+
+		insertData((MutableDataSource) aManager.getDelegate(), new File(DATA_FILE));
+
+		List aResults = aManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class).getResultList();
+
+		// a batch size which does not evenly divide the results, so the last batch is a partial one
+		List aBatchedResults = aManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class)
+		                               .setHint(RdfQuery.HINT_BATCH_SIZE, 3)
+		                               .getResultList();
+
+		assertTrue(aResults.size() > 3);
+		assertEquals(aResults.size(), aBatchedResults.size());
+
+		for (int i = 0; i < aResults.size(); i++) {
+			Spacecraft aCraft = (Spacecraft) aResults.get(i);
+			Spacecraft aBatchedCraft = (Spacecraft) aBatchedResults.get(i);
+
+			assertEquals(aCraft.getRdfId(), aBatchedCraft.getRdfId());
+			assertEquals(aCraft.getAgency(), aBatchedCraft.getAgency());
+			assertEquals(aCraft.getName(), aBatchedCraft.getName());
+			assertEquals(aCraft.getAlternateName(), aBatchedCraft.getAlternateName());
+		}
+	}
+
+	@Test
+	public void testResultStream() throws Exception {
+		EntityManager aManager = createEntityManager();
+
+		assumeTrue(aManager.getDelegate() instanceof MutableDataSource);
+
+		insertData((MutableDataSource) aManager.getDelegate(), new File(DATA_FILE));
+
+		List aResults = aManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class).getResultList();
+
+		for (Integer aBatchSize : Arrays.asList(0, 3)) {
+			RdfQuery aQuery = (RdfQuery) aManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class)
+			                                     .setHint(RdfQuery.HINT_BATCH_SIZE, aBatchSize);
+
+			List<Object> aStreamed;
+
+			try (Stream<?> aStream = aQuery.getResultStream()) {
+				aStreamed = aStream.collect(Collectors.toList());
+			}
+
+			assertEquals(aResults.size(), aStreamed.size());
+
+			for (int i = 0; i < aResults.size(); i++) {
+				Spacecraft aCraft = (Spacecraft) aResults.get(i);
+				Spacecraft aStreamedCraft = (Spacecraft) aStreamed.get(i);
+
+				assertEquals(aCraft.getRdfId(), aStreamedCraft.getRdfId());
+				assertEquals(aCraft.getName(), aStreamedCraft.getName());
+			}
+		}
+
+		assertTrue(aResults.size() > 3);
+
+		// only as much of the result as is consumed is hydrated, a row at a time, or a batch at a time
+		for (Integer aBatchSize : Arrays.asList(0, 3)) {
+			CountedCraft.hydrated = 0;
+
+			RdfQuery aQuery = (RdfQuery) aManager.createNativeQuery(TEST_AGENCY_QUERY, CountedCraft.class)
+			                                     .setHint(RdfQuery.HINT_BATCH_SIZE, aBatchSize);
+
+			try (Stream<?> aStream = aQuery.getResultStream()) {
+				assertTrue(aStream.findFirst().isPresent());
+			}
+
+			assertEquals(Math.max(aBatchSize, 1), CountedCraft.hydrated);
+		}
+	}
+
+	@Test
+	public void testRowProjection() throws Exception {
+		EntityManager aManager = createEntityManager();
+
+		assumeTrue(aManager.getDelegate() instanceof MutableDataSource);
+
+		insertData((MutableDataSource) aManager.getDelegate(), new File(DATA_FILE));
+
+		String aQuery = "select ?result ?name ?agency where { ?result <" + SpaceVocab.ontology().agency + "> ?agency . " +
+		                "?result <http://xmlns.com/foaf/0.1/name> ?name . filter(?agency = \"U.S.S.R\") }";
+
+		List aCrafts = aManager.createNativeQuery(aQuery, Spacecraft.class)
+		                       .setHint(RdfQuery.HINT_ROW_PROJECTION, true)
+		                       .getResultList();
+
+		assertFalse(aCrafts.isEmpty());
+
+		for (Object aObj : aCrafts) {
+			Spacecraft aCraft = (Spacecraft) aObj;
+			Spacecraft aLoaded = aManager.find(Spacecraft.class, aCraft.getRdfId());
+
+			assertEquals(aLoaded.getName(), aCraft.getName());
+			assertEquals("U.S.S.R", aCraft.getAgency());
+
+			// only what was selected is set
+			assertNull(aCraft.getDescription());
+		}
+
+		// the bean does not need to be an entity
+		List aSummaries = aManager.createNativeQuery(aQuery, CraftSummary.class)
+		                          .setHint(RdfQuery.HINT_ROW_PROJECTION, "true")
+		                          .getResultList();
+
+		assertEquals(aCrafts.size(), aSummaries.size());
+
+		for (Object aObj : aSummaries) {
+			assertEquals("U.S.S.R", ((CraftSummary) aObj).agency);
+			assertNotNull(((CraftSummary) aObj).name);
+
+			// transient fields are not populated, the same as when a bean is loaded from rdf
+			assertNull(((CraftSummary) aObj).result);
+		}
+	}
+
+	public static class CraftSummary {
+		private String name;
+		private String agency;
+		private transient Object result;
+	}
+
+	@Test
+	public void testKeysetPagination() throws Exception {
+		EntityManager aManager = createEntityManager();
+
+		assumeTrue(aManager.getDelegate() instanceof MutableDataSource);
+
+		insertData((MutableDataSource) aManager.getDelegate(), new File(DATA_FILE));
+
+		List aResults = aManager.createNativeQuery(TEST_AGENCY_QUERY, Spacecraft.class).getResultList();
+
+		Set<Object> aAll = new HashSet<Object>();
+
+		for (Object aObj : aResults) {
+			aAll.add(((Spacecraft) aObj).getRdfId());
+		}
+
+		List<Object> aPaged = pageByKeyset(aManager, TEST_AGENCY_QUERY);
+
+		// every result exactly once, a page at a time
+		assertEquals(aResults.size(), aPaged.size());
+		assertEquals(aAll, new HashSet<Object>(aPaged));
+
+		// the filter goes at the end of the where clause, not in a literal or a values block which follows it
+		String aValuesQuery = "select ?result where { ?result <" + SpaceVocab.ontology().agency + "> ?agency . " +
+		                      "filter(?agency != \"}\") } values ?agency { \"U.S.S.R\" }";
+
+		assertEquals(aAll, new HashSet<Object>(pageByKeyset(aManager, aValuesQuery)));
+
+		try {
+			((RdfQuery) aManager.createNativeQuery(TEST_AGENCY_QUERY + " order by ?result")).setKeyset("result", null);
+
+			fail("A query with its own order by cannot be paged by keyset");
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		// only IRIs and literals without a language tag can be keys
+		try {
+			((RdfQuery) aManager.createNativeQuery(TEST_AGENCY_QUERY)).setKeyset("result", "\"Sputnik\"@en");
+
+			fail("A language tagged literal cannot be a key");
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		for (String aKey : Arrays.asList("bnode()", "strlang(str(?result), \"en\")")) {
+			RdfQuery aQuery = (RdfQuery) aManager.createNativeQuery("select ?key where { ?result <" + SpaceVocab.ontology().agency + "> ?agency . " +
+			                                                        "bind(" + aKey + " as ?key) }").setMaxResults(1);
+
+			aQuery.setKeyset("key", null);
+
+			assertEquals(1, aQuery.getResultList().size());
+
+			try {
+				aQuery.getContinuation();
+
+				fail("There is no continuation after a key which is " + aKey);
+			}
+			catch (IllegalStateException e) {
+				// expected
+			}
+		}
+	}
+
+	private static List<Object> pageByKeyset(final EntityManager theManager, final String theQuery) {
+		List<Object> aPaged = new ArrayList<Object>();
+		String aContinuation = null;
+		int aPages = 0;
+
+		do {
+			RdfQuery aQuery = (RdfQuery) theManager.createNativeQuery(theQuery, Spacecraft.class).setMaxResults(2);
+
+			aQuery.setKeyset("result", aContinuation);
+
+			List aPage = aQuery.getResultList();
+
+			assertTrue(aPage.size() <= 2);
+
+			for (Object aObj : aPage) {
+				aPaged.add(((Spacecraft) aObj).getRdfId());
+			}
+
+			aContinuation = aQuery.getContinuation();
+			aPages++;
+		}
+		while (aContinuation != null);
+
+		assertTrue(aPages >= aPaged.size() / 2);
+
+		return aPaged;
+	}
+
 	@Test
 	public void testUpdate() throws Exception {
 		EntityManager aManager = createEntityManager();
@@ -1282,6 +2044,42 @@ public abstract class EntityManagerTestSuite {
 		assertFalse(aManager.contains(aCraft));
 	}
 
+	@Test
+	public void testRemoveWithUpdate() throws Exception {
+		EntityManager aManager = createEntityManager();
+
+		assumeTrue(aManager.getDelegate() instanceof SupportsSparqlUpdate);
+		assumeTrue(aManager.getDelegate() instanceof TripleSource);
+
+		ValueFactory aFactory = SimpleValueFactory.getInstance();
+
+		IRI aPerson = aFactory.createIRI("urn:removed:person");
+		BNode aAddress = aFactory.createBNode();
+		BNode aGeo = aFactory.createBNode();
+
+		Model aGraph = Models2.newModel();
+		aGraph.add(aPerson, RDF.TYPE, aFactory.createIRI("urn:Resident"));
+		aGraph.add(aPerson, aFactory.createIRI("urn:address"), aAddress);
+		aGraph.add(aAddress, aFactory.createIRI("urn:street"), aFactory.createLiteral("1 Main St"));
+		aGraph.add(aAddress, aFactory.createIRI("urn:geo"), aGeo);
+		aGraph.add(aGeo, aFactory.createIRI("urn:lat"), aFactory.createLiteral("38.9"));
+
+		((MutableDataSource) aManager.getDelegate()).add(aGraph);
+
+		TestRdfConvert.Resident aResident = aManager.find(TestRdfConvert.Resident.class, URI.create(aPerson.toString()));
+
+		assertTrue(aResident != null);
+
+		aManager.remove(aResident);
+
+		// the update removes the statements about the individual and about the bnodes it references
+		TripleSource aSource = (TripleSource) aManager.getDelegate();
+
+		for (Statement aStmt : aGraph) {
+			assertFalse(aSource.getStatements(aStmt.getSubject(), aStmt.getPredicate(), null).iterator().hasNext());
+		}
+	}
+
 	@Test(expected=IllegalArgumentException.class)
 	public void testRemoveNonExistingObj() {
 		Spacecraft aCraft = new Spacecraft();
@@ -1307,15 +2105,12 @@ public abstract class EntityManagerTestSuite {
 
 		assertTrue(aManager.isOpen());
 
-		// we support this...
-		aManager.setFlushMode(FlushModeType.AUTO);
+		// we support both flush modes
+		aManager.setFlushMode(FlushModeType.COMMIT);
 
-		// ... but not this
-		try {
-			aManager.setFlushMode(FlushModeType.COMMIT);
-			fail("IllegalArgumentException expected");
-		}
-		catch (IllegalArgumentException e) { /* expected */ }
+		assertEquals(aManager.getFlushMode(), FlushModeType.COMMIT);
+
+		aManager.setFlushMode(FlushModeType.AUTO);
 
 		assertEquals(aManager.getFlushMode(), FlushModeType.AUTO);
 
@@ -1557,6 +2352,24 @@ public abstract class EntityManagerTestSuite {
 	}
 
 	
+	@Entity
+	@RdfsClass("urn:CountedCraft")
+	public static class CountedCraft extends BaseTestClass {
+		static int hydrated = 0;
+
+		private String name;
+
+		@RdfProperty("foaf:name")
+		public String getName() {
+			return name;
+		}
+
+		public void setName(final String theName) {
+			name = theName;
+			hydrated++;
+		}
+	}
+
 	@Entity
 	@RdfsClass("http://empire.clarkparsia.com/OneWithList")
 	public static class OneWithList extends BaseTestClass {
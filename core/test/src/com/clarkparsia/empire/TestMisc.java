@@ -16,19 +16,30 @@
 package com.clarkparsia.empire;
 
 import com.clarkparsia.empire.impl.EntityManagerFactoryImpl;
+import com.clarkparsia.empire.api.MutableTestDataSource;
 import com.clarkparsia.empire.api.TestDataSourceFactory;
+import com.clarkparsia.empire.api.TestPerson;
+import com.clarkparsia.empire.codegen.InstanceGenerator;
+import com.clarkparsia.empire.ds.DataSourceException;
+import com.clarkparsia.empire.ds.QueryException;
+import com.clarkparsia.empire.ds.ResultSet;
+import com.clarkparsia.empire.impl.EntityManagerImpl;
 import com.clarkparsia.empire.util.TestModule;
+import com.clarkparsia.empire.util.Repositories2;
 import com.clarkparsia.empire.util.TestUtil;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 import org.openrdf.model.Resource;
 import org.openrdf.model.BNode;
 import org.openrdf.model.Model;
 import org.openrdf.model.impl.SimpleValueFactory;
 import org.openrdf.model.util.GraphUtil;
+import org.openrdf.model.vocabulary.XMLSchema;
 import com.clarkparsia.empire.api.BaseTestClass;
 import com.clarkparsia.empire.util.EmpireUtil;
 import com.clarkparsia.empire.annotation.SupportsRdfIdImpl;
@@ -36,15 +47,25 @@ import com.clarkparsia.empire.annotation.RdfsClass;
 import com.clarkparsia.empire.annotation.RdfProperty;
 import com.clarkparsia.empire.annotation.RdfGenerator;
 import com.clarkparsia.empire.annotation.InvalidRdfException;
+import com.complexible.common.openrdf.model.Models2;
+import com.complexible.common.openrdf.vocabulary.FOAF;
 import com.complexible.common.util.PrefixMapping;
+import com.google.common.collect.Lists;
 
+import javax.persistence.EntityExistsException;
+import javax.persistence.EntityListeners;
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
 import javax.persistence.Persistence;
 import javax.persistence.Entity;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.PostPersist;
+import javax.persistence.PrePersist;
 
 import java.io.File;
 import java.net.URL;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * <p>Various miscellaneous tests for non-JPA parts of the Empire API.</p>
@@ -124,6 +145,395 @@ public class TestMisc {
 		assertEquals(1, aResult);
 	}
 
+	@Test
+	public void testMergeWritesOnlyChanges() throws Exception {
+		RecordingDataSource aSource = new RecordingDataSource();
+		EntityManager aManager = new EntityManagerImpl(aSource);
+
+		TestPerson aPerson = new TestPerson();
+		aPerson.setMBox("mailto:merge@example.org");
+		aPerson.setFirstName("Merge");
+		aPerson.setLastName("Test");
+		aPerson.setWeight(42f);
+
+		aManager.persist(aPerson);
+
+		TestPerson aFound = aManager.find(TestPerson.class, aPerson.getRdfId());
+		aFound.setFirstName("Merged");
+
+		aSource.reset();
+		aManager.merge(aFound);
+
+		// the old name is the only thing removed, the unchanged values are not written again
+		assertEquals(1, aSource.getRemoved().size());
+		assertTrue(aSource.getRemoved().contains(null, FOAF.ontology().firstName, SimpleValueFactory.getInstance().createLiteral("Merge", XMLSchema.STRING)));
+		assertTrue(aSource.getAdded().contains(null, FOAF.ontology().firstName, SimpleValueFactory.getInstance().createLiteral("Merged", XMLSchema.STRING)));
+		assertFalse(aSource.getAdded().contains(null, FOAF.ontology().surname, null));
+
+		aFound.setLastName("Merged");
+
+		aSource.reset();
+		aManager.merge(aFound);
+
+		// the instance knows what was written by the last merge, so the new first name is not removed & added again
+		assertTrue(aSource.getRemoved().contains(null, FOAF.ontology().surname, SimpleValueFactory.getInstance().createLiteral("Test", XMLSchema.STRING)));
+		assertFalse(aSource.getRemoved().contains(null, FOAF.ontology().firstName, null));
+		assertFalse(aSource.getAdded().contains(null, FOAF.ontology().firstName, null));
+
+		assertEquals("Merged", aManager.find(TestPerson.class, aPerson.getRdfId()).getLastName());
+	}
+
+	@Test
+	public void testCommitFlushModeBuffersWrites() throws Exception {
+		RecordingDataSource aSource = new RecordingDataSource();
+		EntityManager aManager = new EntityManagerImpl(aSource);
+
+		aManager.setFlushMode(FlushModeType.COMMIT);
+
+		assertEquals(FlushModeType.COMMIT, aManager.getFlushMode());
+
+		TestPerson aFirst = new TestPerson();
+		aFirst.setMBox("mailto:first@example.org");
+		aFirst.setFirstName("First");
+
+		TestPerson aSecond = new TestPerson();
+		aSecond.setMBox("mailto:second@example.org");
+		aSecond.setFirstName("Second");
+
+		TestPerson aThird = new TestPerson();
+		aThird.setMBox("mailto:third@example.org");
+		aThird.setFirstName("Third");
+
+		aManager.persist(aFirst);
+		aManager.persist(aSecond);
+		aManager.persist(aThird);
+
+		// nothing is written until the flush, and then it's all written at once
+		assertTrue(aSource.getAdded().isEmpty());
+
+		aManager.flush();
+
+		assertEquals(1, aSource.getWrites());
+		assertTrue(aSource.getAdded().contains(EmpireUtil.asResource(aFirst), null, null));
+		assertTrue(aSource.getAdded().contains(EmpireUtil.asResource(aThird), null, null));
+
+		aSource.reset();
+
+		// reading an entity with pending changes flushes them first
+		aManager.remove(aManager.find(TestPerson.class, aSecond.getRdfId()));
+
+		assertTrue(aSource.getRemoved().isEmpty());
+		assertTrue(aManager.find(TestPerson.class, aSecond.getRdfId()) == null);
+		assertFalse(aSource.getRemoved().isEmpty());
+
+		// unflushed changes are discarded by a clear
+		TestPerson aFourth = new TestPerson();
+		aFourth.setMBox("mailto:fourth@example.org");
+
+		aManager.persist(aFourth);
+		aManager.clear();
+		aManager.flush();
+
+		assertFalse(aSource.getAdded().contains(EmpireUtil.asResource(aFourth), null, null));
+	}
+
+	@Test
+	public void testBulkPersistAndMerge() throws Exception {
+		RecordingDataSource aSource = new RecordingDataSource();
+		EntityManagerImpl aManager = new EntityManagerImpl(aSource);
+
+		aManager.setBulkChunkSize(2);
+
+		List<TestPerson> aPeople = Lists.newArrayList();
+
+		for (int i = 0; i < 5; i++) {
+			TestPerson aPerson = new TestPerson();
+			aPerson.setMBox("mailto:bulk" + i + "@example.org");
+			aPerson.setFirstName("Bulk" + i);
+
+			aPeople.add(aPerson);
+		}
+
+		aManager.persistAll(aPeople);
+
+		// one write per chunk
+		assertEquals(3, aSource.getWrites());
+
+		for (TestPerson aPerson : aPeople) {
+			assertEquals(aPerson.getFirstName(), aManager.find(TestPerson.class, aPerson.getRdfId()).getFirstName());
+		}
+
+		try {
+			aManager.persistAll(aPeople.subList(4, 5));
+			fail("EntityExistsException expected");
+		}
+		catch (EntityExistsException e) {
+			// expected, the entity is managed
+		}
+
+		// entities which are not managed are looked for in the database, all of them with one query
+		aManager.clear();
+		aSource.reset();
+
+		TestPerson aNew = new TestPerson();
+		aNew.setMBox("mailto:bulk5@example.org");
+		aNew.setRdfId(new SupportsRdfId.URIKey(java.net.URI.create(aNew.getMBox())));
+
+		TestPerson aCopy = new TestPerson();
+		aCopy.setMBox(aPeople.get(4).getMBox());
+		aCopy.setRdfId(aPeople.get(4).getRdfId());
+
+		try {
+			aManager.persistAll(Lists.newArrayList(aNew, aCopy));
+			fail("EntityExistsException expected");
+		}
+		catch (EntityExistsException e) {
+			// expected, the entity is in the database
+		}
+
+		assertEquals(1, aSource.getSelects());
+		assertEquals(0, aSource.getWrites());
+
+		for (TestPerson aPerson : aPeople) {
+			aPerson.setLastName("Merged");
+		}
+
+		aSource.reset();
+
+		aManager.mergeAll(aPeople.stream());
+
+		assertEquals(3, aSource.getWrites());
+
+		for (TestPerson aPerson : aPeople) {
+			aManager.clear();
+
+			assertEquals("Merged", aManager.find(TestPerson.class, aPerson.getRdfId()).getLastName());
+		}
+	}
+
+	@Test
+	public void testEntityListenerReused() throws Exception {
+		EntityManager aManager = new EntityManagerImpl(new MutableTestDataSource(Repositories2.createInMemoryRepo()));
+
+		CountingListener.reset();
+
+		for (int i = 0; i < 3; i++) {
+			Listened aListened = new Listened();
+			aListened.setRdfId(new SupportsRdfId.URIKey(java.net.URI.create("urn:listened:" + i)));
+
+			aManager.persist(aListened);
+
+			assertTrue(aListened.isPersisted());
+		}
+
+		// each callback is invoked for each entity, with the same listener
+		assertEquals(3, CountingListener.calls);
+		assertEquals(1, CountingListener.instances);
+
+		// a listener which cannot be created is only tried once, its callbacks are skipped
+		BrokenListener.attempts = 0;
+
+		for (int i = 0; i < 3; i++) {
+			BrokenListened aListened = new BrokenListened();
+			aListened.setRdfId(new SupportsRdfId.URIKey(java.net.URI.create("urn:broken:listened:" + i)));
+
+			aManager.persist(aListened);
+		}
+
+		assertEquals(1, BrokenListener.attempts);
+	}
+
+	@Test
+	public void testLifecycleCallbackErrorNotWrapped() throws Exception {
+		EntityManager aManager = new EntityManagerImpl(new MutableTestDataSource(Repositories2.createInMemoryRepo()));
+
+		Failing aFailing = new Failing();
+		aFailing.setRdfId(new SupportsRdfId.URIKey(java.net.URI.create("urn:failing")));
+
+		try {
+			aManager.persist(aFailing);
+			fail("AssertionError expected");
+		}
+		catch (AssertionError e) {
+			// expected, errors are thrown as they are rather than as a PersistenceException
+			assertEquals("callback failed", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testMergeWritesOnlyChangedProperties() throws Exception {
+		RecordingDataSource aSource = new RecordingDataSource();
+		EntityManager aManager = new EntityManagerImpl(aSource);
+
+		Tracked aTracked = InstanceGenerator.generateInstanceClass(Tracked.class).newInstance();
+		aTracked.setRdfId(new SupportsRdfId.URIKey(java.net.URI.create("urn:tracked")));
+		aTracked.setName("name");
+		aTracked.setNickname("nickname");
+
+		aManager.persist(aTracked);
+
+		aManager.clear();
+		aSource.reset();
+
+		Tracked aLoaded = aManager.find(Tracked.class, aTracked.getRdfId());
+
+		assertTrue(aLoaded instanceof DirtyTracking);
+		assertTrue(((DirtyTracking) aLoaded).getDirtyProperties().isEmpty());
+
+		// nothing was changed, so there is nothing to write
+		aManager.merge(aLoaded);
+
+		assertEquals(0, aSource.getWrites());
+		assertTrue(aSource.getRemoved().isEmpty());
+
+		aLoaded.setNickname("other");
+
+		aManager.merge(aLoaded);
+
+		assertEquals(1, aSource.getAdded().size());
+		assertEquals(1, aSource.getRemoved().size());
+		assertTrue(((DirtyTracking) aLoaded).getDirtyProperties().isEmpty());
+
+		// and merging it again, unchanged, writes nothing
+		aSource.reset();
+		aManager.merge(aLoaded);
+
+		assertEquals(0, aSource.getWrites());
+		assertTrue(aSource.getRemoved().isEmpty());
+
+		aManager.clear();
+
+		Tracked aMerged = aManager.find(Tracked.class, aTracked.getRdfId());
+
+		assertEquals("name", aMerged.getName());
+		assertEquals("other", aMerged.getNickname());
+
+		// generated subclasses don't track their changes, they are compared with their instance triples in full, which
+		// don't include their types
+		Untracked aUntracked = InstanceGenerator.generateInstanceClass(Untracked.class).newInstance();
+		aUntracked.setRdfId(new SupportsRdfId.URIKey(java.net.URI.create("urn:untracked")));
+		aUntracked.setName("name");
+
+		aManager.persist(aUntracked);
+
+		Untracked aLoadedUntracked = aManager.find(Untracked.class, aUntracked.getRdfId());
+
+		assertFalse(aLoadedUntracked instanceof DirtyTracking);
+
+		aSource.reset();
+		aManager.merge(aLoadedUntracked);
+
+		assertEquals(0, aSource.getWrites());
+		assertTrue(aSource.getRemoved().isEmpty());
+
+		aLoadedUntracked.setName("other");
+
+		aManager.merge(aLoadedUntracked);
+
+		assertEquals(1, aSource.getAdded().size());
+		assertEquals(1, aSource.getRemoved().size());
+
+		aSource.reset();
+		aManager.merge(aLoadedUntracked);
+
+		assertEquals(0, aSource.getWrites());
+		assertTrue(aSource.getRemoved().isEmpty());
+	}
+
+	@Entity
+	@RdfsClass("urn:Tracked")
+	public interface Tracked extends SupportsRdfId {
+		@RdfProperty("urn:name")
+		public String getName();
+		public void setName(String theName);
+
+		@RdfProperty("urn:nickname")
+		public String getNickname();
+		public void setNickname(String theNickname);
+	}
+
+	@Entity
+	@RdfsClass("urn:Untracked")
+	public static abstract class Untracked implements SupportsRdfId {
+		@RdfProperty("urn:name")
+		public abstract String getName();
+		public abstract void setName(String theName);
+	}
+
+	public static class CountingListener {
+		static int instances = 0;
+		static int calls = 0;
+
+		static void reset() {
+			instances = calls = 0;
+		}
+
+		public CountingListener() {
+			instances++;
+		}
+
+		@PrePersist
+		public void onPrePersist(Object theObj) {
+			calls++;
+		}
+	}
+
+	@Entity
+	@RdfsClass("urn:Listened")
+	@EntityListeners(CountingListener.class)
+	public static class Listened implements SupportsRdfId {
+		private final SupportsRdfIdImpl mId = new SupportsRdfIdImpl();
+		private boolean mPersisted = false;
+
+		@Override
+		public RdfKey getRdfId() {
+			return mId.getRdfId();
+		}
+
+		@Override
+		public void setRdfId(final RdfKey theId) {
+			mId.setRdfId(theId);
+		}
+
+		public boolean isPersisted() {
+			return mPersisted;
+		}
+
+		@PostPersist
+		public void onPostPersist() {
+			mPersisted = true;
+		}
+	}
+
+	public static class BrokenListener {
+		static int attempts = 0;
+
+		public BrokenListener() {
+			attempts++;
+
+			throw new IllegalStateException("Cannot create the listener");
+		}
+
+		@PrePersist
+		public void onPrePersist(Object theObj) {
+		}
+	}
+
+	@Entity
+	@RdfsClass("urn:BrokenListened")
+	@EntityListeners(BrokenListener.class)
+	public static class BrokenListened extends BaseTestClass {
+	}
+
+	@Entity
+	@RdfsClass("urn:Failing")
+	public static class Failing extends BaseTestClass {
+		@PrePersist
+		public void onPrePersist() {
+			throw new AssertionError("callback failed");
+		}
+	}
+
 	@MappedSuperclass
 	public interface TestDouble extends SupportsRdfId {
 		@RdfProperty("test:foo")
@@ -138,4 +548,60 @@ public class TestMisc {
 			return "foo";
 		}
 	}
+
+	/**
+	 * Data source which keeps track of what was last added to and removed from it
+	 */
+	private static class RecordingDataSource extends MutableTestDataSource {
+		private final Model mAdded = Models2.newModel();
+		private final Model mRemoved = Models2.newModel();
+		private int mWrites = 0;
+		private int mSelects = 0;
+
+		public RecordingDataSource() {
+			super(Repositories2.createInMemoryRepo());
+		}
+
+		public Model getAdded() {
+			return mAdded;
+		}
+
+		public Model getRemoved() {
+			return mRemoved;
+		}
+
+		public int getWrites() {
+			return mWrites;
+		}
+
+		public int getSelects() {
+			return mSelects;
+		}
+
+		public void reset() {
+			mAdded.clear();
+			mRemoved.clear();
+			mWrites = 0;
+			mSelects = 0;
+		}
+
+		@Override
+		public ResultSet selectQuery(final String theQuery) throws QueryException {
+			mSelects++;
+			return super.selectQuery(theQuery);
+		}
+
+		@Override
+		public void add(final Model theGraph) throws DataSourceException {
+			mWrites++;
+			mAdded.addAll(theGraph);
+			super.add(theGraph);
+		}
+
+		@Override
+		public void remove(final Model theGraph) throws DataSourceException {
+			mRemoved.addAll(theGraph);
+			super.remove(theGraph);
+		}
+	}
 }
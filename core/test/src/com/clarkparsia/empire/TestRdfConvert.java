@@ -15,6 +15,7 @@
 
 package com.clarkparsia.empire;
 
+import com.complexible.common.openrdf.model.ModelIO;
 import com.complexible.common.openrdf.model.Models2;
 import com.google.common.collect.Sets;
 import org.junit.BeforeClass;
@@ -27,13 +28,22 @@ import static org.junit.Assert.fail;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
+import org.openrdf.model.BNode;
+import org.openrdf.model.Graph;
+import org.openrdf.model.IRI;
+import org.openrdf.model.Literal;
 import org.openrdf.model.Model;
+import org.openrdf.model.ValueFactory;
 import org.openrdf.model.impl.SimpleValueFactory;
 
 import org.openrdf.model.util.GraphUtil;
+import org.openrdf.model.vocabulary.RDF;
 import org.openrdf.model.vocabulary.RDFS;
+import org.openrdf.model.vocabulary.XMLSchema;
 
+import com.clarkparsia.empire.annotation.ClassMapping;
 import com.clarkparsia.empire.annotation.InvalidRdfException;
+import com.clarkparsia.empire.annotation.LiteralConverters;
 import com.clarkparsia.empire.annotation.RdfGenerator;
 import com.clarkparsia.empire.annotation.Namespaces;
 import com.clarkparsia.empire.annotation.RdfsClass;
@@ -44,16 +54,28 @@ import com.clarkparsia.empire.annotation.RdfProperty;
 import com.clarkparsia.empire.api.BaseTestClass;
 import com.clarkparsia.empire.api.TestPerson;
 import com.clarkparsia.empire.ds.DataSourceException;
+import com.clarkparsia.empire.ds.QueryException;
+import com.clarkparsia.empire.ds.ResultSet;
 import static com.clarkparsia.empire.util.EmpireUtil.asPrimaryKey;
 import com.clarkparsia.empire.api.TestDataSource;
 import com.clarkparsia.empire.api.TestVocab;
+import com.clarkparsia.empire.api.nasa.Spacecraft;
+import com.clarkparsia.empire.spi.LiteralConverter;
 
+import java.io.File;
+import java.lang.reflect.Field;
 import java.net.URI;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.complexible.common.openrdf.vocabulary.FOAF;
 import com.complexible.common.openrdf.vocabulary.DC;
@@ -123,6 +145,161 @@ public class TestRdfConvert {
 		assertFalse(RdfGenerator.fromRdf(TestPerson.class, URI.create("urn:foo"), new TestDataSource()) == null);
 	}
 
+	@Test
+	public void testFromRdfIfExists() throws Exception {
+		TestPerson aPerson = new TestPerson();
+		aPerson.setMBox("mailto:bob@example.org");
+		aPerson.setFirstName("Bob");
+
+		CountingDataSource aSource = new CountingDataSource(RdfGenerator.asRdf(aPerson));
+
+		TestPerson aCopy = RdfGenerator.fromRdfIfExists(TestPerson.class, aPerson.getRdfId(), aSource).get();
+
+		assertEquals(aPerson.getMBox(), aCopy.getMBox());
+		assertEquals(aPerson.getFirstName(), aCopy.getFirstName());
+
+		// existence, the types and the data of the individual all come from one describe
+		assertEquals(1, aSource.getQueryCount());
+
+		assertFalse(RdfGenerator.fromRdfIfExists(TestPerson.class, asPrimaryKey(URI.create("urn:foo")), aSource).isPresent());
+	}
+
+	@Test
+	public void testFetchPlan() throws Exception {
+		CountingDataSource aSource = new CountingDataSource(ModelIO.read(new File(EntityManagerTestSuite.DATA_FILE).toPath()));
+
+		SupportsRdfId.RdfKey aKey = asPrimaryKey(URI.create("http://nasa.dataincubator.org/spacecraft/1957-001A"));
+
+		Spacecraft aCraft = RdfGenerator.fromRdf(Spacecraft.class, aKey, aSource);
+
+		int aQueryCount = aSource.getQueryCount();
+
+		aSource.resetQueryCount();
+
+		Spacecraft aFetchedCraft = RdfGenerator.fromRdf(Spacecraft.class, aKey, aSource,
+		                                                Arrays.asList("disciplines", "launch.launchSite", "launch.spacecraft.disciplines"));
+
+		// each level of the plan is a single query, rather than a query per referenced object
+		assertTrue(aSource.getQueryCount() < aQueryCount);
+
+		assertEquals(aCraft.getAgency(), aFetchedCraft.getAgency());
+		assertEquals(aCraft.getDisciplines(), aFetchedCraft.getDisciplines());
+		assertEquals(aCraft.getLaunch().getRdfId(), aFetchedCraft.getLaunch().getRdfId());
+		assertEquals(aCraft.getLaunch().getLaunchSite(), aFetchedCraft.getLaunch().getLaunchSite());
+		assertEquals(aCraft.getLaunch().getSpacecraft().size(), aFetchedCraft.getLaunch().getSpacecraft().size());
+
+		// cycles back to the root are still resolved to the root
+		assertTrue(aFetchedCraft.getLaunch().getSpacecraft().contains(aFetchedCraft));
+	}
+
+	@Test
+	public void testBNodesLoadedWithDescribe() throws Exception {
+		IRI aPerson = SimpleValueFactory.getInstance().createIRI("urn:person");
+		BNode aAddress = SimpleValueFactory.getInstance().createBNode();
+		BNode aGeo = SimpleValueFactory.getInstance().createBNode();
+
+		Model aGraph = Models2.newModel();
+		aGraph.add(aPerson, RDF.TYPE, SimpleValueFactory.getInstance().createIRI("urn:Resident"));
+		aGraph.add(aPerson, SimpleValueFactory.getInstance().createIRI("urn:address"), aAddress);
+		aGraph.add(aAddress, SimpleValueFactory.getInstance().createIRI("urn:street"), SimpleValueFactory.getInstance().createLiteral("1 Main St"));
+		aGraph.add(aAddress, SimpleValueFactory.getInstance().createIRI("urn:geo"), aGeo);
+		aGraph.add(aGeo, SimpleValueFactory.getInstance().createIRI("urn:lat"), SimpleValueFactory.getInstance().createLiteral("38.9"));
+
+		CountingDataSource aSource = new CountingDataSource(aGraph);
+
+		Resident aResident = RdfGenerator.fromRdf(Resident.class, asPrimaryKey(URI.create("urn:person")), aSource);
+
+		assertEquals("1 Main St", aResident.address.street);
+		assertEquals("38.9", aResident.address.geo.lat);
+
+		// the nested bnodes are part of the describe of the individual
+		assertEquals(1, aSource.getQueryCount());
+	}
+
+	@Test
+	public void testLiteralConverters() throws Exception {
+		LiteralConverters.register(new PointConverter());
+
+		Dated aObj = new Dated();
+		aObj.setRdfId(asPrimaryKey(URI.create("urn:dated")));
+		aObj.day = LocalDate.of(2016, 2, 29);
+		aObj.timestamp = OffsetDateTime.of(2016, 2, 29, 12, 30, 0, 0, ZoneOffset.ofHours(-5));
+		aObj.point = new Point(3, 4);
+
+		Model aGraph = RdfGenerator.asRdf(aObj);
+
+		assertTrue(aGraph.contains(null, SimpleValueFactory.getInstance().createIRI("urn:day"),
+		                           SimpleValueFactory.getInstance().createLiteral("2016-02-29", XMLSchema.DATE)));
+		assertTrue(aGraph.contains(null, SimpleValueFactory.getInstance().createIRI("urn:point"),
+		                           SimpleValueFactory.getInstance().createLiteral("3,4", PointConverter.DATATYPE)));
+
+		Dated aCopy = RdfGenerator.fromRdf(Dated.class, aObj.getRdfId(), new TestDataSource(aGraph));
+
+		assertEquals(aObj.day, aCopy.day);
+		assertTrue(aObj.timestamp.isEqual(aCopy.timestamp));
+		assertEquals(aObj.point, aCopy.point);
+
+		// a property whose type is not one of the java.time types still gets a java.util.Date
+		assertEquals(Date.class, LiteralConverters.forDatatype(XMLSchema.DATETIME, Object.class).getType());
+		assertEquals(LocalDate.class, LiteralConverters.forDatatype(XMLSchema.DATETIME, LocalDate.class).getType());
+	}
+
+	@Test
+	public void testLaterConverterRegistrationWins() throws Exception {
+		LiteralConverters.register(new PointConverter());
+
+		try {
+			Dated aObj = new Dated();
+			aObj.setRdfId(asPrimaryKey(URI.create("urn:dated:swapped")));
+			aObj.point = new Point(3, 4);
+
+			// the class is mapped, and the converters of its properties used, before the other converter is registered
+			Model aGraph = RdfGenerator.asRdf(aObj);
+
+			assertEquals(aObj.point, RdfGenerator.fromRdf(Dated.class, aObj.getRdfId(), new TestDataSource(aGraph)).point);
+
+			LiteralConverters.register(new SwappedPointConverter());
+
+			assertTrue(RdfGenerator.asRdf(aObj).contains(null, SimpleValueFactory.getInstance().createIRI("urn:point"),
+			                                             SimpleValueFactory.getInstance().createLiteral("4,3", PointConverter.DATATYPE)));
+
+			assertEquals(new Point(4, 3), RdfGenerator.fromRdf(Dated.class, aObj.getRdfId(), new TestDataSource(aGraph)).point);
+		}
+		finally {
+			LiteralConverters.register(new PointConverter());
+		}
+	}
+
+	@Test
+	public void testWideningConversion() throws Exception {
+		ValueFactory aFactory = SimpleValueFactory.getInstance();
+		IRI aId = aFactory.createIRI("urn:widened");
+
+		// xsd:int literals become Integers, which reflection has always widened into long and double fields
+		Model aGraph = Models2.newModel();
+		aGraph.add(aId, RDF.TYPE, aFactory.createIRI("urn:Widened"));
+		aGraph.add(aId, aFactory.createIRI("urn:count"), aFactory.createLiteral(42));
+		aGraph.add(aId, aFactory.createIRI("urn:ratio"), aFactory.createLiteral(7));
+
+		Widened aObj = RdfGenerator.fromRdf(Widened.class, asPrimaryKey(URI.create("urn:widened")), new TestDataSource(aGraph));
+
+		assertEquals(42L, aObj.count);
+		assertEquals(7d, aObj.ratio, 0d);
+	}
+
+	@Test
+	public void testNotAProxy() throws Exception {
+		// a field called handler does not make a bean a proxy
+		Handled aObj = new Handled();
+		aObj.setRdfId(asPrimaryKey(URI.create("urn:handled")));
+		aObj.handler = "handler";
+
+		Model aGraph = RdfGenerator.asRdf(aObj);
+
+		assertTrue(aGraph.contains(null, SimpleValueFactory.getInstance().createIRI("urn:handler"),
+		                           SimpleValueFactory.getInstance().createLiteral("handler", XMLSchema.STRING)));
+	}
+
 	@Test
 	public void testUnbalancedNamespaces() {
 		try {
@@ -360,6 +537,44 @@ public class TestRdfConvert {
 		}
 	}
 
+	@Test
+	public void testClassMapping() throws Exception {
+		ClassMapping aMapping = ClassMapping.of(TransientTest.class);
+
+		// the mapping is only worked out once
+		assertSame(aMapping, ClassMapping.of(TransientTest.class));
+
+		Set<IRI> aProps = Sets.newHashSet();
+		for (ClassMapping.PropertyMapping aProperty : aMapping.getProperties()) {
+			aProps.add(aProperty.getProperty());
+		}
+
+		assertTrue(aProps.contains(SimpleValueFactory.getInstance().createIRI("urn:foo")));
+		assertFalse(aProps.contains(SimpleValueFactory.getInstance().createIRI("urn:bar")));
+		assertFalse(aProps.contains(SimpleValueFactory.getInstance().createIRI("urn:baz")));
+
+		TransientTest aObj = new TransientTest();
+		Field aFoo = TransientTest.class.getDeclaredField("foo");
+
+		aMapping.set(aFoo, aObj, "foo");
+		assertEquals("foo", aObj.foo);
+
+		try {
+			aMapping.set(aFoo, aObj, 42);
+			fail("Should not be able to set an int on a String field");
+		}
+		catch (IllegalArgumentException e) {
+			// expected, the same as reflection would throw
+		}
+
+		assertEquals("foo", aObj.foo);
+
+		// the fields populated from rdf are found by their predicate, or by their name for fetch plans
+		assertEquals(aFoo, aMapping.getSetter(SimpleValueFactory.getInstance().createIRI("urn:foo")).getAccessor());
+		assertEquals(aFoo, aMapping.getSetter("foo").getAccessor());
+		assertNull(aMapping.getSetter(SimpleValueFactory.getInstance().createIRI("urn:baz")));
+	}
+
 	@RdfsClass("urn:TestClass")
 	@Entity
 	private static class NoDefaultConstructor extends BaseTestClass {
@@ -410,6 +625,130 @@ public class TestRdfConvert {
 		public String name;
 	}
 
+	@RdfsClass("urn:Resident")
+	@Entity
+	public static class Resident extends BaseTestClass {
+		@RdfProperty("urn:address")
+		private Address address;
+	}
+
+	@RdfsClass("urn:Address")
+	@Entity
+	public static class Address extends BaseTestClass {
+		@RdfProperty("urn:street")
+		private String street;
+
+		@RdfProperty("urn:geo")
+		private Geo geo;
+	}
+
+	@RdfsClass("urn:Geo")
+	@Entity
+	public static class Geo extends BaseTestClass {
+		@RdfProperty("urn:lat")
+		private String lat;
+	}
+
+	@RdfsClass("urn:Handled")
+	@Entity
+	public static class Handled extends BaseTestClass {
+		@RdfProperty("urn:handler")
+		private String handler;
+	}
+
+	@RdfsClass("urn:Widened")
+	@Entity
+	public static class Widened extends BaseTestClass {
+		@RdfProperty("urn:count")
+		private long count;
+
+		@RdfProperty("urn:ratio")
+		private double ratio;
+	}
+
+	@RdfsClass("urn:Dated")
+	@Entity
+	public static class Dated extends BaseTestClass {
+		@RdfProperty("urn:day")
+		private LocalDate day;
+
+		@RdfProperty("urn:timestamp")
+		private OffsetDateTime timestamp;
+
+		@RdfProperty("urn:point")
+		private Point point;
+	}
+
+	public static final class Point {
+		private final int x;
+		private final int y;
+
+		public Point(final int theX, final int theY) {
+			x = theX;
+			y = theY;
+		}
+
+		@Override
+		public boolean equals(final Object theObj) {
+			return theObj instanceof Point && ((Point) theObj).x == x && ((Point) theObj).y == y;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * x + y;
+		}
+	}
+
+	public static final class PointConverter implements LiteralConverter<Point> {
+		static final IRI DATATYPE = SimpleValueFactory.getInstance().createIRI("urn:test:point");
+
+		@Override
+		public Class<Point> getType() {
+			return Point.class;
+		}
+
+		@Override
+		public Set<IRI> getDatatypes() {
+			return Collections.singleton(DATATYPE);
+		}
+
+		@Override
+		public Point fromLiteral(final Literal theLiteral) {
+			String[] aCoords = theLiteral.getLabel().split(",");
+
+			return new Point(Integer.parseInt(aCoords[0]), Integer.parseInt(aCoords[1]));
+		}
+
+		@Override
+		public Literal toLiteral(final Point thePoint, final ValueFactory theFactory) {
+			return theFactory.createLiteral(thePoint.x + "," + thePoint.y, DATATYPE);
+		}
+	}
+
+	public static final class SwappedPointConverter implements LiteralConverter<Point> {
+		@Override
+		public Class<Point> getType() {
+			return Point.class;
+		}
+
+		@Override
+		public Set<IRI> getDatatypes() {
+			return Collections.singleton(PointConverter.DATATYPE);
+		}
+
+		@Override
+		public Point fromLiteral(final Literal theLiteral) {
+			String[] aCoords = theLiteral.getLabel().split(",");
+
+			return new Point(Integer.parseInt(aCoords[1]), Integer.parseInt(aCoords[0]));
+		}
+
+		@Override
+		public Literal toLiteral(final Point thePoint, final ValueFactory theFactory) {
+			return theFactory.createLiteral(thePoint.y + "," + thePoint.x, PointConverter.DATATYPE);
+		}
+	}
+
 	@RdfsClass("urn:TestClass")
 	@Entity
 	public static class TransientTest extends BaseTestClass {
@@ -515,4 +854,35 @@ public class TestRdfConvert {
             this.foo.add( aImpl );
         }
     }
-}
\ No newline at end of file
+
+	/**
+	 * TestDataSource which keeps track of the number of queries which are run against it
+	 */
+	private static class CountingDataSource extends TestDataSource {
+		private final AtomicInteger mQueryCount = new AtomicInteger();
+
+		public CountingDataSource(final Graph theGraph) {
+			super(theGraph);
+		}
+
+		public int getQueryCount() {
+			return mQueryCount.get();
+		}
+
+		public void resetQueryCount() {
+			mQueryCount.set(0);
+		}
+
+		@Override
+		public ResultSet selectQuery(final String theQuery) throws QueryException {
+			mQueryCount.incrementAndGet();
+			return super.selectQuery(theQuery);
+		}
+
+		@Override
+		public Model graphQuery(final String theQuery) throws QueryException {
+			mQueryCount.incrementAndGet();
+			return super.graphQuery(theQuery);
+		}
+	}
+}
@@ -16,6 +16,7 @@
 package com.clarkparsia.empire.sesame;
 
 import com.clarkparsia.empire.ds.SupportsNamedGraphs;
+import com.clarkparsia.empire.ds.SupportsSparqlUpdate;
 import com.clarkparsia.empire.ds.MutableDataSource;
 import com.clarkparsia.empire.ds.DataSourceException;
 import com.clarkparsia.empire.ds.SupportsTransactions;
@@ -61,7 +62,7 @@ import java.net.URI;
  * @since 	0.6
  * @version 1.0
  */
-public final class RepositoryDataSource extends AbstractDataSource implements MutableDataSource, TripleSource, SupportsNamedGraphs, SupportsTransactions {
+public final class RepositoryDataSource extends AbstractDataSource implements MutableDataSource, TripleSource, SupportsNamedGraphs, SupportsTransactions, SupportsSparqlUpdate {
 
 	/**
 	 * The logger
@@ -150,6 +151,22 @@ public final class RepositoryDataSource extends AbstractDataSource implements Mu
 		}
 	}
 
+	/**
+	 * @inheritDoc
+	 */
+    @Override
+	public void update(final String theUpdate) throws DataSourceException {
+		assertConnected();
+
+		try {
+			// updates are always sparql, regardless of the language used for queries
+			mConnection.prepareUpdate(QueryLanguage.SPARQL, theUpdate).execute();
+		}
+		catch (Exception e) {
+			throw new DataSourceException(e);
+		}
+	}
+
 	/**
 	 * @inheritDoc
 	 */